@@ -1,9 +1,8 @@
 package de.obj;
 
-import java.text.DecimalFormat;
-
 /**
  * Article representing an item on a receipt.
+ * The position total is rounded once: round(unit gross price * quantity).
  */
 public class Artikel {
     private Produkt produkt;
@@ -32,25 +31,38 @@ public class Artikel {
         this.menge = menge;
     }
 
+    public long getMengeMilli() {
+        return Money.toMilli(menge);
+    }
+
+    public long getBruttoGesamtpreisCents() {
+        return Money.times(produkt.getBruttoPreisCents(), getMengeMilli());
+    }
+
+    public long getMwstBetragCents() {
+        return Money.mwstFromBrutto(getBruttoGesamtpreisCents(), produkt.getMwstBasisPoints());
+    }
+
+    public long getNettoGesamtpreisCents() {
+        return getBruttoGesamtpreisCents() - getMwstBetragCents();
+    }
+
     public double getNettoGesamtpreis() {
-        return menge * produkt.getNettoPreis();
+        return Money.toEuros(getNettoGesamtpreisCents());
     }
 
     public double getBruttoGesamtpreis() {
-        return menge * produkt.getBruttoPreis();
+        return Money.toEuros(getBruttoGesamtpreisCents());
     }
 
     public double getMwstBetrag() {
-        return getNettoGesamtpreis() * produkt.getMwst();
+        return Money.toEuros(getMwstBetragCents());
     }
 
     @Override
     public String toString() {
-        DecimalFormat df = new DecimalFormat("#.##");
-        String unit = produkt.isWeightBased() ? " kg" : " Stück";
-        return String.format("%s%s %s = %s EUR (netto) %s EUR (brutto)",
-                df.format(menge), unit, produkt.getBezeichnung(),
-                df.format(getNettoGesamtpreis()),
-                df.format(getBruttoGesamtpreis()));
+        StringBuilder sb = new StringBuilder(64);
+        ReceiptRenderer.appendPosition(sb, this);
+        return sb.toString();
     }
 }
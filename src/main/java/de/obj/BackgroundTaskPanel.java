@@ -0,0 +1,185 @@
+package de.obj;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Status strip that runs service calls off the Event Dispatch Thread.
+ * Results come back on the EDT. While work is pending the strip shows a busy bar with the
+ * task description, and cancellable work can be abandoned with its button.
+ * Tasks of one panel run one after another in submission order, so results (e.g. scanned
+ * articles) arrive in the order the user triggered them. Use separate panels for independent work.
+ * All methods must be called on the EDT.
+ */
+public class BackgroundTaskPanel extends JPanel {
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JLabel label = new JLabel(" ");
+    private final JButton cancelButton = new JButton("Abbrechen");
+    private final List<Task<?>> running = new ArrayList<>();
+    // Components disabled by pending tasks, with the number of tasks holding them
+    private final Map<Component, Integer> disabled = new IdentityHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public BackgroundTaskPanel() {
+        super(new BorderLayout(5, 0));
+        // One worker that goes away when idle, so closed dialogs leave no threads behind
+        executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "gui-task");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(120, progressBar.getPreferredSize().height));
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+        cancelButton.addActionListener(e -> cancelAll());
+        add(progressBar, BorderLayout.WEST);
+        add(label, BorderLayout.CENTER);
+        add(cancelButton, BorderLayout.EAST);
+    }
+
+    /**
+     * Run work in the background and hand its result to onSuccess on the EDT.
+     * The given components are disabled until the work has finished.
+     * Cancelling only discards the result; a database call that already started still completes,
+     * so writes should not be cancellable.
+     */
+    public <T> Task<T> run(String description, boolean cancellable, Callable<T> work, Consumer<T> onSuccess,
+            Component... disableWhileBusy) {
+        Task<T> task = new Task<>(description, cancellable, work, onSuccess, disableWhileBusy);
+        running.add(task);
+        for (Component c : disableWhileBusy) {
+            Integer count = disabled.get(c);
+            if (count == null) {
+                c.setEnabled(false);
+            }
+            disabled.put(c, count == null ? 1 : count + 1);
+        }
+        updateIndicator();
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancel all pending cancellable tasks; their results are dropped.
+     */
+    public void cancelAll() {
+        for (Task<?> task : new ArrayList<>(running)) {
+            if (task.cancellable) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Cancel pending work when the window is closed.
+     */
+    public void cancelOnClose(Window window) {
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelAll();
+            }
+        });
+    }
+
+    public boolean isBusy() {
+        return !running.isEmpty();
+    }
+
+    private void finished(Task<?> task, String message) {
+        running.remove(task);
+        for (Component c : task.disableWhileBusy) {
+            Integer count = disabled.get(c);
+            if (count == null || count <= 1) {
+                disabled.remove(c);
+                c.setEnabled(true);
+            } else {
+                disabled.put(c, count - 1);
+            }
+        }
+        updateIndicator();
+        if (!isBusy()) {
+            label.setText(message);
+        }
+    }
+
+    private void updateIndicator() {
+        boolean busy = isBusy();
+        progressBar.setVisible(busy);
+        boolean anyCancellable = false;
+        for (Task<?> task : running) {
+            anyCancellable |= task.cancellable;
+        }
+        cancelButton.setVisible(anyCancellable);
+        if (busy) {
+            Task<?> latest = running.get(running.size() - 1);
+            label.setText(running.size() == 1 ? latest.description
+                    : latest.description + " (+" + (running.size() - 1) + ")");
+        }
+    }
+
+    /**
+     * Background call started by {@link #run}.
+     */
+    public final class Task<T> extends SwingWorker<T, Void> {
+        private final String description;
+        private final boolean cancellable;
+        private final Callable<T> work;
+        private final Consumer<T> onSuccess;
+        private final Component[] disableWhileBusy;
+
+        private Task(String description, boolean cancellable, Callable<T> work, Consumer<T> onSuccess,
+                Component[] disableWhileBusy) {
+            this.description = description;
+            this.cancellable = cancellable;
+            this.work = work;
+            this.onSuccess = onSuccess;
+            this.disableWhileBusy = disableWhileBusy;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            return work.call();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                finished(this, description + " abgebrochen");
+                return;
+            }
+            T result;
+            try {
+                result = get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished(this, description + " unterbrochen");
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println(description + " failed: " + cause);
+                finished(this, description + " fehlgeschlagen: " + cause.getMessage());
+                return;
+            }
+            finished(this, " ");
+            if (onSuccess != null) {
+                onSuccess.accept(result);
+            }
+        }
+    }
+}
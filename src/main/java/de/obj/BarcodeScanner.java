@@ -0,0 +1,161 @@
+package de.obj;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Component;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.Window;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Turns keyboard-wedge scanner input into scan events, whatever component has the focus.
+ * A scanner types the code much faster than a person and ends it with Enter. Typed characters
+ * are therefore held back briefly: if they form such a burst, they become one scan event and
+ * never reach the focused component. Otherwise they are handed on unchanged, in their original
+ * order, as soon as the next key comes too late or the hold timeout expires.
+ * Runs on the EDT like all key dispatching.
+ */
+public class BarcodeScanner implements KeyEventDispatcher {
+    // Scanners send a character every few milliseconds; people need far more than 40
+    private static final int DEFAULT_MAX_GAP_MILLIS = 40;
+    private static final int DEFAULT_MIN_LENGTH = 4;
+
+    private final Window window;
+    private final Consumer<String> onScan;
+    private final int maxGapMillis;
+    private final int minLength;
+    private final List<KeyEvent> held = new ArrayList<>();
+    private final StringBuilder code = new StringBuilder(32);
+    private final Timer holdTimer;
+    private long lastKeyWhen;
+    private boolean swallowEnter;
+    private long scanCount;
+
+    public BarcodeScanner(Window window, Consumer<String> onScan) {
+        this(window, onScan, DEFAULT_MAX_GAP_MILLIS, DEFAULT_MIN_LENGTH);
+    }
+
+    /**
+     * Scanner input for the given window and the windows it owns; null listens everywhere.
+     */
+    public BarcodeScanner(Window window, Consumer<String> onScan, int maxGapMillis, int minLength) {
+        this.window = window;
+        this.onScan = onScan;
+        this.maxGapMillis = maxGapMillis;
+        this.minLength = minLength;
+        // Hands on held keys once no further key followed
+        this.holdTimer = new Timer(maxGapMillis * 2, e -> release());
+        this.holdTimer.setRepeats(false);
+    }
+
+    /**
+     * Start listening; call on the EDT.
+     */
+    public void install() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(this);
+    }
+
+    /**
+     * Stop listening and hand on anything still held.
+     */
+    public void uninstall() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(this);
+        holdTimer.stop();
+        release();
+    }
+
+    public long getScanCount() {
+        return scanCount;
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent e) {
+        if (!isInWindow(e.getComponent())) {
+            return false;
+        }
+        if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ENTER) {
+            if (isBurst(e.getWhen())) {
+                String scanned = code.toString();
+                held.clear();
+                code.setLength(0);
+                holdTimer.stop();
+                swallowEnter = true;
+                scanCount++;
+                onScan.accept(scanned);
+                return true;
+            }
+            swallowEnter = false;
+            release();
+            return false;
+        }
+        if (swallowEnter && isEnter(e)) {
+            // The typed and released halves of the Enter that ended a scan
+            if (e.getID() == KeyEvent.KEY_RELEASED) {
+                swallowEnter = false;
+            }
+            return true;
+        }
+        if (e.getID() != KeyEvent.KEY_TYPED) {
+            return false;
+        }
+        char c = e.getKeyChar();
+        boolean plain = (e.getModifiersEx() & (KeyEvent.CTRL_DOWN_MASK | KeyEvent.ALT_DOWN_MASK
+                | KeyEvent.META_DOWN_MASK)) == 0;
+        if (!plain || !Character.isLetterOrDigit(c)) {
+            release();
+            return false;
+        }
+        if (!held.isEmpty() && e.getWhen() - lastKeyWhen > maxGapMillis) {
+            // Too slow for a scanner; what came before was typed by hand
+            release();
+        }
+        held.add(e);
+        code.append(c);
+        lastKeyWhen = e.getWhen();
+        holdTimer.restart();
+        return true;
+    }
+
+    private boolean isBurst(long enterWhen) {
+        return code.length() >= minLength && enterWhen - lastKeyWhen <= maxGapMillis;
+    }
+
+    private static boolean isEnter(KeyEvent e) {
+        return e.getKeyCode() == KeyEvent.VK_ENTER || e.getKeyChar() == '\n';
+    }
+
+    /**
+     * Hand held keys on to their components, bypassing this dispatcher.
+     */
+    void release() {
+        if (held.isEmpty()) {
+            return;
+        }
+        holdTimer.stop();
+        List<KeyEvent> events = new ArrayList<>(held);
+        held.clear();
+        code.setLength(0);
+        KeyboardFocusManager manager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
+        for (KeyEvent event : events) {
+            manager.redispatchEvent(event.getComponent(), event);
+        }
+    }
+
+    private boolean isInWindow(Component component) {
+        if (window == null) {
+            return true;
+        }
+        Window w = component instanceof Window ? (Window) component : SwingUtilities.getWindowAncestor(component);
+        while (w != null) {
+            if (w == window) {
+                return true;
+            }
+            w = w.getOwner();
+        }
+        return false;
+    }
+}
@@ -3,18 +3,42 @@ package de.obj;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Receipt/Bon entity representing a sales transaction.
+ * Totals are exact cents: VAT is computed once per rate from the gross sum of that rate.
+ * The totals are running sums updated by addArtikel/removeArtikel, so reading them costs O(1).
+ * Each position's amount is taken when it is added; change quantities by removing and re-adding.
  */
 public class Bon {
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+    // Renderers keep their buffers between receipts, one per thread
+    private static final ThreadLocal<ReceiptRenderer> RENDERER = ThreadLocal.withInitial(ReceiptRenderer::new);
     private int bonId;
     private Ort filiale = new Ort();
     private LocalDateTime datum;
     private User verkaufer;
-    private List<Artikel> positionen = new ArrayList<>();
+    private final List<Artikel> positionen = new ArrayList<>();
+    private final List<Artikel> positionenView = Collections.unmodifiableList(positionen);
     private boolean isCancelled = false;
+    // Entry ID in the lane's sale journal; null for sales saved directly
+    private String journalId;
+    // BonID taken from the lane's reserved number block before saving, see BonNummernKreis
+    private boolean nummerReserviert;
+
+    // Gross amount and VAT rate of each position, as added
+    private long[] positionBrutto = new long[16];
+    private int[] positionRate = new int[16];
+    // One bucket per VAT rate; German receipts rarely have more than two (7% and 19%)
+    private int[] rates = new int[2];
+    private long[] bruttoByRate = new long[2];
+    private long[] mwstByRate = new long[2];
+    private int rateCount;
+    private long bruttoSum;
+    private long mwstSum;
 
     public Bon() {
         this.datum = LocalDateTime.now();
@@ -50,6 +74,30 @@ public class Bon {
         this.datum = datum;
     }
 
+    public String getJournalId() {
+        return journalId;
+    }
+
+    public void setJournalId(String journalId) {
+        this.journalId = journalId;
+    }
+
+    public boolean isNummerReserviert() {
+        return nummerReserviert;
+    }
+
+    public void setNummerReserviert(boolean nummerReserviert) {
+        this.nummerReserviert = nummerReserviert;
+    }
+
+    /**
+     * Receipt number printed while the sale is not booked yet, derived from the journal ID
+     * (which the database keeps with the sale); null for sales that were not journaled.
+     */
+    public String getVorlaeufigeNummer() {
+        return journalId == null ? null : "V-" + journalId.replace("-", "").substring(0, 12).toUpperCase();
+    }
+
     public User getVerkaufer() {
         return verkaufer;
     }
@@ -58,12 +106,21 @@ public class Bon {
         this.verkaufer = verkaufer;
     }
 
+    /**
+     * Read-only view of the positions; use addArtikel/removeArtikel to change them.
+     */
     public List<Artikel> getPositionen() {
-        return positionen;
+        return positionenView;
     }
 
     public void setPositionen(List<Artikel> positionen) {
-        this.positionen = positionen;
+        this.positionen.clear();
+        bruttoSum = 0;
+        mwstSum = 0;
+        rateCount = 0;
+        for (Artikel artikel : positionen) {
+            addArtikel(artikel);
+        }
     }
 
     public boolean isCancelled() {
@@ -76,65 +133,143 @@ public class Bon {
 
     // Business methods
     public void addArtikel(Artikel artikel) {
+        int index = positionen.size();
+        if (index == positionBrutto.length) {
+            positionBrutto = Arrays.copyOf(positionBrutto, index * 2);
+            positionRate = Arrays.copyOf(positionRate, index * 2);
+        }
         positionen.add(artikel);
+        positionBrutto[index] = artikel.getBruttoGesamtpreisCents();
+        positionRate[index] = artikel.getProdukt().getMwstBasisPoints();
+        book(positionRate[index], positionBrutto[index]);
     }
 
     public void removeArtikel(int index) {
         if (index >= 0 && index < positionen.size()) {
+            book(positionRate[index], -positionBrutto[index]);
             positionen.remove(index);
+            int moved = positionen.size() - index;
+            System.arraycopy(positionBrutto, index + 1, positionBrutto, index, moved);
+            System.arraycopy(positionRate, index + 1, positionRate, index, moved);
         }
     }
 
+    private void book(int rate, long bruttoCents) {
+        int bucket = bucketFor(rate);
+        long oldMwst = mwstByRate[bucket];
+        bruttoByRate[bucket] += bruttoCents;
+        mwstByRate[bucket] = Money.mwstFromBrutto(bruttoByRate[bucket], rate);
+        bruttoSum += bruttoCents;
+        mwstSum += mwstByRate[bucket] - oldMwst;
+    }
+
+    private int bucketFor(int rate) {
+        for (int i = 0; i < rateCount; i++) {
+            if (rates[i] == rate) {
+                return i;
+            }
+        }
+        if (rateCount == rates.length) {
+            rates = Arrays.copyOf(rates, rateCount * 2);
+            bruttoByRate = Arrays.copyOf(bruttoByRate, rateCount * 2);
+            mwstByRate = Arrays.copyOf(mwstByRate, rateCount * 2);
+        }
+        // Keep the buckets sorted by rate so the receipt lists 7% before 19%
+        int pos = rateCount;
+        while (pos > 0 && rates[pos - 1] > rate) {
+            rates[pos] = rates[pos - 1];
+            bruttoByRate[pos] = bruttoByRate[pos - 1];
+            mwstByRate[pos] = mwstByRate[pos - 1];
+            pos--;
+        }
+        rates[pos] = rate;
+        bruttoByRate[pos] = 0;
+        mwstByRate[pos] = 0;
+        rateCount++;
+        return pos;
+    }
+
+    public long getBruttoGesamtbetragCents() {
+        return bruttoSum;
+    }
+
+    public long getGesamtMwstCents() {
+        return mwstSum;
+    }
+
+    public long getNettoGesamtbetragCents() {
+        return bruttoSum - mwstSum;
+    }
+
     public double getNettoGesamtbetrag() {
-        return positionen.stream()
-                .mapToDouble(Artikel::getNettoGesamtpreis)
-                .sum();
+        return Money.toEuros(getNettoGesamtbetragCents());
     }
 
     public double getBruttoGesamtbetrag() {
-        return positionen.stream()
-                .mapToDouble(Artikel::getBruttoGesamtpreis)
-                .sum();
+        return Money.toEuros(getBruttoGesamtbetragCents());
     }
 
     public double getGesamtMwst() {
-        return positionen.stream()
-                .mapToDouble(Artikel::getMwstBetrag)
-                .sum();
+        return Money.toEuros(getGesamtMwstCents());
+    }
+
+    /**
+     * VAT breakdown per rate, ordered by rate. Rates whose positions were all removed are left out.
+     */
+    public List<MwstZeile> getMwstAufstellung() {
+        List<MwstZeile> result = new ArrayList<>(rateCount);
+        for (int i = 0; i < rateCount; i++) {
+            if (bruttoByRate[i] != 0) {
+                MwstZeile zeile = new MwstZeile();
+                zeile.rateBasisPoints = rates[i];
+                zeile.bruttoCents = bruttoByRate[i];
+                zeile.mwstCents = mwstByRate[i];
+                zeile.nettoCents = bruttoByRate[i] - mwstByRate[i];
+                result.add(zeile);
+            }
+        }
+        return result;
+    }
+
+    // Per-rate buckets for the renderer, which must not allocate a breakdown list
+    int getMwstSatzCount() {
+        return rateCount;
+    }
+
+    int getMwstSatz(int bucket) {
+        return rates[bucket];
+    }
+
+    long getMwstSatzBrutto(int bucket) {
+        return bruttoByRate[bucket];
+    }
+
+    long getMwstSatzBetrag(int bucket) {
+        return mwstByRate[bucket];
     }
 
     public String getFormattedDatum() {
-        return datum.format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss"));
+        return datum.format(DISPLAY_FORMAT);
     }
 
     public String generateReceiptText() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("=====================================\n");
-        sb.append("           GoodFood GmbH            \n");
-        sb.append("=====================================\n");
-        sb.append("Datum: ").append(getFormattedDatum()).append("\n");
-        if (verkaufer != null) {
-            sb.append("Verkäufer: ").append(verkaufer.getFullName()).append("\n");
-        }
-        sb.append("Bon-Nr: ").append(bonId).append("\n");
-        sb.append("-------------------------------------\n");
-
-        for (int i = 0; i < positionen.size(); i++) {
-            Artikel artikel = positionen.get(i);
-            sb.append(String.format("%d. %s\n", i + 1, artikel.toString()));
-        }
+        return RENDERER.get().renderText(this).toString();
+    }
 
-        sb.append("-------------------------------------\n");
-        sb.append(String.format("Netto: %.2f EUR\n", getNettoGesamtbetrag()));
-        sb.append(String.format("MwSt:  %.2f EUR\n", getGesamtMwst()));
-        sb.append(String.format("TOTAL: %.2f EUR\n", getBruttoGesamtbetrag()));
-        sb.append("=====================================\n");
+    /**
+     * One VAT line of the receipt data class.
+     */
+    public static class MwstZeile {
+        public int rateBasisPoints;
+        public long bruttoCents;
+        public long mwstCents;
+        public long nettoCents;
 
-        if (isCancelled) {
-            sb.append("*** STORNIERT ***\n");
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(48);
+            ReceiptRenderer.appendMwstZeile(sb, rateBasisPoints, mwstCents, bruttoCents);
+            return sb.toString();
         }
-
-        return sb.toString();
     }
 }
-
@@ -0,0 +1,451 @@
+package de.obj;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only sale journal of a lane in a memory-mapped file. A completed sale is written here
+ * first, which takes microseconds, and a background thread books it into the database afterwards.
+ * Entries carry a sequence number and a CRC32, so after a crash the intact entries are found
+ * again and replayed; a torn last entry is dropped. Each entry has a journal ID that the
+ * database keeps, so an entry replayed twice is booked only once.
+ *
+ * Layout: header (magic, version, applied offset, applied sequence), then entries of
+ * length, CRC32 over sequence and payload, sequence and the {@link KassenProtokoll} encoding of the Bon.
+ * Once everything is booked and the file is half full, writing starts over behind the header.
+ *
+ * A sale the database keeps rejecting while it could take it is moved to the dead-letter file
+ * (journal name + ".dead") after {@code shop.journal.maxAttempts} attempts (default 10), so it does not hold up the
+ * sales behind it. Failures while it cannot be booked (database unreachable, seller not logged in
+ * at the store server) do not count.
+ */
+public class BonJournal {
+    private static final int MAGIC = 0x4B4A4E4C; // "KJNL"
+    // Version 2: Bons carry the reserved-number flag
+    private static final int VERSION = 2;
+    private static final int APPLIED_OFFSET_POS = 8;
+    private static final int APPLIED_SEQ_POS = 16;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_HEADER_SIZE = 16;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    private static final int MAX_ATTEMPTS = Integer.getInteger("shop.journal.maxAttempts", 10);
+
+    /**
+     * Books a journaled sale; returns its BonID, or a value &lt;= 0 to be retried later.
+     */
+    public interface Applier {
+        int apply(Bon bon);
+    }
+
+    private final Applier applier;
+    private final Predicate<Bon> bookable;
+    private final int maxAttempts;
+    private final File deadLetterFile;
+    private final boolean forceEachAppend;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final BlockingQueue<Entry> unapplied = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<Integer>> pendingById = new ConcurrentHashMap<>();
+    private final Thread replayer;
+    private volatile boolean running = true;
+    // Guarded by this
+    private int writeOffset;
+    private int appliedOffset;
+    private long nextSeq;
+    private final int recovered;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong full = new AtomicLong();
+    private final AtomicLong deadLetters = new AtomicLong();
+    private final AtomicLong appendNanos = new AtomicLong();
+
+    /**
+     * Open or create the journal and queue every entry that was not booked yet.
+     * @param forceEachAppend flush each entry to the device before append returns; without it an
+     *                        entry survives a crash of the process but not a power loss
+     */
+    public BonJournal(File file, int capacity, boolean forceEachAppend, Applier applier) throws IOException {
+        this(file, capacity, forceEachAppend, applier, bon -> true);
+    }
+
+    /**
+     * @param bookable whether a sale could be booked right now; failed attempts only count while it could
+     */
+    public BonJournal(File file, int capacity, boolean forceEachAppend, Applier applier, Predicate<Bon> bookable)
+            throws IOException {
+        this(file, capacity, forceEachAppend, applier, bookable, MAX_ATTEMPTS);
+    }
+
+    BonJournal(File file, int capacity, boolean forceEachAppend, Applier applier, Predicate<Bon> bookable,
+            int maxAttempts) throws IOException {
+        this.applier = applier;
+        this.bookable = bookable;
+        this.maxAttempts = maxAttempts;
+        this.deadLetterFile = new File(file.getPath() + ".dead");
+        this.forceEachAppend = forceEachAppend;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(APPLIED_OFFSET_POS, HEADER_SIZE);
+            buffer.putLong(APPLIED_SEQ_POS, 0);
+            buffer.force();
+        } else if (buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Journal " + file + " has format " + buffer.getInt(4) + ", expected " + VERSION
+                    + "; book it with the matching version first");
+        }
+        this.recovered = recover();
+        this.replayer = new Thread(this::replay, "bon-journal");
+        this.replayer.setDaemon(true);
+        this.replayer.start();
+    }
+
+    /**
+     * Scan the entries after the applied offset; stops at the first one that is torn or stale.
+     */
+    private int recover() {
+        long storedOffset = buffer.getLong(APPLIED_OFFSET_POS);
+        appliedOffset = storedOffset < HEADER_SIZE || storedOffset > capacity ? HEADER_SIZE : (int) storedOffset;
+        long expectedSeq = buffer.getLong(APPLIED_SEQ_POS) + 1;
+        int pos = appliedOffset;
+        int found = 0;
+        while (pos + ENTRY_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + ENTRY_HEADER_SIZE + length > capacity
+                    || buffer.getLong(pos + 8) != expectedSeq) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(pos + ENTRY_HEADER_SIZE);
+            view.get(payload);
+            if (buffer.getInt(pos + 4) != checksum(expectedSeq, payload)) {
+                break;
+            }
+            Bon bon;
+            try {
+                bon = KassenProtokoll.readBon(new DataInputStream(new ByteArrayInputStream(payload)));
+            } catch (IOException e) {
+                break;
+            }
+            pos += ENTRY_HEADER_SIZE + length;
+            queue(new Entry(expectedSeq, pos, bon));
+            expectedSeq++;
+            found++;
+        }
+        writeOffset = pos;
+        nextSeq = expectedSeq;
+        if (found > 0) {
+            System.out.println("Bon-Journal: " + found + " nicht gebuchte Verkäufe werden nachgetragen");
+        }
+        return found;
+    }
+
+    /**
+     * Write a completed sale to the journal. When this returns, the sale survives a crash;
+     * the future yields its BonID once it is booked. Returns null if the journal is full.
+     */
+    public CompletableFuture<Integer> append(Bon bon) {
+        long start = System.nanoTime();
+        if (bon.getJournalId() == null) {
+            bon.setJournalId(UUID.randomUUID().toString());
+        }
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            KassenProtokoll.writeBon(new DataOutputStream(bytes), bon);
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            System.err.println("Error encoding sale for journal: " + e.getMessage());
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            int size = ENTRY_HEADER_SIZE + payload.length;
+            // Room for the entry and the zero length that marks the end
+            if (writeOffset + size + 4 > capacity) {
+                full.incrementAndGet();
+                return null;
+            }
+            long seq = nextSeq++;
+            ByteBuffer view = buffer.duplicate();
+            view.position(writeOffset + ENTRY_HEADER_SIZE);
+            view.put(payload);
+            buffer.putLong(writeOffset + 8, seq);
+            buffer.putInt(writeOffset + 4, checksum(seq, payload));
+            buffer.putInt(writeOffset, payload.length);
+            buffer.putInt(writeOffset + size, 0);
+            writeOffset += size;
+            if (forceEachAppend) {
+                buffer.force();
+            }
+            entry = new Entry(seq, writeOffset, bon);
+            queue(entry);
+        }
+        appended.incrementAndGet();
+        appendNanos.addAndGet(System.nanoTime() - start);
+        return entry.future;
+    }
+
+    private void queue(Entry entry) {
+        pendingById.put(entry.journalId, entry.future);
+        unapplied.add(entry);
+    }
+
+    /**
+     * Future for a journaled sale that is not booked yet, or null if there is none.
+     */
+    public CompletableFuture<Integer> pending(String journalId) {
+        return journalId == null ? null : pendingById.get(journalId);
+    }
+
+    /**
+     * Sales journaled but not booked yet; cheap enough for a status display.
+     */
+    public int getPendingCount() {
+        return pendingById.size();
+    }
+
+    private void replay() {
+        while (running) {
+            Entry entry;
+            try {
+                entry = unapplied.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long backoff = 50;
+            int attempts = 0;
+            int bonId;
+            // Entries are booked in order; a failing one is retried until the database takes it
+            // or, if it keeps rejecting it, until it is safely in the dead-letter file
+            while ((bonId = tryApply(entry)) <= 0) {
+                retries.incrementAndGet();
+                if (isBookable(entry) && ++attempts >= maxAttempts && deadLetter(entry)) {
+                    break;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            markApplied(entry);
+            pendingById.remove(entry.journalId);
+            if (bonId > 0) {
+                applied.incrementAndGet();
+                entry.future.complete(bonId);
+            } else {
+                entry.future.completeExceptionally(new IOException("Sale " + entry.journalId
+                        + " rejected " + attempts + " times, moved to " + deadLetterFile));
+            }
+        }
+    }
+
+    private int tryApply(Entry entry) {
+        try {
+            return applier.apply(entry.bon);
+        } catch (RuntimeException e) {
+            System.err.println("Error booking journaled sale " + entry.journalId + ": " + e);
+            return -1;
+        }
+    }
+
+    private boolean isBookable(Entry entry) {
+        try {
+            return bookable.test(entry.bon);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Append the sale to the dead-letter file, in the same encoding as the journal.
+     */
+    private boolean deadLetter(Entry entry) {
+        try (FileOutputStream file = new FileOutputStream(deadLetterFile, true)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            KassenProtokoll.writeBon(new DataOutputStream(bytes), entry.bon);
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.flush();
+            // The entry leaves the journal next, so the copy must be on disk first
+            file.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Error writing dead-letter file: " + e.getMessage());
+            return false;
+        }
+        deadLetters.incrementAndGet();
+        System.err.println("Bon-Journal: Verkauf " + entry.journalId + " nicht buchbar, abgelegt in " + deadLetterFile);
+        return true;
+    }
+
+    /**
+     * Sales moved aside because the database kept rejecting them, for manual booking.
+     */
+    public static List<Bon> readDeadLetters(File deadLetterFile) throws IOException {
+        List<Bon> bons = new ArrayList<>();
+        if (!deadLetterFile.exists()) {
+            return bons;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(deadLetterFile))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return bons;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                bons.add(KassenProtokoll.readBon(new DataInputStream(new ByteArrayInputStream(payload))));
+            }
+        }
+    }
+
+    public File getDeadLetterFile() {
+        return deadLetterFile;
+    }
+
+    /**
+     * Sales moved to the dead-letter file since the lane started.
+     */
+    public long getDeadLetterCount() {
+        return deadLetters.get();
+    }
+
+    private synchronized void markApplied(Entry entry) {
+        appliedOffset = entry.endOffset;
+        if (appliedOffset == writeOffset && writeOffset > capacity / 2) {
+            // Everything is booked: start over behind the header. Old entries have lower
+            // sequence numbers, so recovery never mistakes them for new ones.
+            appliedOffset = HEADER_SIZE;
+            writeOffset = HEADER_SIZE;
+            buffer.putInt(HEADER_SIZE, 0);
+        }
+        buffer.putLong(APPLIED_SEQ_POS, entry.seq);
+        buffer.putLong(APPLIED_OFFSET_POS, appliedOffset);
+        if (forceEachAppend && appliedOffset == HEADER_SIZE) {
+            buffer.force();
+        }
+        // Otherwise the header is flushed with the next entry; a stale one only causes an idempotent replay
+    }
+
+    private static int checksum(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift));
+        }
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Stop booking and flush the file; entries not booked yet are replayed on the next start.
+     */
+    public void close() {
+        running = false;
+        replayer.interrupt();
+        try {
+            replayer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            buffer.force();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing sale journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Current journal metrics.
+     */
+    public synchronized JournalStats getStats() {
+        JournalStats stats = new JournalStats();
+        stats.appended = appended.get();
+        stats.applied = applied.get();
+        stats.pending = stats.appended + recovered - stats.applied;
+        stats.recovered = recovered;
+        stats.retries = retries.get();
+        stats.full = full.get();
+        stats.deadLetters = deadLetters.get();
+        stats.pending -= stats.deadLetters;
+        stats.usedPercent = 100.0 * writeOffset / capacity;
+        stats.avgAppendMicros = stats.appended == 0 ? 0.0 : appendNanos.get() / 1000.0 / stats.appended;
+        return stats;
+    }
+
+    /**
+     * A journaled sale waiting to be booked.
+     */
+    private static final class Entry {
+        final long seq;
+        final int endOffset;
+        final Bon bon;
+        final String journalId;
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Entry(long seq, int endOffset, Bon bon) {
+            this.seq = seq;
+            this.endOffset = endOffset;
+            this.bon = bon;
+            this.journalId = bon.getJournalId();
+        }
+    }
+
+    /**
+     * Journal metrics data class.
+     */
+    public static class JournalStats {
+        public long appended;
+        public long applied;
+        public long pending;
+        public int recovered;
+        public long retries;
+        public long full;
+        public long deadLetters;
+        public double usedPercent;
+        public double avgAppendMicros;
+
+        @Override
+        public String toString() {
+            return String.format("Bon-Journal: %d geschrieben (avg %.1f µs), %d gebucht, %d offen, "
+                    + "%d nach Neustart nachgetragen, %d Wiederholungen, %d nicht buchbar, %d Mal voll, %.1f%% belegt",
+                    appended, avgAppendMicros, applied, pending, recovered, retries, deadLetters, full, usedPercent);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package de.obj;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Receipt numbers of one terminal (hi/lo). The terminal reserves a block of BonIDs in one small
+ * transaction and hands them out from memory, so a sale has its final number before it is saved:
+ * it can be printed, journaled and booked later, also while the database is unreachable.
+ *
+ * Blocks come from one counter per database, so numbers rise monotonically per terminal and never
+ * collide between terminals. Every block is recorded in Bonnummernbloecke; numbers of a block
+ * without a receipt show up in the audit ({@link VerkaufService#getNummernAudit()}).
+ * The next block is reserved in the background ({@link #nachschub()}) once a quarter of the
+ * current one is left, so a sale never waits for a reservation.
+ */
+public class BonNummernKreis {
+    public static final String TERMINAL_PROPERTY = "shop.terminal";
+    public static final int DEFAULT_BLOCK_SIZE = Integer.getInteger("shop.bonNr.blockSize", 100);
+
+    /**
+     * Reserves a block for a terminal; null if that is not possible right now.
+     */
+    public interface Quelle {
+        Block reserve(String kasse, int anzahl);
+    }
+
+    private final String kasse;
+    private final int blockSize;
+    private final Quelle quelle;
+    // Guarded by this
+    private Block current;
+    private int next;
+    private Block following;
+    private long vergeben;
+    private long bloecke;
+    private long ohneNummer;
+
+    public BonNummernKreis(String kasse, int blockSize, Quelle quelle) {
+        this.kasse = kasse;
+        this.blockSize = blockSize;
+        this.quelle = quelle;
+    }
+
+    /**
+     * Terminal name from shop.terminal, else the host name.
+     */
+    public static String defaultKasse() {
+        String kasse = System.getProperty(TERMINAL_PROPERTY);
+        if (kasse != null && !kasse.isEmpty()) {
+            return kasse;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "kasse";
+        }
+    }
+
+    public String getKasse() {
+        return kasse;
+    }
+
+    /**
+     * Give the sale the next number of this terminal from memory; never reserves a block.
+     * A sale that already has a number keeps it.
+     * @return false if no number is left, the sale is then numbered when it is booked
+     */
+    public synchronized boolean nummeriere(Bon bon) {
+        if (bon.isNummerReserviert()) {
+            return true;
+        }
+        if (remaining() == 0) {
+            if (following == null) {
+                ohneNummer++;
+                return false;
+            }
+            current = following;
+            following = null;
+            next = current.von;
+        }
+        bon.setBonId(next++);
+        bon.setNummerReserviert(true);
+        vergeben++;
+        return true;
+    }
+
+    /**
+     * Reserve the next block if a quarter or less of the current one is left and none is
+     * waiting. Runs on a background thread; the reservation itself happens outside the lock,
+     * so sales keep being numbered meanwhile.
+     * @return true if a block was reserved
+     */
+    public boolean nachschub() {
+        synchronized (this) {
+            if (following != null || remaining() > blockSize / 4) {
+                return false;
+            }
+        }
+        Block block = quelle.reserve(kasse, blockSize);
+        if (block == null) {
+            return false;
+        }
+        synchronized (this) {
+            following = block;
+            bloecke++;
+        }
+        return true;
+    }
+
+    private int remaining() {
+        return current == null ? 0 : current.bis - next + 1;
+    }
+
+    /**
+     * Current allocator metrics.
+     */
+    public synchronized NummernStats getStats() {
+        NummernStats stats = new NummernStats();
+        stats.kasse = kasse;
+        stats.vergeben = vergeben;
+        stats.bloecke = bloecke;
+        stats.frei = remaining() + (following == null ? 0 : following.bis - following.von + 1);
+        stats.ohneNummer = ohneNummer;
+        return stats;
+    }
+
+    /**
+     * A reserved range of BonIDs, both ends included.
+     */
+    public static class Block {
+        public final String kasse;
+        public final int von;
+        public final int bis;
+
+        public Block(String kasse, int von, int bis) {
+            this.kasse = kasse;
+            this.von = von;
+            this.bis = bis;
+        }
+
+        @Override
+        public String toString() {
+            return "Block " + von + "-" + bis + " (" + kasse + ")";
+        }
+    }
+
+    /**
+     * Allocator metrics data class.
+     */
+    public static class NummernStats {
+        public String kasse;
+        public long vergeben;
+        public long bloecke;
+        public int frei;
+        public long ohneNummer;
+
+        @Override
+        public String toString() {
+            return String.format("Bonnummern %s: %d vergeben aus %d Blöcken, %d frei, %d Mal ohne Nummer",
+                    kasse, vergeben, bloecke, frei, ohneNummer);
+        }
+    }
+
+    /**
+     * Audit of one reserved block data class.
+     */
+    public static class BlockAudit {
+        public String kasse;
+        public int von;
+        public int bis;
+        /** Receipts booked with a number of this block. */
+        public int verwendet;
+        /** Highest booked number, von - 1 if none. */
+        public int hoechste;
+        /** Numbers below the highest one without a receipt. */
+        public int luecken;
+        /** Whether this is the newest block of its terminal, whose rest may still be handed out. */
+        public boolean aktuell;
+
+        @Override
+        public String toString() {
+            int rest = bis - hoechste;
+            return String.format("%s %d-%d: %d verwendet, %d Lücken, %d %s", kasse, von, bis, verwendet, luecken,
+                    rest, aktuell ? "frei" : "nicht vergeben");
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package de.obj;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single writer for the checkout tables. Callers queue their writes, and one thread commits them
+ * in groups: all writes waiting when it becomes free share one transaction, each inside its own
+ * savepoint so a failing write does not take the others down. SQLite allows one writer at a time
+ * anyway; queuing in-process avoids lock contention and "database is locked" errors between
+ * lanes and pays for one commit per group instead of one per receipt.
+ * A full queue blocks callers (back-pressure) up to the enqueue timeout. Once the writer has
+ * stopped, every write still queued or queued later fails with "Commit queue is closed".
+ */
+public class CommitQueue {
+    // SQLITE_BUSY and SQLITE_LOCKED; extended codes carry them in the low byte
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final long BUSY_BACKOFF_MILLIS = 10;
+
+    /**
+     * One write, run inside the group transaction. The result is handed out after the commit.
+     */
+    public interface Write<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    // Queued by close(); the writer commits what is left and exits
+    private static final Pending<Void> STOP = new Pending<>(conn -> null);
+
+    private final ConnectionPool pool;
+    private final int maxGroupSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMillis;
+    private final BlockingQueue<Pending<?>> queue;
+    private final Thread writer;
+    private volatile boolean closed = false;
+    // Set by the writer before it fails what is left in the queue
+    private volatile boolean stopped = false;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong busyRetries = new AtomicLong();
+    private final AtomicLong fullWaits = new AtomicLong();
+    private volatile int maxGroup;
+
+    /**
+     * @param capacity queued writes before callers block
+     * @param maxGroupSize writes per transaction at most
+     * @param lingerMillis how long the writer waits for more writes before committing a group;
+     *                     0 commits whatever is queued right away (lowest latency)
+     */
+    public CommitQueue(ConnectionPool pool, int capacity, int maxGroupSize, long lingerMillis,
+            long enqueueTimeoutMillis) {
+        this.pool = pool;
+        this.maxGroupSize = maxGroupSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "commit-queue");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a write. The future completes with its result once the group is committed, or
+     * exceptionally with the exception that made it fail.
+     */
+    public <T> CompletableFuture<T> submit(Write<T> write) {
+        Pending<T> pending = new Pending<>(write);
+        if (closed) {
+            pending.future.completeExceptionally(new SQLException("Commit queue is closed"));
+            return pending.future;
+        }
+        try {
+            if (!queue.offer(pending)) {
+                fullWaits.incrementAndGet();
+                if (!queue.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    pending.future.completeExceptionally(
+                            new SQLException("Commit queue full for " + enqueueTimeoutMillis + " ms"));
+                    return pending.future;
+                }
+            }
+            // Queued after the writer emptied the queue for the last time: nobody else will complete it
+            if (stopped && queue.remove(pending)) {
+                pending.future.completeExceptionally(new SQLException("Commit queue is closed"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(new SQLException("Interrupted while queuing a write", e));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Commit everything already queued, then stop the writer.
+     */
+    public void close() {
+        closed = true;
+        try {
+            if (queue.offer(STOP, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                writer.join(enqueueTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending<?>> group = new ArrayList<>(maxGroupSize);
+        boolean stopping = false;
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                Pending<?> first = stopping ? queue.poll() : queue.take();
+                if (first == null) {
+                    break;
+                }
+                group.add(first);
+                if (!stopping) {
+                    collect(group);
+                }
+            } catch (InterruptedException e) {
+                System.err.println("Commit queue: writer interrupted");
+                break;
+            }
+            if (group.remove(STOP)) {
+                stopping = true;
+            }
+            if (!group.isEmpty()) {
+                try {
+                    commitGroup(group);
+                } catch (RuntimeException e) {
+                    // Never let the only writer die; its callers would wait forever
+                    System.err.println("Commit queue: group failed: " + e);
+                    failAll(group, e);
+                }
+                group.clear();
+            }
+        }
+        closed = true;
+        stopped = true;
+        // Writes collected before an interrupt, or queued while stopping; their callers must not wait forever
+        queue.drainTo(group);
+        group.remove(STOP);
+        failAll(group, new SQLException("Commit queue is closed"));
+    }
+
+    /**
+     * Add what is queued, waiting up to the linger time for more.
+     */
+    private void collect(List<Pending<?>> group) throws InterruptedException {
+        queue.drainTo(group, maxGroupSize - group.size());
+        long deadline = System.nanoTime() + lingerNanos;
+        while (group.size() < maxGroupSize && !group.contains(STOP)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Pending<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+            queue.drainTo(group, maxGroupSize - group.size());
+        }
+    }
+
+    private void commitGroup(List<Pending<?>> group) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                runGroup(group);
+                break;
+            } catch (SQLException e) {
+                if (isBusy(e) && attempt < MAX_BUSY_RETRIES) {
+                    // Another process holds the write lock; the whole group is retried
+                    busyRetries.incrementAndGet();
+                    if (!sleep(BUSY_BACKOFF_MILLIS << attempt)) {
+                        failAll(group, e);
+                        return;
+                    }
+                    continue;
+                }
+                failAll(group, e);
+                return;
+            }
+        }
+        commits.incrementAndGet();
+        if (group.size() > maxGroup) {
+            maxGroup = group.size();
+        }
+        for (Pending<?> pending : group) {
+            if (pending.failure != null) {
+                failedWrites.incrementAndGet();
+                pending.future.completeExceptionally(pending.failure);
+            } else {
+                writes.incrementAndGet();
+                pending.complete();
+            }
+        }
+    }
+
+    /**
+     * One transaction for the group. Write failures, including runtime exceptions from a write,
+     * roll back to their savepoint and stay in the group; lock and commit failures abort the
+     * whole transaction.
+     */
+    private void runGroup(List<Pending<?>> group) throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending<?> pending : group) {
+                    pending.failure = null;
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        pending.apply(conn);
+                        conn.releaseSavepoint(savepoint);
+                    } catch (SQLException e) {
+                        if (isBusy(e)) {
+                            throw e;
+                        }
+                        conn.rollback(savepoint);
+                        pending.failure = e;
+                    } catch (RuntimeException e) {
+                        conn.rollback(savepoint);
+                        pending.failure = e;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void failAll(List<Pending<?>> group, Exception e) {
+        for (Pending<?> pending : group) {
+            if (pending.future.completeExceptionally(e)) {
+                failedWrites.incrementAndGet();
+            }
+        }
+    }
+
+    static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xff;
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Current queue metrics.
+     */
+    public CommitStats getStats() {
+        CommitStats stats = new CommitStats();
+        stats.queued = queue.size();
+        stats.writes = writes.get();
+        stats.failedWrites = failedWrites.get();
+        stats.commits = commits.get();
+        stats.avgGroupSize = stats.commits == 0 ? 0.0 : (stats.writes + stats.failedWrites) / (double) stats.commits;
+        stats.maxGroupSize = maxGroup;
+        stats.busyRetries = busyRetries.get();
+        stats.fullWaits = fullWaits.get();
+        return stats;
+    }
+
+    /**
+     * A queued write with its future; only touched by the writer thread after queuing.
+     */
+    private static final class Pending<T> {
+        final Write<T> write;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception failure;
+
+        Pending(Write<T> write) {
+            this.write = write;
+        }
+
+        void apply(Connection conn) throws SQLException {
+            result = write.apply(conn);
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Commit queue metrics data class.
+     */
+    public static class CommitStats {
+        public int queued;
+        public long writes;
+        public long failedWrites;
+        public long commits;
+        public double avgGroupSize;
+        public int maxGroupSize;
+        public long busyRetries;
+        public long fullWaits;
+
+        @Override
+        public String toString() {
+            return String.format("Schreibwarteschlange: %d wartend, %d Schreibvorgänge, %d fehlgeschlagen, "
+                    + "%d Commits (avg %.1f / max %d pro Commit), %d Wiederholungen (gesperrt), %d Mal voll",
+                    queued, writes, failedWrites, commits, avgGroupSize, maxGroupSize, busyRetries, fullWaits);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package de.obj;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of long-lived SQLite connections.
+ * Connections handed out by {@link #borrow()} return to the pool on close().
+ * Each physical connection keeps a small LRU cache of prepared statements, so hot queries
+ * are parsed and planned by SQLite only once per connection.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final List<String> initStatements;
+    private final int statementCacheSize;
+    private final BlockingQueue<PooledEntry> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Create a pool. The init statements (usually PRAGMAs) run once per physical connection.
+     * A statement cache size of 0 disables statement caching.
+     */
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis, List<String> initStatements,
+            int statementCacheSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.initStatements = new ArrayList<>(initStatements);
+        this.statementCacheSize = statementCacheSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    /**
+     * Borrow a connection. Blocks until one is free or the borrow timeout expires.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        PooledEntry entry = idle.poll();
+        if (entry == null) {
+            entry = createIfBelowLimit();
+        }
+        if (entry == null) {
+            try {
+                entry = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (entry == null) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Connection pool exhausted after " + borrowTimeoutMillis + " ms");
+            }
+        }
+        recordWait(System.nanoTime() - start);
+        active.incrementAndGet();
+        return wrap(entry);
+    }
+
+    private PooledEntry createIfBelowLimit() throws SQLException {
+        while (true) {
+            int current = created.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        try {
+            Connection conn = DriverManager.getConnection(url);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : initStatements) {
+                    stmt.execute(sql);
+                }
+            }
+            return new PooledEntry(conn);
+        } catch (SQLException e) {
+            created.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        active.decrementAndGet();
+        Connection physical = entry.physical;
+        try {
+            if (physical.isClosed()) {
+                created.decrementAndGet();
+                return;
+            }
+            // Never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            discard(entry);
+            return;
+        }
+        if (closed || !idle.offer(entry)) {
+            discard(entry);
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        created.decrementAndGet();
+        try {
+            // Closing the connection also finalizes its cached statements
+            entry.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private Connection wrap(PooledEntry entry) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new PooledConnectionHandler(entry));
+    }
+
+    /**
+     * Close all idle connections. Borrowed connections are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        PooledEntry entry;
+        while ((entry = idle.poll()) != null) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Snapshot of the pool metrics.
+     */
+    public PoolStats getStats() {
+        PoolStats stats = new PoolStats();
+        stats.maxSize = maxSize;
+        stats.active = active.get();
+        stats.idle = idle.size();
+        stats.borrowCount = borrowCount.get();
+        stats.timeouts = timeouts.get();
+        stats.avgWaitMillis = stats.borrowCount == 0 ? 0.0
+                : totalWaitNanos.get() / (double) stats.borrowCount / 1_000_000.0;
+        stats.maxWaitMillis = maxWaitNanos.get() / 1_000_000.0;
+        stats.statementCacheHits = statementHits.get();
+        stats.statementCacheMisses = statementMisses.get();
+        return stats;
+    }
+
+    /**
+     * A physical connection together with its statement cache.
+     */
+    private final class PooledEntry {
+        final Connection physical;
+        // Access-ordered, so iteration starts at the least recently used statement
+        final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            if (statementCacheSize <= 0) {
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementHits.incrementAndGet();
+            } else if (cached != null) {
+                // Same SQL prepared twice at once; hand out a plain, uncached statement
+                statementMisses.incrementAndGet();
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            } else {
+                statementMisses.incrementAndGet();
+                cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+                statements.put(key, cached);
+                evictIfFull();
+            }
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        private void evictIfFull() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > statementCacheSize && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (!eldest.inUse) {
+                    it.remove();
+                    eldest.finish();
+                }
+            }
+        }
+    }
+
+    /**
+     * A prepared statement that stays open; close() only resets it for the next caller.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+        boolean inUse;
+        private ResultSet lastResult;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                reset();
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return !inUse;
+            }
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof ResultSet && "executeQuery".equals(name)) {
+                    lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void reset() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (lastResult != null) {
+                lastResult.close();
+                lastResult = null;
+            }
+            physical.clearParameters();
+            physical.clearBatch();
+        }
+
+        void finish() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forwards everything to the physical connection except close(), which returns it to the pool,
+     * and prepareStatement(sql), which goes through the statement cache.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean released = false;
+
+        PooledConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!released) {
+                    released = true;
+                    release(entry);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return released || entry.physical.isClosed();
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if ("prepareStatement".equals(name) && args.length == 1) {
+                return entry.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+            }
+            if ("prepareStatement".equals(name) && args.length == 2 && args[1] instanceof Integer) {
+                return entry.prepare((String) args[0], (Integer) args[1]);
+            }
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Pool metrics data class.
+     */
+    public static class PoolStats {
+        public int maxSize;
+        public int active;
+        public int idle;
+        public long borrowCount;
+        public long timeouts;
+        public double avgWaitMillis;
+        public double maxWaitMillis;
+        public long statementCacheHits;
+        public long statementCacheMisses;
+
+        @Override
+        public String toString() {
+            return String.format("Verbindungspool: %d aktiv, %d frei (max %d), %d Ausleihen, "
+                    + "Wartezeit avg %.3f ms / max %.3f ms, %d Timeouts, Statement-Cache %d Treffer / %d Fehlgriffe",
+                    active, idle, maxSize, borrowCount, avgWaitMillis, maxWaitMillis, timeouts,
+                    statementCacheHits, statementCacheMisses);
+        }
+    }
+}
@@ -1,181 +1,151 @@
 package de.obj;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
 /**
  * Database utility class for managing SQLite operations.
  */
 public class DatabaseManager {
-    private static final String DB_URL = "jdbc:sqlite:shop.db";
+    // Overridable so tests and benchmarks can run against a throwaway database
+    private static final String DB_URL = System.getProperty("shop.db.url", "jdbc:sqlite:shop.db");
+    private static final int POOL_SIZE = 4;
+    private static final int REPORTING_POOL_SIZE = 2;
+    private static final long BORROW_TIMEOUT_MILLIS = 5000;
+    // Prepared statements kept per pooled connection (0 disables the cache)
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("shop.db.statementCache", 64);
+    // Applied once per physical connection when the pool opens it
+    private static final List<String> CONNECTION_PRAGMAS = Arrays.asList(
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = NORMAL",
+            "PRAGMA busy_timeout = 5000",
+            "PRAGMA temp_store = MEMORY",
+            "PRAGMA cache_size = -8000");
+    // Reporting connections never write, so they leave the journal mode alone
+    private static final List<String> REPORTING_PRAGMAS = Arrays.asList(
+            "PRAGMA busy_timeout = 5000",
+            "PRAGMA temp_store = MEMORY",
+            "PRAGMA cache_size = -8000");
+    // Single-writer queue for sales and cancellations: queued writes before callers block, writes per
+    // transaction, and how long the writer waits for more before committing (0 = commit what is queued)
+    private static final int COMMIT_QUEUE_CAPACITY = Integer.getInteger("shop.db.commitQueue", 256);
+    private static final int COMMIT_GROUP_SIZE = Integer.getInteger("shop.db.commitGroup", 64);
+    private static final long COMMIT_LINGER_MILLIS = Long.getLong("shop.db.commitLingerMillis", 0L);
+    // BCrypt work factor for PIN hashes; each step doubles the verification time
+    static final int PIN_HASH_ROUNDS = Integer.getInteger("shop.pin.bcryptRounds", 10);
     private static DatabaseManager instance;
+    private final ConnectionPool pool;
+    private final ConnectionPool reportingPool;
+    private final CommitQueue commitQueue;
     
     private DatabaseManager() {
+        pool = new ConnectionPool(DB_URL, POOL_SIZE, BORROW_TIMEOUT_MILLIS, CONNECTION_PRAGMAS,
+                STATEMENT_CACHE_SIZE);
         initializeDatabase();
+        // Opened read-only (SQLITE_OPEN_READONLY); the file must already exist and be in WAL mode
+        reportingPool = new ConnectionPool(readOnlyUrl(DB_URL), REPORTING_POOL_SIZE, BORROW_TIMEOUT_MILLIS,
+                REPORTING_PRAGMAS, STATEMENT_CACHE_SIZE);
+        commitQueue = new CommitQueue(pool, COMMIT_QUEUE_CAPACITY, COMMIT_GROUP_SIZE, COMMIT_LINGER_MILLIS,
+                BORROW_TIMEOUT_MILLIS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
     }
     
-    public static DatabaseManager getInstance() {
+    public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
             instance = new DatabaseManager();
         }
         return instance;
     }
     
+    /**
+     * Borrow a pooled connection. Closing it returns it to the pool.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return pool.borrow();
     }
     
     /**
-     * Initialize database with required tables and updates.
+     * Borrow a read-only connection for reports and lookups.
+     * In WAL mode each query reads a committed snapshot and neither blocks nor waits for checkout writes.
      */
-    private void initializeDatabase() {
-        try (Connection conn = getConnection()) {
-            // Add PIN and Role columns to Verkäufer table if they don't exist
-            addColumnIfNotExists(conn, "Verkäufer", "PIN", "VARCHAR(255)");
-            addColumnIfNotExists(conn, "Verkäufer", "Rolle", "VARCHAR(20) DEFAULT 'VERKAUFER'");
-            
-            // Add barcode and weight flag to Produkt table
-            addColumnIfNotExists(conn, "Produkt", "Barcode", "VARCHAR(50)");
-            addColumnIfNotExists(conn, "Produkt", "IsWeightBased", "BOOLEAN DEFAULT 0");
-            addColumnIfNotExists(conn, "Produkt", "MwSt", "DECIMAL(5,4) DEFAULT 0.19");
-            
-            // Create sales receipts table
-            createTableIfNotExists(conn, "Kassenbons", 
-                "BonID INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "VerkauferID INTEGER, " +
-                "Datum TEXT, " +
-                "Gesamtbetrag DECIMAL(10,2), " +
-                "IsCancelled BOOLEAN DEFAULT 0, " +
-                "FOREIGN KEY (VerkauferID) REFERENCES Verkäufer(VID)");
-            
-            // Create receipt items table
-            createTableIfNotExists(conn, "BonPositionen",
-                "PositionID INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "BonID INTEGER, " +
-                "ProduktID INTEGER, " +
-                "Menge DECIMAL(10,3), " +
-                "Einzelpreis DECIMAL(10,2), " +
-                "Gesamtpreis DECIMAL(10,2), " +
-                "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), " +
-                "FOREIGN KEY (ProduktID) REFERENCES Produkt(PID)");
-                
-            // Create cancellations log table
-            createTableIfNotExists(conn, "Stornierungen",
-                "StornierungID INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "BonID INTEGER, " +
-                "StorniertVon INTEGER, " +
-                "StorniertAm TEXT, " +
-                "Grund TEXT, " +
-                "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), " +
-                "FOREIGN KEY (StorniertVon) REFERENCES Verkäufer(VID)");
-                
-            // Initialize default users with PINs if not exist
-            initializeDefaultUsers(conn);
-            
-        } catch (SQLException e) {
-            System.err.println("Database initialization error: " + e.getMessage());
-        }
+    public Connection getReportingConnection() throws SQLException {
+        return reportingPool.borrow();
     }
     
-    private void addColumnIfNotExists(Connection conn, String table, String column, String definition) {
-        try {
-            String checkSql = "PRAGMA table_info(" + table + ")";
-            try (PreparedStatement stmt = conn.prepareStatement(checkSql);
-                 ResultSet rs = stmt.executeQuery()) {
-                boolean columnExists = false;
-                while (rs.next()) {
-                    if (column.equalsIgnoreCase(rs.getString("name"))) {
-                        columnExists = true;
-                        break;
-                    }
-                }
-                if (!columnExists) {
-                    String alterSql = "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition;
-                    try (Statement alterStmt = conn.createStatement()) {
-                        alterStmt.execute(alterSql);
-                        System.out.println("Added column " + column + " to table " + table);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error adding column " + column + " to table " + table + ": " + e.getMessage());
-        }
+    /**
+     * Queue through which all sales and cancellations are committed.
+     */
+    public CommitQueue getCommitQueue() {
+        return commitQueue;
     }
     
-    private void createTableIfNotExists(Connection conn, String tableName, String definition) {
-        try {
-            String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" + definition + ")";
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(sql);
-                System.out.println("Table " + tableName + " created or already exists");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error creating table " + tableName + ": " + e.getMessage());
-        }
+    /**
+     * Current connection pool metrics.
+     */
+    public ConnectionPool.PoolStats getPoolStats() {
+        return pool.getStats();
     }
     
-    private void initializeDefaultUsers(Connection conn) {
-        try {
-            // Check if users already have PINs set
-            String checkSql = "SELECT COUNT(*) FROM Verkäufer WHERE PIN IS NOT NULL AND PIN != ''";
-            try (PreparedStatement stmt = conn.prepareStatement(checkSql);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next() && rs.getInt(1) == 0) {
-                    // Set default PINs and roles
-                    String updateSql = "UPDATE Verkäufer SET PIN = ?, Rolle = ? WHERE VID = ?";
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                        // Maria Schmidt - Filialleiter
-                        updateStmt.setString(1, hashPin("1234"));
-                        updateStmt.setString(2, "FILIALLEITER");
-                        updateStmt.setInt(3, 1);
-                        updateStmt.executeUpdate();
-                        
-                        // Johannes Müller - Verkäufer
-                        updateStmt.setString(1, hashPin("5678"));
-                        updateStmt.setString(2, "VERKAUFER");
-                        updateStmt.setInt(3, 2);
-                        updateStmt.executeUpdate();
-                        
-                        // Emma Fischer - Verkäufer
-                        updateStmt.setString(1, hashPin("9999"));
-                        updateStmt.setString(2, "VERKAUFER");
-                        updateStmt.setInt(3, 3);
-                        updateStmt.executeUpdate();
-                        
-                        System.out.println("Default user PINs initialized");
-                        System.out.println("Maria Schmidt (FL): PIN 1234");
-                        System.out.println("Johannes Müller (V): PIN 5678");
-                        System.out.println("Emma Fischer (V): PIN 9999");
-                    }
-                }
-            }
+    /**
+     * Current metrics of the read-only reporting pool.
+     */
+    public ConnectionPool.PoolStats getReportingPoolStats() {
+        return reportingPool.getStats();
+    }
+    
+    /**
+     * Close all pooled connections, e.g. when the application exits.
+     */
+    public void shutdown() {
+        commitQueue.close();
+        reportingPool.close();
+        pool.close();
+    }
+    
+    static String readOnlyUrl(String url) {
+        // sqlite-jdbc reads open flags from the URL; 1 = SQLITE_OPEN_READONLY
+        return url + (url.contains("?") ? "&" : "?") + "open_mode=1";
+    }
+    
+    /**
+     * Bring the schema up to date. A current database only costs one PRAGMA user_version read.
+     */
+    private void initializeDatabase() {
+        try (Connection conn = getConnection()) {
+            new SchemaMigrations().migrate(conn);
         } catch (SQLException e) {
-            System.err.println("Error initializing default users: " + e.getMessage());
+            System.err.println("Database initialization error: " + e.getMessage());
         }
     }
     
     /**
-     * Simple PIN hashing using basic encryption for demo purposes.
+     * BCrypt hash of a PIN with a fresh per-user salt.
      */
-    private String hashPin(String pin) {
-        // In a real system, use BCrypt or similar
-        // For demo purposes, we'll use a simple transformation
-        return "hash_" + pin + "_salt";
+    static String hashPin(String pin) {
+        return BCrypt.hashpw(pin, BCrypt.gensalt(PIN_HASH_ROUNDS));
     }
     
+    /**
+     * Check a PIN against its stored BCrypt hash. Deliberately slow; keep it off the UI thread.
+     */
     public boolean verifyPin(String pin, String hashedPin) {
-        return hashPin(pin).equals(hashedPin);
+        if (pin == null || hashedPin == null || !hashedPin.startsWith("$2")) {
+            return false;
+        }
+        try {
+            return BCrypt.checkpw(pin, hashedPin);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid PIN hash: " + e.getMessage());
+            return false;
+        }
     }
     
     public String getCurrentTimestamp() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return Zeitstempel.format(LocalDateTime.now());
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package de.obj;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Printer stand-in that appends each receipt to a file, named pipe or device node
+ * (e.g. /dev/usb/lp0). The stream is reopened after a failed write.
+ */
+public class FilePrinterDevice implements PrinterDevice {
+    private final File target;
+    private OutputStream out;
+
+    public FilePrinterDevice(File target) {
+        this.target = target;
+    }
+
+    @Override
+    public synchronized void print(byte[] data, int length) throws IOException {
+        try {
+            if (out == null) {
+                out = new FileOutputStream(target, true);
+            }
+            out.write(data, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Error closing printer " + target + ": " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return target.getPath();
+    }
+}
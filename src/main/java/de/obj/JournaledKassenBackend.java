@@ -0,0 +1,310 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Backend that writes each sale to the lane's {@link BonJournal} before booking it through
+ * another backend. A sale is safe as soon as it is journaled; if booking takes longer than the
+ * confirm time (database locked, server down), the lane carries on and the journal books it later.
+ *
+ * It also keeps the lane selling while the database or server is unreachable. A background
+ * thread checks availability; while it is down, lookups and logins are answered from the lane's
+ * {@link KassenSnapshot}, sales are only journaled, and everything else fails right away
+ * instead of running into timeouts. The journal books the
+ * queued sales in order once the database is back.
+ *
+ * Sales are numbered from the terminal's reserved {@link BonNummernKreis} block before they are
+ * journaled, so saveSale returns the final BonID at journal speed and booking happens later.
+ * The status thread reserves the next block in time.
+ * Only when the lane runs out of numbers offline does a receipt get a provisional number.
+ */
+public class JournaledKassenBackend implements KassenBackend {
+    private static final int JOURNAL_BYTES = Integer.getInteger("shop.journal.sizeMB", 16) * 1024 * 1024;
+    // Without flushing each entry, a sale survives a crash of the lane but not a power loss
+    private static final boolean FORCE_EACH_SALE = !"false".equals(System.getProperty("shop.journal.force"));
+    private static final long CONFIRM_MILLIS = Long.getLong("shop.journal.confirmMillis", 1000L);
+    private static final long PROBE_MILLIS = Long.getLong("shop.offline.probeMillis", 2000L);
+
+    private final KassenBackend delegate;
+    private final BonJournal journal;
+    private final KassenSnapshot snapshot;
+    private final BonNummernKreis nummern;
+    private final Thread prober;
+    private volatile boolean online;
+    private volatile ProduktSuchindex snapshotSource;
+    // VID -> PIN of logins made while offline; repeated online so a store server opens a session
+    // for each seller and the journal books their sales on them
+    private final Map<Integer, String> offlineLogins = new ConcurrentHashMap<>();
+    // Sellers who logged out while sales were still journaled; logged out at the backend once they are booked
+    private final Map<Integer, User> pendingLogouts = new ConcurrentHashMap<>();
+
+    public JournaledKassenBackend(KassenBackend delegate, File journalFile, File snapshotFile) throws IOException {
+        this.delegate = delegate;
+        this.snapshot = KassenSnapshot.load(snapshotFile);
+        this.nummern = new BonNummernKreis(BonNummernKreis.defaultKasse(), BonNummernKreis.DEFAULT_BLOCK_SIZE,
+                delegate::reserveBonNummern);
+        this.online = delegate.isAvailable();
+        this.journal = new BonJournal(journalFile, JOURNAL_BYTES, FORCE_EACH_SALE, delegate::saveSale,
+                delegate::canSave);
+        this.prober = new Thread(this::probe, "kassen-status");
+        this.prober.setDaemon(true);
+        this.prober.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+    }
+
+    private void probe() {
+        // Receipt numbers are reserved here, never at checkout
+        if (online) {
+            nummern.nachschub();
+        }
+        while (true) {
+            try {
+                Thread.sleep(PROBE_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean available = delegate.isAvailable();
+            if (available && !online) {
+                System.out.println("Datenbank wieder erreichbar, " + journal.getPendingCount()
+                        + " Verkäufe werden nachgebucht");
+                reconnect();
+            } else if (!available && online) {
+                System.err.println("Datenbank nicht erreichbar, Kasse arbeitet offline");
+            }
+            online = available;
+            if (available) {
+                nummern.nachschub();
+                if (journal.getPendingCount() == 0) {
+                    finishLogouts();
+                }
+            }
+        }
+    }
+
+    private void reconnect() {
+        for (Map.Entry<Integer, String> login : offlineLogins.entrySet()) {
+            if (delegate.authenticate(login.getKey(), login.getValue()) != null) {
+                offlineLogins.remove(login.getKey(), login.getValue());
+            }
+        }
+    }
+
+    private void finishLogouts() {
+        for (User user : pendingLogouts.values()) {
+            if (pendingLogouts.remove(user.getVid(), user)) {
+                delegate.logout(user);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return online;
+    }
+
+    @Override
+    public LaneStatus getLaneStatus() {
+        return new LaneStatus(online, journal.getPendingCount(), snapshot.getSavedAt(), journal.getDeadLetterCount());
+    }
+
+    /**
+     * Number and journal the sale. With a reserved number it returns that BonID right away and
+     * the journal books the sale in the background. Without one it waits up to the confirm time
+     * for the BonID and returns {@link #SALE_PENDING} if the sale is journaled but not booked yet;
+     * while offline or while earlier sales are still being booked, it returns that right away.
+     */
+    @Override
+    public int saveSale(Bon bon) {
+        boolean numbered = nummern.nummeriere(bon);
+        CompletableFuture<Integer> booked = journal.append(bon);
+        if (booked == null) {
+            System.err.println("Sale journal full, saving directly");
+            return delegate.saveSale(bon);
+        }
+        if (numbered) {
+            return bon.getBonId();
+        }
+        // This sale is booked after the ones ahead of it; waiting would only hold up the lane
+        if (!online || journal.getPendingCount() > 1) {
+            return SALE_PENDING;
+        }
+        try {
+            return booked.get(CONFIRM_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return SALE_PENDING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SALE_PENDING;
+        } catch (ExecutionException e) {
+            // The journal retries until the sale is booked
+            return SALE_PENDING;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> whenSaved(Bon bon) {
+        CompletableFuture<Integer> pending = journal.pending(bon.getJournalId());
+        return pending != null ? pending : CompletableFuture.completedFuture(bon.getBonId());
+    }
+
+    public BonJournal getJournal() {
+        return journal;
+    }
+
+    public KassenSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public BonNummernKreis getNummernKreis() {
+        return nummern;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        if (online) {
+            List<User> users = delegate.getAllUsers();
+            if (!users.isEmpty()) {
+                if (snapshot.setUsers(users)) {
+                    snapshot.save();
+                }
+                return users;
+            }
+        }
+        return new ArrayList<>(snapshot.getUsers());
+    }
+
+    @Override
+    public User authenticate(int vid, String pin) {
+        if (online) {
+            User user = delegate.authenticate(vid, pin);
+            if (user != null) {
+                pendingLogouts.remove(vid);
+                snapshot.rememberPin(vid, pin);
+                snapshot.save();
+            }
+            return user;
+        }
+        User user = snapshot.authenticate(vid, pin);
+        if (user != null) {
+            pendingLogouts.remove(vid);
+            offlineLogins.put(vid, pin);
+        }
+        return user;
+    }
+
+    /**
+     * The seller's journaled sales still need their session, so a store server session ends
+     * only once the journal has booked everything.
+     */
+    @Override
+    public void logout(User user) {
+        if (online && journal.getPendingCount() == 0) {
+            delegate.logout(user);
+        } else {
+            pendingLogouts.put(user.getVid(), user);
+        }
+    }
+
+    @Override
+    public List<Produkt> getAllProducts() {
+        return online && refreshSnapshot() ? delegate.getAllProducts() : snapshot.getProducts();
+    }
+
+    @Override
+    public ProduktSuchindex getSuchindex() {
+        return online && refreshSnapshot() ? delegate.getSuchindex() : snapshot.getKatalog().getSuchindex();
+    }
+
+    /**
+     * Save the catalog to the snapshot if it changed since the last save; false if the
+     * wrapped backend has no catalog to offer.
+     */
+    private boolean refreshSnapshot() {
+        ProduktSuchindex index = delegate.getSuchindex();
+        if (index.size() == 0) {
+            return false;
+        }
+        if (index != snapshotSource) {
+            snapshotSource = index;
+            snapshot.setProducts(delegate.getAllProducts());
+            snapshot.save();
+        }
+        return true;
+    }
+
+    @Override
+    public Produkt findByBarcode(String barcode) {
+        if (online) {
+            Produkt product = delegate.findByBarcode(barcode);
+            if (product != null) {
+                return product;
+            }
+        }
+        return barcode == null || barcode.isEmpty() ? null : snapshot.getKatalog().findByBarcode(barcode);
+    }
+
+    @Override
+    public Produkt findCachedByBarcode(String barcode) {
+        Produkt product = delegate.findCachedByBarcode(barcode);
+        return product != null || barcode == null ? product : snapshot.getKatalog().peekByBarcode(barcode);
+    }
+
+    @Override
+    public boolean saveProduct(Produkt product, User changedBy) {
+        if (!online) {
+            System.err.println("Offline: product not saved");
+            return false;
+        }
+        return delegate.saveProduct(product, changedBy);
+    }
+
+    @Override
+    public BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+        return online ? delegate.reserveBonNummern(kasse, anzahl) : null;
+    }
+
+    @Override
+    public boolean cancelSale(int bonId, User cancelledBy, String reason) {
+        if (!online) {
+            System.err.println("Offline: sale " + bonId + " not cancelled");
+            return false;
+        }
+        return delegate.cancelSale(bonId, cancelledBy, reason);
+    }
+
+    @Override
+    public Bon getReceiptById(int bonId) {
+        return online ? delegate.getReceiptById(bonId) : null;
+    }
+
+    @Override
+    public VerkaufService.SalesStatistics getSalesStatistics(String fromDate, String toDate) {
+        return online ? delegate.getSalesStatistics(fromDate, toDate) : new VerkaufService.SalesStatistics();
+    }
+
+    @Override
+    public Map<Integer, VerkaufService.SalesStatistics> getSalesStatisticsByHour(String fromDate, String toDate) {
+        return online ? delegate.getSalesStatisticsByHour(fromDate, toDate) : new LinkedHashMap<>();
+    }
+
+    @Override
+    public Map<Integer, Long> getRevenueByCategory(String fromDate, String toDate) {
+        return online ? delegate.getRevenueByCategory(fromDate, toDate) : new LinkedHashMap<>();
+    }
+
+    @Override
+    public String getSystemStatus() {
+        String lane = getLaneStatus() + "\n" + journal.getStats() + "\n" + nummern.getStats();
+        return online ? delegate.getSystemStatus() + "\n" + lane : lane;
+    }
+}
@@ -0,0 +1,180 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations a checkout lane needs from the store. Either the lane opens the database itself
+ * ({@link LocalKassenBackend}) or it talks to a store server that owns the database
+ * ({@link RemoteKassenBackend}, see {@link KassenServer}).
+ * Errors are reported on System.err; lookups then return null, saves -1 or false.
+ */
+public interface KassenBackend {
+    String SERVER_PROPERTY = "shop.server";
+    String JOURNAL_PROPERTY = "shop.journal";
+    String SNAPSHOT_PROPERTY = "shop.snapshot";
+    /** Returned by saveSale when the sale is safe in the lane journal but has no BonID yet. */
+    int SALE_PENDING = 0;
+
+    /**
+     * Whether the database (or the store server) answers right now. May take up to a network timeout.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Online/offline state of the lane for the status display, or null if the lane has no offline
+     * mode. Never waits for the database or the network.
+     */
+    default LaneStatus getLaneStatus() {
+        return null;
+    }
+
+    List<User> getAllUsers();
+
+    /**
+     * Authenticate the selected user with their PIN; null if the PIN is wrong.
+     */
+    User authenticate(int vid, String pin);
+
+    List<Produkt> getAllProducts();
+
+    ProduktSuchindex getSuchindex();
+
+    Produkt findByBarcode(String barcode);
+
+    /**
+     * Catalog lookup that never waits for the database or the network; null if not cached.
+     */
+    Produkt findCachedByBarcode(String barcode);
+
+    /**
+     * Create or update a product on behalf of a Filialleiter.
+     */
+    boolean saveProduct(Produkt product, User changedBy);
+
+    /**
+     * Save a completed sale; returns its BonID, -1 on failure or {@link #SALE_PENDING}.
+     * A lane with reserved receipt numbers may return the BonID before the sale is booked.
+     */
+    int saveSale(Bon bon);
+
+    /**
+     * The user logged out at this lane; a store server ends their session.
+     */
+    default void logout(User user) {
+    }
+
+    /**
+     * Whether the sale could be saved right now; the lane journal does not count failures while
+     * it cannot (database unreachable, or no session for the sale's seller on a store server).
+     */
+    default boolean canSave(Bon bon) {
+        return isAvailable();
+    }
+
+    /**
+     * Completes with the BonID once the sale is booked; right away unless the lane books it in the background.
+     */
+    default CompletableFuture<Integer> whenSaved(Bon bon) {
+        return CompletableFuture.completedFuture(bon.getBonId());
+    }
+
+    /**
+     * Reserve a block of receipt numbers for a terminal; null if the backend cannot.
+     */
+    default BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+        return null;
+    }
+
+    boolean cancelSale(int bonId, User cancelledBy, String reason);
+
+    Bon getReceiptById(int bonId);
+
+    VerkaufService.SalesStatistics getSalesStatistics(String fromDate, String toDate);
+
+    Map<Integer, VerkaufService.SalesStatistics> getSalesStatisticsByHour(String fromDate, String toDate);
+
+    /**
+     * Gross revenue in cents per product category (KID) for a date range, from the daily rollup.
+     */
+    Map<Integer, Long> getRevenueByCategory(String fromDate, String toDate);
+
+    /**
+     * Pool and catalog metrics for the statistics screen, one per line.
+     */
+    String getSystemStatus();
+
+    /**
+     * Backend selected by "--remote host:port" or the shop.server property; the local database otherwise.
+     * Sales go through the lane journal (shop.journal, default kasse.journal; empty to switch it off),
+     * which also enables the offline mode with its snapshot (shop.snapshot, default kasse.snapshot).
+     */
+    static KassenBackend create(String[] args) {
+        String server = System.getProperty(SERVER_PROPERTY);
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("--remote".equals(args[i])) {
+                server = args[i + 1];
+            }
+        }
+        KassenBackend backend = server != null && !server.isEmpty()
+                ? new RemoteKassenBackend(server) : new LocalKassenBackend();
+        String journal = System.getProperty(JOURNAL_PROPERTY, "kasse.journal");
+        if (journal.isEmpty()) {
+            return backend;
+        }
+        try {
+            return new JournaledKassenBackend(backend, new File(journal),
+                    new File(System.getProperty(SNAPSHOT_PROPERTY, "kasse.snapshot")));
+        } catch (IOException e) {
+            System.err.println("Sale journal could not be opened, saving directly: " + e.getMessage());
+            return backend;
+        }
+    }
+
+    /**
+     * Lane status data class.
+     */
+    class LaneStatus {
+        public final boolean online;
+        /** Sales journaled but not booked yet. */
+        public final int pendingSales;
+        /** When the offline snapshot was last saved (epoch millis), 0 if never. */
+        public final long snapshotSavedAt;
+        /** Sales the database kept rejecting, moved to the journal's dead-letter file. */
+        public final long deadLetters;
+
+        public LaneStatus(boolean online, int pendingSales, long snapshotSavedAt, long deadLetters) {
+            this.online = online;
+            this.pendingSales = pendingSales;
+            this.snapshotSavedAt = snapshotSavedAt;
+            this.deadLetters = deadLetters;
+        }
+
+        /**
+         * Whether the lane needs attention: offline, sales waiting or sales not bookable.
+         */
+        public boolean isWarning() {
+            return !online || pendingSales > 0 || deadLetters > 0;
+        }
+
+        @Override
+        public String toString() {
+            String text;
+            if (online) {
+                text = pendingSales == 0 ? "Online" : "Online - " + pendingSales + " Verkäufe werden nachgebucht";
+            } else {
+                String stand = snapshotSavedAt == 0 ? "kein Katalog"
+                        : "Katalog vom " + new SimpleDateFormat("dd.MM. HH:mm").format(new Date(snapshotSavedAt));
+                text = "OFFLINE - " + pendingSales + " Verkäufe offen (" + stand + ")";
+            }
+            return deadLetters == 0 ? text : text + " - " + deadLetters + " Verkäufe nicht buchbar";
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package de.obj;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the objects exchanged between lanes and the store server.
+ * Each request is an HTTP POST to /api/&lt;operation&gt; whose body holds the arguments in this
+ * encoding; the response body holds the result. Amounts travel as cents, times as epoch millis.
+ * PIN hashes never leave the server.
+ */
+public final class KassenProtokoll {
+    public static final String PATH = "/api/";
+    public static final String CONTENT_TYPE = "application/octet-stream";
+    /** Session token handed out by a successful login; writes are done on behalf of its user. */
+    public static final String SESSION_HEADER = "X-Kassen-Session";
+
+    // Operations, used as the last path segment
+    public static final String USERS = "users";
+    public static final String AUTHENTICATE = "authenticate";
+    /** Ends the session sent in the header. */
+    public static final String LOGOUT = "logout";
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_BY_BARCODE = "product-by-barcode";
+    public static final String SAVE_PRODUCT = "save-product";
+    public static final String SAVE_SALE = "save-sale";
+    public static final String CANCEL_SALE = "cancel-sale";
+    public static final String RECEIPT = "receipt";
+    public static final String STATISTICS = "statistics";
+    public static final String STATISTICS_BY_HOUR = "statistics-by-hour";
+    public static final String REVENUE_BY_CATEGORY = "revenue-by-category";
+    public static final String STATUS = "status";
+    public static final String RESERVE_NUMBERS = "reserve-numbers";
+    /** No arguments; answers whether the server's database is available. */
+    public static final String PING = "ping";
+
+    private KassenProtokoll() {}
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeBoolean(user != null);
+        if (user != null) {
+            out.writeInt(user.getVid());
+            writeString(out, user.getVorname());
+            writeString(out, user.getNachname());
+            out.writeBoolean(user.isFilialleiter());
+        }
+    }
+
+    public static User readUser(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        User user = new User();
+        user.setVid(in.readInt());
+        user.setVorname(readString(in));
+        user.setNachname(readString(in));
+        user.setRolle(in.readBoolean() ? User.Role.FILIALLEITER : User.Role.VERKAUFER);
+        return user;
+    }
+
+    public static void writeUsers(DataOutput out, List<User> users) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users) {
+            writeUser(out, user);
+        }
+    }
+
+    public static List<User> readUsers(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<User> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(readUser(in));
+        }
+        return users;
+    }
+
+    public static void writeProdukt(DataOutput out, Produkt produkt) throws IOException {
+        out.writeBoolean(produkt != null);
+        if (produkt != null) {
+            out.writeInt(produkt.getPid());
+            writeString(out, produkt.getBezeichnung());
+            out.writeLong(produkt.getPreisCents());
+            out.writeLong(produkt.getBruttoPreisCents());
+            out.writeDouble(produkt.getMwst());
+            out.writeInt(produkt.getKid());
+            writeString(out, produkt.getBarcode());
+            out.writeBoolean(produkt.isWeightBased());
+        }
+    }
+
+    public static Produkt readProdukt(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int pid = in.readInt();
+        String bezeichnung = readString(in);
+        long preisCents = in.readLong();
+        long bruttoPreisCents = in.readLong();
+        double mwst = in.readDouble();
+        int kid = in.readInt();
+        String barcode = readString(in);
+        boolean weightBased = in.readBoolean();
+        Produkt produkt = new Produkt(pid, bezeichnung, 0.0, mwst, kid, barcode, weightBased);
+        produkt.setPreisCents(preisCents);
+        // Historical receipt prices are fixed gross prices
+        if (produkt.getBruttoPreisCents() != bruttoPreisCents) {
+            produkt.setBruttoPreisCents(bruttoPreisCents);
+        }
+        return produkt;
+    }
+
+    public static void writeProdukte(DataOutput out, List<Produkt> produkte) throws IOException {
+        out.writeInt(produkte.size());
+        for (Produkt produkt : produkte) {
+            writeProdukt(out, produkt);
+        }
+    }
+
+    public static List<Produkt> readProdukte(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<Produkt> produkte = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            produkte.add(readProdukt(in));
+        }
+        return produkte;
+    }
+
+    public static void writeBon(DataOutput out, Bon bon) throws IOException {
+        out.writeBoolean(bon != null);
+        if (bon == null) {
+            return;
+        }
+        out.writeInt(bon.getBonId());
+        out.writeLong(Zeitstempel.toEpochMillis(bon.getDatum()));
+        writeUser(out, bon.getVerkaufer());
+        out.writeBoolean(bon.isCancelled());
+        writeString(out, bon.getJournalId());
+        out.writeBoolean(bon.isNummerReserviert());
+        List<Artikel> positionen = bon.getPositionen();
+        out.writeInt(positionen.size());
+        for (Artikel artikel : positionen) {
+            writeProdukt(out, artikel.getProdukt());
+            out.writeDouble(artikel.getMenge());
+        }
+    }
+
+    public static Bon readBon(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Bon bon = new Bon();
+        bon.setBonId(in.readInt());
+        bon.setDatum(Zeitstempel.fromEpochMillis(in.readLong()));
+        bon.setVerkaufer(readUser(in));
+        bon.setCancelled(in.readBoolean());
+        bon.setJournalId(readString(in));
+        bon.setNummerReserviert(in.readBoolean());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Produkt produkt = readProdukt(in);
+            bon.addArtikel(new Artikel(produkt, in.readDouble()));
+        }
+        return bon;
+    }
+
+    public static void writeBlock(DataOutput out, BonNummernKreis.Block block) throws IOException {
+        out.writeBoolean(block != null);
+        if (block != null) {
+            writeString(out, block.kasse);
+            out.writeInt(block.von);
+            out.writeInt(block.bis);
+        }
+    }
+
+    public static BonNummernKreis.Block readBlock(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String kasse = readString(in);
+        int von = in.readInt();
+        return new BonNummernKreis.Block(kasse, von, in.readInt());
+    }
+
+    public static void writeStatistics(DataOutput out, VerkaufService.SalesStatistics stats) throws IOException {
+        out.writeBoolean(stats != null);
+        if (stats != null) {
+            out.writeInt(stats.totalSales);
+            out.writeLong(stats.totalAmountCents);
+            writeString(out, stats.fromDate);
+            writeString(out, stats.toDate);
+        }
+    }
+
+    public static VerkaufService.SalesStatistics readStatistics(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        VerkaufService.SalesStatistics stats = new VerkaufService.SalesStatistics();
+        stats.setTotals(in.readInt(), in.readLong());
+        stats.fromDate = readString(in);
+        stats.toDate = readString(in);
+        return stats;
+    }
+
+    public static void writeStatisticsMap(DataOutput out, Map<Integer, VerkaufService.SalesStatistics> map)
+            throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<Integer, VerkaufService.SalesStatistics> entry : map.entrySet()) {
+            out.writeInt(entry.getKey());
+            writeStatistics(out, entry.getValue());
+        }
+    }
+
+    public static Map<Integer, VerkaufService.SalesStatistics> readStatisticsMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<Integer, VerkaufService.SalesStatistics> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            int key = in.readInt();
+            map.put(key, readStatistics(in));
+        }
+        return map;
+    }
+
+    public static void writeCentsMap(DataOutput out, Map<Integer, Long> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<Integer, Long> entry : map.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    public static Map<Integer, Long> readCentsMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<Integer, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            int key = in.readInt();
+            map.put(key, in.readLong());
+        }
+        return map;
+    }
+}
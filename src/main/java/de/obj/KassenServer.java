@@ -0,0 +1,400 @@
+package de.obj;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store server: one process owns the database and serves the checkout lanes over HTTP
+ * (see {@link KassenProtokoll}). Each request runs on its own virtual thread on Java 21+,
+ * so a lane waiting for a PIN check or a pooled connection ties up no platform thread;
+ * older runtimes use a fixed pool. The connection pools still bound the database work.
+ *
+ * Everything but the login screen's lists needs a session. Sessions end on logout or after
+ * shop.server.sessionIdleMinutes without a request (default 480, one shift). After
+ * shop.server.maxPinFailures wrong PINs in a row (default 5) a VID is locked, first for
+ * shop.server.lockoutSeconds (default 30), doubling with each further wrong PIN up to an hour.
+ */
+public class KassenServer {
+    public static final int DEFAULT_PORT = 8765;
+    /** HTTP status while a VID is locked after wrong PINs. */
+    public static final int LOCKED = 429;
+    // Loopback by default; set to 0.0.0.0 to serve lanes on other machines
+    private static final String BIND_ADDRESS = System.getProperty("shop.server.bind", "127.0.0.1");
+    private static final int FALLBACK_THREADS = Integer.getInteger("shop.server.threads", 32);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final long SESSION_IDLE_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("shop.server.sessionIdleMinutes", 480L));
+    private static final int MAX_PIN_FAILURES = Integer.getInteger("shop.server.maxPinFailures", 5);
+    private static final long LOCKOUT_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.getLong("shop.server.lockoutSeconds", 30L));
+    private static final long MAX_LOCKOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final LocalKassenBackend backend;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    // Session token -> logged-in user and last use
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // VID -> wrong PINs in a row
+    private final Map<Integer, PinFailures> pinFailures = new ConcurrentHashMap<>();
+    private volatile long sessionIdleMillis = SESSION_IDLE_MILLIS;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param port TCP port, 0 for any free port
+     */
+    public KassenServer(LocalKassenBackend backend, int port) throws IOException {
+        this.backend = backend;
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName(BIND_ADDRESS), port), 64);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+            Thread t = new Thread(r, "kassen-server");
+            t.setDaemon(true);
+            return t;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.createContext(KassenProtokoll.PATH, this::handle);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() if the runtime has it (Java 21+), else null.
+     * Looked up reflectively so the code still builds for Java 8.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Stop accepting requests and wait up to a second for running ones.
+     */
+    public void stop() {
+        httpServer.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    void setSessionIdleMillis(long millis) {
+        this.sessionIdleMillis = millis;
+    }
+
+    private static final class Session {
+        final int vid;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Session(int vid) {
+            this.vid = vid;
+        }
+    }
+
+    private static final class PinFailures {
+        int count;
+        long lockedUntil;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String path = exchange.getRequestURI().getPath();
+        String operation = path.substring(KassenProtokoll.PATH.length());
+        int status = 200;
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        try (InputStream in = new BufferedInputStream(exchange.getRequestBody())) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                status = 405;
+            } else {
+                DataOutputStream out = new DataOutputStream(body);
+                status = dispatch(operation, exchange.getRequestHeaders().getFirst(KassenProtokoll.SESSION_HEADER),
+                        new DataInputStream(in), out);
+                out.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Server error in " + operation + ": " + e.getMessage());
+            status = 500;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", KassenProtokoll.CONTENT_TYPE);
+            if (status == 200) {
+                exchange.sendResponseHeaders(200, body.size());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    body.writeTo(out);
+                }
+            } else {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(status, -1);
+            }
+        } finally {
+            exchange.close();
+            long nanos = System.nanoTime() - start;
+            requests.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Run one operation; returns the HTTP status.
+     */
+    private int dispatch(String operation, String session, DataInputStream in, DataOutputStream out)
+            throws IOException {
+        switch (operation) {
+            case KassenProtokoll.USERS:
+                KassenProtokoll.writeUsers(out, backend.getAllUsers());
+                return 200;
+            case KassenProtokoll.AUTHENTICATE: {
+                int vid = in.readInt();
+                String pin = in.readUTF();
+                // Refused before the PIN check, so a locked VID costs no BCrypt work either
+                if (isLocked(vid)) {
+                    return LOCKED;
+                }
+                User user = backend.authenticate(vid, pin);
+                recordLogin(vid, user != null);
+                KassenProtokoll.writeUser(out, user);
+                if (user != null) {
+                    expireSessions();
+                    String token = newToken();
+                    sessions.put(token, new Session(user.getVid()));
+                    out.writeUTF(token);
+                }
+                return 200;
+            }
+            case KassenProtokoll.LOGOUT:
+                out.writeBoolean(session != null && sessions.remove(session) != null);
+                return 200;
+            case KassenProtokoll.PRODUCTS:
+                KassenProtokoll.writeProdukte(out, backend.getAllProducts());
+                return 200;
+            case KassenProtokoll.PRODUCT_BY_BARCODE:
+                KassenProtokoll.writeProdukt(out, backend.findByBarcode(in.readUTF()));
+                return 200;
+            case KassenProtokoll.SAVE_PRODUCT: {
+                User user = sessionUser(session);
+                if (user == null || !user.isFilialleiter()) {
+                    return 403;
+                }
+                Produkt product = KassenProtokoll.readProdukt(in);
+                out.writeInt(backend.saveProduct(product, user) ? product.getPid() : -1);
+                return 200;
+            }
+            case KassenProtokoll.SAVE_SALE: {
+                User user = sessionUser(session);
+                if (user == null) {
+                    return 403;
+                }
+                Bon bon = KassenProtokoll.readBon(in);
+                // Sales are booked on the seller whose session the lane sends; a lane can only book
+                // on sellers who logged in there, so a sale claiming anyone else is refused
+                if (bon.getVerkaufer() != null && bon.getVerkaufer().getVid() != user.getVid()) {
+                    return 403;
+                }
+                bon.setVerkaufer(user);
+                out.writeInt(backend.saveSale(bon));
+                return 200;
+            }
+            case KassenProtokoll.RESERVE_NUMBERS: {
+                if (sessionUser(session) == null) {
+                    return 403;
+                }
+                String kasse = in.readUTF();
+                KassenProtokoll.writeBlock(out, backend.reserveBonNummern(kasse, in.readInt()));
+                return 200;
+            }
+            case KassenProtokoll.CANCEL_SALE: {
+                User user = sessionUser(session);
+                if (user == null) {
+                    return 403;
+                }
+                int bonId = in.readInt();
+                out.writeBoolean(backend.cancelSale(bonId, user, KassenProtokoll.readString(in)));
+                return 200;
+            }
+            case KassenProtokoll.RECEIPT:
+                if (sessionUser(session) == null) {
+                    return 403;
+                }
+                KassenProtokoll.writeBon(out, backend.getReceiptById(in.readInt()));
+                return 200;
+            case KassenProtokoll.STATISTICS:
+                if (sessionUser(session) == null) {
+                    return 403;
+                }
+                KassenProtokoll.writeStatistics(out, backend.getSalesStatistics(in.readUTF(), in.readUTF()));
+                return 200;
+            case KassenProtokoll.STATISTICS_BY_HOUR:
+                if (sessionUser(session) == null) {
+                    return 403;
+                }
+                KassenProtokoll.writeStatisticsMap(out,
+                        backend.getSalesStatisticsByHour(in.readUTF(), in.readUTF()));
+                return 200;
+            case KassenProtokoll.REVENUE_BY_CATEGORY:
+                if (sessionUser(session) == null) {
+                    return 403;
+                }
+                KassenProtokoll.writeCentsMap(out, backend.getRevenueByCategory(in.readUTF(), in.readUTF()));
+                return 200;
+            case KassenProtokoll.PING:
+                out.writeBoolean(backend.isAvailable());
+                return 200;
+            case KassenProtokoll.STATUS:
+                out.writeUTF(backend.getSystemStatus() + "\n" + getStats());
+                return 200;
+            default:
+                return 404;
+        }
+    }
+
+    private User sessionUser(String session) {
+        Session current = session == null ? null : sessions.get(session);
+        if (current == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - current.lastUsed > sessionIdleMillis) {
+            sessions.remove(session, current);
+            return null;
+        }
+        current.lastUsed = now;
+        return backend.getUserById(current.vid);
+    }
+
+    /**
+     * Drop sessions idle for longer than the timeout; runs on each login, so the map stays small.
+     */
+    private void expireSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(s -> now - s.lastUsed > sessionIdleMillis);
+    }
+
+    private boolean isLocked(int vid) {
+        PinFailures failures = pinFailures.get(vid);
+        if (failures == null) {
+            return false;
+        }
+        synchronized (failures) {
+            return System.currentTimeMillis() < failures.lockedUntil;
+        }
+    }
+
+    private void recordLogin(int vid, boolean success) {
+        if (success) {
+            pinFailures.remove(vid);
+            return;
+        }
+        PinFailures failures = pinFailures.computeIfAbsent(vid, k -> new PinFailures());
+        synchronized (failures) {
+            failures.count++;
+            if (failures.count >= MAX_PIN_FAILURES) {
+                int doublings = Math.min(failures.count - MAX_PIN_FAILURES, 20);
+                failures.lockedUntil = System.currentTimeMillis()
+                        + Math.min(LOCKOUT_MILLIS << doublings, MAX_LOCKOUT_MILLIS);
+                System.err.println("Login for VID " + vid + " locked after " + failures.count + " wrong PINs");
+            }
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b & 0xff));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Current request metrics.
+     */
+    public ServerStats getStats() {
+        ServerStats stats = new ServerStats();
+        stats.requests = requests.get();
+        stats.errors = errors.get();
+        stats.sessions = sessions.size();
+        stats.avgMillis = stats.requests == 0 ? 0.0 : totalNanos.get() / 1e6 / stats.requests;
+        stats.maxMillis = maxNanos.get() / 1e6;
+        stats.virtualThreads = virtualThreads;
+        return stats;
+    }
+
+    /**
+     * Server metrics data class.
+     */
+    public static class ServerStats {
+        public long requests;
+        public long errors;
+        public int sessions;
+        public double avgMillis;
+        public double maxMillis;
+        public boolean virtualThreads;
+
+        @Override
+        public String toString() {
+            return String.format("Kassenserver: %d Anfragen, %d Fehler, %d Sitzungen, "
+                    + "Antwortzeit avg %.3f ms / max %.3f ms, %s",
+                    requests, errors, sessions, avgMillis, maxMillis,
+                    virtualThreads ? "virtuelle Threads" : FALLBACK_THREADS + " Plattform-Threads");
+        }
+    }
+
+    /**
+     * Run the store server: --server [port]
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("--server".equals(args[i])) {
+                try {
+                    port = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    // No port given, keep the default
+                }
+            }
+        }
+        try {
+            KassenServer server = new KassenServer(new LocalKassenBackend(), port);
+            server.start();
+            System.out.println("Kassenserver läuft auf " + BIND_ADDRESS + ":" + server.getPort()
+                    + (server.virtualThreads ? " (virtuelle Threads)" : " (" + FALLBACK_THREADS + " Threads)"));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (IOException e) {
+            System.err.println("Server could not be started: " + e.getMessage());
+        }
+    }
+}
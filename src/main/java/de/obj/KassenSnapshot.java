@@ -0,0 +1,198 @@
+package de.obj;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * What a lane needs to keep selling while the database is unavailable: the users, PIN hashes of
+ * the users who logged in at this lane, and the product catalog. Saved to a local file whenever
+ * it changes, replaced atomically, and protected by a CRC32; a damaged file is ignored.
+ * The PIN hashes are BCrypt hashes made at this lane, never the ones from the database.
+ */
+public class KassenSnapshot {
+    private static final int MAGIC = 0x4B534E50; // "KSNP"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private volatile List<User> users = Collections.emptyList();
+    private final Map<Integer, String> pinHashes = new ConcurrentHashMap<>();
+    private volatile List<Produkt> products = Collections.emptyList();
+    private volatile ProduktKatalog katalog = new ProduktKatalog(Collections::<Produkt>emptyList);
+    private volatile long savedAt;
+
+    private KassenSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the snapshot file; an empty snapshot if it is missing or damaged.
+     */
+    public static KassenSnapshot load(File file) {
+        KassenSnapshot snapshot = new KassenSnapshot(file);
+        if (!file.exists()) {
+            return snapshot;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring lane snapshot with unknown format: " + file);
+                return snapshot;
+            }
+            long savedAt = in.readLong();
+            List<User> users = KassenProtokoll.readUsers(in);
+            int hashes = in.readInt();
+            Map<Integer, String> pinHashes = new ConcurrentHashMap<>();
+            for (int i = 0; i < hashes; i++) {
+                pinHashes.put(in.readInt(), in.readUTF());
+            }
+            List<Produkt> products = KassenProtokoll.readProdukte(in);
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                System.err.println("Ignoring damaged lane snapshot: " + file);
+                return snapshot;
+            }
+            snapshot.users = users;
+            snapshot.pinHashes.putAll(pinHashes);
+            snapshot.setProductsInternal(products);
+            snapshot.savedAt = savedAt;
+        } catch (IOException e) {
+            System.err.println("Error reading lane snapshot: " + e.getMessage());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write the snapshot to a temp file and move it over the old one.
+     */
+    public synchronized void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        long now = System.currentTimeMillis();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(now);
+            KassenProtokoll.writeUsers(out, users);
+            Map<Integer, String> hashes = new HashMap<>(pinHashes);
+            out.writeInt(hashes.size());
+            for (Map.Entry<Integer, String> entry : hashes.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            KassenProtokoll.writeProdukte(out, products);
+            out.flush();
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            System.err.println("Error writing lane snapshot: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            savedAt = now;
+        } catch (IOException e) {
+            System.err.println("Error replacing lane snapshot: " + e.getMessage());
+        }
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Replace the users; false if they are the same as before, so nothing needs saving.
+     */
+    public boolean setUsers(List<User> users) {
+        if (Arrays.equals(encode(users), encode(this.users))) {
+            return false;
+        }
+        this.users = new ArrayList<>(users);
+        return true;
+    }
+
+    private static byte[] encode(List<User> users) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            KassenProtokoll.writeUsers(new DataOutputStream(bytes), users);
+        } catch (IOException e) {
+            // Not thrown by in-memory streams
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Remember a PIN that was just verified online, so the user can log in here offline.
+     */
+    public void rememberPin(int vid, String pin) {
+        pinHashes.put(vid, DatabaseManager.hashPin(pin));
+    }
+
+    /**
+     * Offline login; null unless the user logged in at this lane before with the same PIN.
+     */
+    public User authenticate(int vid, String pin) {
+        String hash = pinHashes.get(vid);
+        if (hash == null || pin == null || !BCrypt.checkpw(pin, hash)) {
+            return null;
+        }
+        for (User user : users) {
+            if (user.getVid() == vid) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    public List<Produkt> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Produkt> products) {
+        setProductsInternal(new ArrayList<>(products));
+    }
+
+    private void setProductsInternal(List<Produkt> products) {
+        this.products = products;
+        ProduktKatalog fresh = new ProduktKatalog(() -> this.products);
+        fresh.reload();
+        this.katalog = fresh;
+    }
+
+    /**
+     * Catalog over the snapshot products, for lookups and the type-ahead search.
+     */
+    public ProduktKatalog getKatalog() {
+        return katalog;
+    }
+
+    /**
+     * When the snapshot was last written (epoch millis), 0 if never.
+     */
+    public long getSavedAt() {
+        return savedAt;
+    }
+}
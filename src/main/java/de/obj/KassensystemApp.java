@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -12,17 +13,22 @@ import java.util.Scanner;
  */
 public class KassensystemApp {
     private final Scanner scanner;
-    private final UserService userService;
-    private final ProduktService produktService;
-    private final VerkaufService verkaufService;
+    private final KassenBackend backend;
+    private final PrintSpooler printSpooler;
     private User currentUser;
     private Bon currentBon;
 
     public KassensystemApp() {
+        this(new LocalKassenBackend());
+    }
+
+    /**
+     * Console lane working on the given backend, e.g. a {@link RemoteKassenBackend}.
+     */
+    public KassensystemApp(KassenBackend backend) {
         this.scanner = new Scanner(System.in);
-        this.userService = new UserService();
-        this.produktService = new ProduktService();
-        this.verkaufService = new VerkaufService();
+        this.backend = backend;
+        this.printSpooler = PrintSpooler.getInstance();
     }
 
     public static void main(String[] args) {
@@ -30,14 +36,11 @@ public class KassensystemApp {
         System.out.println("    GoodFood GmbH - Kassensystem v1.0     ");
         System.out.println("===========================================");
         
-        KassensystemApp app = new KassensystemApp();
+        KassensystemApp app = new KassensystemApp(KassenBackend.create(args));
         app.run();
     }
 
     public void run() {
-        // Initialize database
-        DatabaseManager.getInstance();
-        
         while (true) {
             if (currentUser == null) {
                 if (!login()) {
@@ -77,6 +80,7 @@ public class KassensystemApp {
                     }
                     break;
                 case 5:
+                    backend.logout(currentUser);
                     currentUser = null;
                     System.out.println("Abgemeldet.");
                     break;
@@ -92,10 +96,20 @@ public class KassensystemApp {
 
     private boolean login() {
         System.out.println("\n=== ANMELDUNG ===");
+        List<User> users = backend.getAllUsers();
+        for (int i = 0; i < users.size(); i++) {
+            System.out.printf("%d. %s\n", i + 1, users.get(i).getFullName());
+        }
+        int choice = readInt("Benutzer wählen (1-" + users.size() + "): ");
+        if (choice < 1 || choice > users.size()) {
+            System.out.println("Ungültige Auswahl!");
+            pause();
+            return false;
+        }
         System.out.print("PIN eingeben: ");
         String pin = scanner.nextLine();
 
-        User user = userService.authenticate(pin);
+        User user = backend.authenticate(users.get(choice - 1).getVid(), pin);
         if (user != null) {
             currentUser = user;
             System.out.printf("\nWillkommen, %s (%s)!\n", 
@@ -121,6 +135,10 @@ public class KassensystemApp {
         System.out.printf("    Angemeldet: %s (%s)\n", 
             currentUser.getFullName(),
             currentUser.isFilialleiter() ? "Filialleiter" : "Verkäufer");
+        KassenBackend.LaneStatus laneStatus = backend.getLaneStatus();
+        if (laneStatus != null) {
+            System.out.println("    Kasse: " + laneStatus);
+        }
         System.out.println("===========================================");
         System.out.println("1. Neuer Verkauf");
         System.out.println("2. Produktverwaltung" + (currentUser.isFilialleiter() ? "" : " (FL)"));
@@ -180,7 +198,7 @@ public class KassensystemApp {
         Produkt product;
         if (barcode.isEmpty()) {
             // Demo: Use first product if no barcode entered
-            List<Produkt> products = produktService.getAllProducts();
+            List<Produkt> products = backend.getAllProducts();
             if (!products.isEmpty()) {
                 product = products.get(0);
                 System.out.println("Demo: Verwende " + product.getBezeichnung());
@@ -190,7 +208,7 @@ public class KassensystemApp {
                 return;
             }
         } else {
-            product = produktService.findByBarcode(barcode);
+            product = backend.findByBarcode(barcode);
             if (product == null) {
                 System.out.println("Produkt mit Barcode '" + barcode + "' nicht gefunden!");
                 pause();
@@ -202,7 +220,7 @@ public class KassensystemApp {
     }
 
     private void addProductFromList() {
-        List<Produkt> products = produktService.getAllProducts();
+        List<Produkt> products = backend.getAllProducts();
         if (products.isEmpty()) {
             System.out.println("Keine Produkte verfügbar!");
             pause();
@@ -274,13 +292,26 @@ public class KassensystemApp {
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if ("j".equals(confirm) || "ja".equals(confirm)) {
-            int bonId = verkaufService.saveSale(currentBon);
+            int bonId = backend.saveSale(currentBon);
             if (bonId > 0) {
                 System.out.println("\n=== BON ===");
                 System.out.println(currentBon.generateReceiptText());
+                if (!printSpooler.submit(currentBon)) {
+                    System.out.println("Drucker ausgelastet - Bon wurde nicht gedruckt.");
+                }
                 System.out.println("Verkauf erfolgreich abgeschlossen!");
                 pause();
                 return true;
+            } else if (bonId == KassenBackend.SALE_PENDING) {
+                // Safe in the lane journal; printed with its provisional number, booked later
+                System.out.println("\n=== BON ===");
+                System.out.println(currentBon.generateReceiptText());
+                if (!printSpooler.submit(currentBon)) {
+                    System.out.println("Drucker ausgelastet - Bon wurde nicht gedruckt.");
+                }
+                System.out.println("Verkauf gesichert - wird gebucht, sobald die Datenbank erreichbar ist.");
+                pause();
+                return true;
             } else {
                 System.out.println("Fehler beim Speichern des Verkaufs!");
                 pause();
@@ -317,7 +348,7 @@ public class KassensystemApp {
     }
 
     private void showAllProducts() {
-        List<Produkt> products = produktService.getAllProducts();
+        List<Produkt> products = backend.getAllProducts();
         
         System.out.println("\n=== ALLE PRODUKTE ===");
         if (products.isEmpty()) {
@@ -365,7 +396,7 @@ public class KassensystemApp {
         product.setKid(1); // Default category
         product.setMwst(0.19); // Default 19% VAT
         
-        if (produktService.saveProduct(product)) {
+        if (backend.saveProduct(product, currentUser)) {
             System.out.println("Produkt erfolgreich hinzugefügt!");
         } else {
             System.out.println("Fehler beim Hinzufügen des Produkts!");
@@ -377,7 +408,7 @@ public class KassensystemApp {
         System.out.print("Bon-ID zum Stornieren: ");
         int bonId = readInt("");
         
-        Bon bon = verkaufService.getReceiptById(bonId);
+        Bon bon = backend.getReceiptById(bonId);
         if (bon == null) {
             System.out.println("Bon nicht gefunden!");
             pause();
@@ -400,7 +431,7 @@ public class KassensystemApp {
             System.out.print("Grund für Stornierung: ");
             String reason = scanner.nextLine().trim();
             
-            if (verkaufService.cancelSale(bonId, currentUser, reason)) {
+            if (backend.cancelSale(bonId, currentUser, reason)) {
                 System.out.println("Verkauf erfolgreich storniert!");
             } else {
                 System.out.println("Fehler beim Stornieren!");
@@ -417,15 +448,33 @@ public class KassensystemApp {
         String weekAgoStr = today.minusDays(7).format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
         
         // Today's statistics
-        VerkaufService.SalesStatistics todayStats = verkaufService.getSalesStatistics(todayStr, todayStr);
+        VerkaufService.SalesStatistics todayStats = backend.getSalesStatistics(todayStr, todayStr);
         System.out.println("\n=== HEUTE ===");
         System.out.println(todayStats);
         
         // Last 7 days statistics
-        VerkaufService.SalesStatistics weekStats = verkaufService.getSalesStatistics(weekAgoStr, todayStr);
+        VerkaufService.SalesStatistics weekStats = backend.getSalesStatistics(weekAgoStr, todayStr);
         System.out.println("\n=== LETZTE 7 TAGE ===");
         System.out.println(weekStats);
         
+        // Today's sales by hour
+        System.out.println("\n=== HEUTE NACH STUNDE ===");
+        for (Map.Entry<Integer, VerkaufService.SalesStatistics> entry
+                : backend.getSalesStatisticsByHour(todayStr, todayStr).entrySet()) {
+            System.out.printf("%02d:00  %3d Verkäufe  %10.2f €%n",
+                    entry.getKey(), entry.getValue().totalSales, entry.getValue().totalAmount);
+        }
+        
+        // Today's revenue by product category
+        System.out.println("\n=== HEUTE NACH KATEGORIE ===");
+        for (Map.Entry<Integer, Long> entry : backend.getRevenueByCategory(todayStr, todayStr).entrySet()) {
+            System.out.printf("Kategorie %-3d  %10.2f €%n", entry.getKey(), Money.toEuros(entry.getValue()));
+        }
+        
+        System.out.println("\n=== SYSTEM ===");
+        System.out.println(backend.getSystemStatus());
+        System.out.println(printSpooler.getStats());
+        
         pause();
     }
 
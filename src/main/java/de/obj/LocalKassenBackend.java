@@ -0,0 +1,141 @@
+package de.obj;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backend that works directly on the database file of this process.
+ */
+public class LocalKassenBackend implements KassenBackend {
+    private final UserService userService;
+    private final ProduktService produktService;
+    private final VerkaufService verkaufService;
+
+    public LocalKassenBackend() {
+        // Opens the pools and brings the schema up to date
+        DatabaseManager.getInstance();
+        this.userService = new UserService();
+        this.produktService = new ProduktService();
+        this.verkaufService = new VerkaufService();
+    }
+
+    /**
+     * Look up a user without authenticating, e.g. to resolve a server session.
+     */
+    public User getUserById(int vid) {
+        return userService.getUserById(vid);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        // Read-only probe on the reporting pool; it runs every few seconds and must not hold a write slot
+        try (Connection conn = DatabaseManager.getInstance().getReportingConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT 1 FROM Kassenbons LIMIT 1");
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    @Override
+    public User authenticate(int vid, String pin) {
+        return userService.authenticate(vid, pin);
+    }
+
+    @Override
+    public List<Produkt> getAllProducts() {
+        return produktService.getAllProducts();
+    }
+
+    @Override
+    public ProduktSuchindex getSuchindex() {
+        return produktService.getSuchindex();
+    }
+
+    @Override
+    public Produkt findByBarcode(String barcode) {
+        return produktService.findByBarcode(barcode);
+    }
+
+    @Override
+    public Produkt findCachedByBarcode(String barcode) {
+        return produktService.findCachedByBarcode(barcode);
+    }
+
+    @Override
+    public boolean saveProduct(Produkt product, User changedBy) {
+        if (changedBy == null || !changedBy.isFilialleiter()) {
+            System.err.println("Only Filialleiter can change products!");
+            return false;
+        }
+        return produktService.saveProduct(product);
+    }
+
+    @Override
+    public int saveSale(Bon bon) {
+        return verkaufService.saveSale(bon);
+    }
+
+    @Override
+    public BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+        return verkaufService.reserveBonNummern(kasse, anzahl);
+    }
+
+    @Override
+    public boolean cancelSale(int bonId, User cancelledBy, String reason) {
+        return verkaufService.cancelSale(bonId, cancelledBy, reason);
+    }
+
+    @Override
+    public Bon getReceiptById(int bonId) {
+        return verkaufService.getReceiptById(bonId);
+    }
+
+    @Override
+    public VerkaufService.SalesStatistics getSalesStatistics(String fromDate, String toDate) {
+        return verkaufService.getSalesStatistics(fromDate, toDate);
+    }
+
+    @Override
+    public Map<Integer, VerkaufService.SalesStatistics> getSalesStatisticsByHour(String fromDate, String toDate) {
+        return verkaufService.getSalesStatisticsByHour(fromDate, toDate);
+    }
+
+    @Override
+    public Map<Integer, Long> getRevenueByCategory(String fromDate, String toDate) {
+        return verkaufService.getRevenueByCategory(fromDate, toDate);
+    }
+
+    @Override
+    public String getSystemStatus() {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        return dbManager.getPoolStats() + "\nReporting-" + dbManager.getReportingPoolStats()
+                + "\n" + dbManager.getCommitQueue().getStats() + "\n" + produktService.getCatalogStats()
+                + "\n" + nummernAudit();
+    }
+
+    /**
+     * Summary of the receipt number audit; blocks with gaps are listed.
+     */
+    private String nummernAudit() {
+        List<BonNummernKreis.BlockAudit> audit = verkaufService.getNummernAudit();
+        StringBuilder gaps = new StringBuilder();
+        int luecken = 0;
+        for (BonNummernKreis.BlockAudit block : audit) {
+            if (block.luecken > 0) {
+                luecken += block.luecken;
+                gaps.append("\n  ").append(block);
+            }
+        }
+        return "Bonnummern: " + audit.size() + " Blöcke reserviert, " + luecken + " Lücken" + gaps;
+    }
+}
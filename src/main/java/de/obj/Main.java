@@ -13,6 +13,11 @@ public class Main {
                 useGui = false;
                 break;
             }
+            if ("--server".equals(arg)) {
+                // Store server: owns the database and serves the lanes (--server [port])
+                KassenServer.main(args);
+                return;
+            }
         }
         
         if (useGui) {
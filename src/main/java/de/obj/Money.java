@@ -0,0 +1,85 @@
+package de.obj;
+
+/**
+ * Fixed-point money arithmetic on primitive long cents.
+ * Rounding rules used on receipts:
+ * unit gross price = round(net * (1 + rate)), position = round(unit gross * quantity),
+ * VAT per rate = round(gross sum * rate / (1 + rate)), net = gross - VAT.
+ * All rounding is half away from zero. VAT rates are handled as basis points (19% = 1900).
+ */
+public final class Money {
+    public static final int RATE_SCALE = 10_000;
+    public static final int QUANTITY_SCALE = 1_000;
+
+    private Money() {}
+
+    public static long toCents(double euros) {
+        return Math.round(euros * 100.0);
+    }
+
+    public static double toEuros(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * VAT rate as basis points, e.g. 0.19 to 1900.
+     */
+    public static int toBasisPoints(double rate) {
+        return (int) Math.round(rate * RATE_SCALE);
+    }
+
+    /**
+     * Quantity in thousandths (pieces or grams), e.g. 0.25 kg to 250.
+     */
+    public static long toMilli(double menge) {
+        return Math.round(menge * QUANTITY_SCALE);
+    }
+
+    public static long bruttoFromNetto(long nettoCents, int rateBasisPoints) {
+        return divideRounded(nettoCents * (RATE_SCALE + rateBasisPoints), RATE_SCALE);
+    }
+
+    /**
+     * VAT contained in a gross amount.
+     */
+    public static long mwstFromBrutto(long bruttoCents, int rateBasisPoints) {
+        return divideRounded(bruttoCents * rateBasisPoints, RATE_SCALE + rateBasisPoints);
+    }
+
+    public static long times(long unitCents, long mengeMilli) {
+        return divideRounded(unitCents * mengeMilli, QUANTITY_SCALE);
+    }
+
+    /**
+     * Integer division rounding half away from zero.
+     */
+    static long divideRounded(long dividend, long divisor) {
+        long half = divisor / 2;
+        return dividend >= 0 ? (dividend + half) / divisor : -((-dividend + half) / divisor);
+    }
+
+    /**
+     * Plain amount with two decimals and a dot, e.g. -1234 to "-12.34".
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(12);
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Append an amount without creating intermediate strings.
+     */
+    public static void appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
@@ -0,0 +1,211 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints receipts in the background so the lane is free for the next customer.
+ * Receipts are rendered to ESC/POS in the caller, queued (bounded) and sent to the
+ * device by a single worker thread, which retries device errors with a growing pause.
+ */
+public class PrintSpooler implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_PAUSE_MILLIS = 200;
+    private static PrintSpooler instance;
+
+    private final PrinterDevice device;
+    private final BlockingQueue<PrintJob> queue;
+    private final ReceiptRenderer renderer = new ReceiptRenderer();
+    private final Thread worker;
+    private volatile boolean closed = false;
+
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong printed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private static final class PrintJob {
+        final int bonId;
+        final byte[] data;
+        final long submittedNanos;
+
+        PrintJob(int bonId, byte[] data) {
+            this.bonId = bonId;
+            this.data = data;
+            this.submittedNanos = System.nanoTime();
+        }
+    }
+
+    public PrintSpooler(PrinterDevice device) {
+        this(device, QUEUE_CAPACITY);
+    }
+
+    public PrintSpooler(PrinterDevice device, int capacity) {
+        this.device = device;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::run, "print-spooler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Shared spooler for the configured printer (system property shop.printer, default receipts.prn).
+     */
+    public static synchronized PrintSpooler getInstance() {
+        if (instance == null) {
+            File target = new File(System.getProperty("shop.printer", "receipts.prn"));
+            instance = new PrintSpooler(new FilePrinterDevice(target));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::close));
+        }
+        return instance;
+    }
+
+    /**
+     * Render and queue a receipt. Never blocks; returns false if the queue is full or closed.
+     */
+    public boolean submit(Bon bon) {
+        if (closed) {
+            return false;
+        }
+        byte[] data;
+        synchronized (renderer) {
+            renderer.renderEscPos(bon);
+            data = renderer.copyEscPos();
+        }
+        if (!queue.offer(new PrintJob(bon.getBonId(), data))) {
+            rejected.incrementAndGet();
+            System.err.println("Print queue full, receipt " + bon.getBonId() + " not printed");
+            return false;
+        }
+        submitted.incrementAndGet();
+        int depth = queue.size();
+        int max = maxDepth.get();
+        while (depth > max && !maxDepth.compareAndSet(max, depth)) {
+            max = maxDepth.get();
+        }
+        return true;
+    }
+
+    private void run() {
+        while (!closed || !queue.isEmpty()) {
+            PrintJob job;
+            try {
+                job = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // close() interrupts a waiting worker; the loop condition decides whether to drain
+                continue;
+            }
+            if (job != null) {
+                print(job);
+            }
+        }
+    }
+
+    private void print(PrintJob job) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                device.print(job.data, job.data.length);
+                printed.incrementAndGet();
+                recordLatency(System.nanoTime() - job.submittedNanos);
+                return;
+            } catch (IOException e) {
+                System.err.println("Printer " + device.getName() + " failed on receipt " + job.bonId
+                        + " (attempt " + attempt + "/" + MAX_ATTEMPTS + "): " + e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    retries.incrementAndGet();
+                    if (!pause(RETRY_PAUSE_MILLIS * attempt)) {
+                        break;
+                    }
+                }
+            }
+        }
+        failed.incrementAndGet();
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return !closed;
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        totalLatencyNanos.addAndGet(nanos);
+        long max = maxLatencyNanos.get();
+        while (nanos > max && !maxLatencyNanos.compareAndSet(max, nanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Stop accepting receipts and wait up to a few seconds for the queue to drain.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (device instanceof FilePrinterDevice) {
+            ((FilePrinterDevice) device).close();
+        }
+    }
+
+    /**
+     * Snapshot of the spooler metrics.
+     */
+    public SpoolerStats getStats() {
+        SpoolerStats stats = new SpoolerStats();
+        stats.printer = device.getName();
+        stats.queueDepth = queue.size();
+        stats.maxQueueDepth = maxDepth.get();
+        stats.submitted = submitted.get();
+        stats.rejected = rejected.get();
+        stats.printed = printed.get();
+        stats.failed = failed.get();
+        stats.retries = retries.get();
+        stats.avgLatencyMillis = stats.printed == 0 ? 0.0
+                : totalLatencyNanos.get() / (double) stats.printed / 1_000_000.0;
+        stats.maxLatencyMillis = maxLatencyNanos.get() / 1_000_000.0;
+        return stats;
+    }
+
+    /**
+     * Spooler metrics data class.
+     */
+    public static class SpoolerStats {
+        public String printer;
+        public int queueDepth;
+        public int maxQueueDepth;
+        public long submitted;
+        public long rejected;
+        public long printed;
+        public long failed;
+        public long retries;
+        public double avgLatencyMillis;
+        public double maxLatencyMillis;
+
+        @Override
+        public String toString() {
+            return String.format("Druckwarteschlange (%s): %d wartend (max %d), %d gedruckt, %d fehlgeschlagen, "
+                    + "%d abgewiesen, %d Wiederholungen, Latenz avg %.1f ms / max %.1f ms",
+                    printer, queueDepth, maxQueueDepth, printed, failed, rejected, retries,
+                    avgLatencyMillis, maxLatencyMillis);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package de.obj;
+
+import java.io.IOException;
+
+/**
+ * A receipt printer that accepts raw ESC/POS bytes.
+ */
+public interface PrinterDevice {
+    /**
+     * Send one receipt. Throws if the device is offline or the write fails; the spooler retries.
+     */
+    void print(byte[] data, int length) throws IOException;
+
+    String getName();
+}
@@ -2,12 +2,15 @@ package de.obj;
 
 /**
  * Product entity with enhanced cash register functionality.
+ * Prices are kept in cents; the double accessors are conversions for input and display.
  */
 public class Produkt {
     private int pid;
     private String bezeichnung;
-    private double preis;
+    private long preisCents; // netto
+    private long bruttoPreisCents;
     private double mwst = 0.19; // Default 19% VAT
+    private int mwstBasisPoints = 1900;
     private int kid; // Category ID
     private String barcode;
     private boolean isWeightBased;
@@ -17,8 +20,8 @@ public class Produkt {
     public Produkt(int pid, String bezeichnung, double preis, double mwst, int kid, String barcode, boolean isWeightBased) {
         this.pid = pid;
         this.bezeichnung = bezeichnung;
-        this.preis = preis;
-        this.mwst = mwst;
+        setMwst(mwst);
+        setPreis(preis);
         this.kid = kid;
         this.barcode = barcode;
         this.isWeightBased = isWeightBased;
@@ -42,11 +45,28 @@ public class Produkt {
     }
 
     public double getPreis() {
-        return preis;
+        return Money.toEuros(preisCents);
     }
 
     public void setPreis(double preis) {
-        this.preis = preis;
+        setPreisCents(Money.toCents(preis));
+    }
+
+    public long getPreisCents() {
+        return preisCents;
+    }
+
+    public void setPreisCents(long preisCents) {
+        this.preisCents = preisCents;
+        this.bruttoPreisCents = Money.bruttoFromNetto(preisCents, mwstBasisPoints);
+    }
+
+    /**
+     * Set a fixed gross price, e.g. the one stored on a historical receipt; netto is derived from it.
+     */
+    public void setBruttoPreisCents(long bruttoPreisCents) {
+        this.bruttoPreisCents = bruttoPreisCents;
+        this.preisCents = bruttoPreisCents - Money.mwstFromBrutto(bruttoPreisCents, mwstBasisPoints);
     }
 
     public double getMwst() {
@@ -55,6 +75,12 @@ public class Produkt {
 
     public void setMwst(double mwst) {
         this.mwst = mwst;
+        this.mwstBasisPoints = Money.toBasisPoints(mwst);
+        this.bruttoPreisCents = Money.bruttoFromNetto(preisCents, mwstBasisPoints);
+    }
+
+    public int getMwstBasisPoints() {
+        return mwstBasisPoints;
     }
 
     public int getKid() {
@@ -82,18 +108,22 @@ public class Produkt {
     }
 
     public double getNettoPreis() {
-        return preis;
+        return Money.toEuros(preisCents);
     }
 
     public double getBruttoPreis() {
-        return preis * (1 + mwst);
+        return Money.toEuros(bruttoPreisCents);
+    }
+
+    public long getBruttoPreisCents() {
+        return bruttoPreisCents;
     }
 
     @Override
     public String toString() {
         String unit = isWeightBased ? "pro kg" : "pro Stück";
-        return String.format("%s - %.2f EUR %s (%.2f EUR brutto, %.1f%% MwSt)", 
-                bezeichnung, preis, unit, getBruttoPreis(), mwst * 100);
+        return String.format("%s - %s EUR %s (%s EUR brutto, %.1f%% MwSt)", 
+                bezeichnung, Money.format(preisCents), unit, Money.format(bruttoPreisCents), mwst * 100);
     }
 }
 
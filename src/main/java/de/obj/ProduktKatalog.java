@@ -0,0 +1,223 @@
+package de.obj;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory product catalog indexed by barcode and PID.
+ * Lookups read an immutable snapshot without locking; writes replace the snapshot.
+ */
+public class ProduktKatalog {
+    /**
+     * Loads all product rows from the database.
+     */
+    public interface Loader {
+        List<Produkt> loadAll() throws SQLException;
+    }
+
+    private final Loader loader;
+    private volatile Snapshot snapshot;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long reloadCount = 0;
+    private long lastReloadNanos = 0;
+
+    public ProduktKatalog(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Find product by barcode, or null if it is not in the catalog.
+     */
+    public Produkt findByBarcode(String barcode) {
+        return count(current().byBarcode.get(barcode));
+    }
+
+    /**
+     * Find product by barcode without ever loading the catalog, e.g. on the UI thread.
+     * Returns null if the catalog is not loaded yet or does not contain the barcode.
+     * Only lookups in a loaded catalog count towards the hit rate.
+     */
+    public Produkt peekByBarcode(String barcode) {
+        Snapshot current = snapshot;
+        return current == null ? null : count(current.byBarcode.get(barcode));
+    }
+
+    /**
+     * Find product by ID, or null if it is not in the catalog.
+     */
+    public Produkt findById(int pid) {
+        return count(current().byId.get(pid));
+    }
+
+    /**
+     * All products in load order.
+     */
+    public List<Produkt> getAll() {
+        return current().all;
+    }
+
+    /**
+     * Search index over the current snapshot, built on first use and updated by {@link #put(Produkt)}.
+     */
+    public ProduktSuchindex getSuchindex() {
+        return current().suchindex();
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    private Produkt count(Produkt product) {
+        if (product != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return product;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload();
+        }
+        return current;
+    }
+
+    /**
+     * Reload the whole catalog from the database. Keeps the old snapshot if loading fails.
+     */
+    public synchronized Snapshot reload() {
+        long start = System.nanoTime();
+        try {
+            snapshot = new Snapshot(loader.loadAll(), null);
+            reloadCount++;
+        } catch (SQLException e) {
+            System.err.println("Error loading product catalog: " + e.getMessage());
+            if (snapshot == null) {
+                return new Snapshot(Collections.<Produkt>emptyList(), null);
+            }
+        } finally {
+            lastReloadNanos = System.nanoTime() - start;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Insert or replace a single product after it was written to the database.
+     */
+    public synchronized void put(Produkt product) {
+        if (snapshot == null) {
+            return; // Not loaded yet, the next load picks it up
+        }
+        List<Produkt> products = new ArrayList<>(snapshot.all);
+        Produkt copy = copyOf(product);
+        boolean replaced = false;
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i).getPid() == product.getPid()) {
+                products.set(i, copy);
+                replaced = true;
+                break;
+            }
+        }
+        if (!replaced) {
+            products.add(copy);
+        }
+        // Carry a built search index over instead of dropping it, so the next picker open does not rebuild it
+        ProduktSuchindex index = snapshot.suchindex;
+        snapshot = new Snapshot(products, index == null ? null : index.withProduct(copy));
+    }
+
+    /**
+     * Drop the snapshot; the next lookup reloads from the database.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private static Produkt copyOf(Produkt p) {
+        Produkt copy = new Produkt(p.getPid(), p.getBezeichnung(), 0.0, p.getMwst(),
+                p.getKid(), p.getBarcode(), p.isWeightBased());
+        copy.setPreisCents(p.getPreisCents());
+        return copy;
+    }
+
+    /**
+     * Current cache metrics.
+     */
+    public synchronized KatalogStats getStats() {
+        KatalogStats stats = new KatalogStats();
+        Snapshot current = snapshot;
+        stats.size = current == null ? 0 : current.all.size();
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        long lookups = stats.hits + stats.misses;
+        stats.hitRate = lookups == 0 ? 0.0 : stats.hits / (double) lookups;
+        stats.reloadCount = reloadCount;
+        stats.lastReloadMillis = lastReloadNanos / 1_000_000.0;
+        return stats;
+    }
+
+    /**
+     * Immutable view of the catalog with its hash indexes.
+     */
+    static final class Snapshot {
+        final List<Produkt> all;
+        final Map<String, Produkt> byBarcode;
+        final Map<Integer, Produkt> byId;
+        private volatile ProduktSuchindex suchindex;
+
+        Snapshot(List<Produkt> products, ProduktSuchindex suchindex) {
+            this.suchindex = suchindex;
+            all = Collections.unmodifiableList(new ArrayList<>(products));
+            byBarcode = new HashMap<>(products.size() * 2);
+            byId = new HashMap<>(products.size() * 2);
+            for (Produkt product : products) {
+                byId.put(product.getPid(), product);
+                String barcode = product.getBarcode();
+                if (barcode != null && !barcode.isEmpty()) {
+                    byBarcode.put(barcode, product);
+                }
+            }
+        }
+
+        ProduktSuchindex suchindex() {
+            ProduktSuchindex index = suchindex;
+            if (index == null) {
+                synchronized (this) {
+                    index = suchindex;
+                    if (index == null) {
+                        index = new ProduktSuchindex(all);
+                        suchindex = index;
+                    }
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Catalog cache metrics data class.
+     */
+    public static class KatalogStats {
+        public int size;
+        public long hits;
+        public long misses;
+        public double hitRate;
+        public long reloadCount;
+        public double lastReloadMillis;
+
+        @Override
+        public String toString() {
+            return String.format("Produktkatalog: %d Produkte, Trefferquote %.1f%% (%d/%d), "
+                    + "%d Ladevorgänge, letzter %.2f ms",
+                    size, hitRate * 100, hits, hits + misses, reloadCount, lastReloadMillis);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.obj;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * List model that shows the current search result of a {@link ProduktSuchindex}.
+ * It holds only the matching positions, and the row texts come from the index cache, so
+ * filtering 50,000 products costs one index lookup and the JList renders just the visible rows.
+ * Use it with a fixed cell width and height; otherwise JList measures every row.
+ */
+public class ProduktListModel extends AbstractListModel<Produkt> {
+    private static final int[] EMPTY = new int[0];
+
+    private ProduktSuchindex index;
+    private int[] rows = EMPTY;
+    private String query = "";
+
+    /**
+     * Switch to another index, e.g. after the catalog was reloaded, and apply the current filter.
+     */
+    public void setIndex(ProduktSuchindex index) {
+        this.index = index;
+        update(index == null ? EMPTY : index.search(query));
+    }
+
+    /**
+     * Show only products matching the query; an empty query shows all.
+     */
+    public void filter(String query) {
+        this.query = query == null ? "" : query;
+        if (index != null) {
+            update(index.search(this.query));
+        }
+    }
+
+    private void update(int[] newRows) {
+        int oldSize = rows.length;
+        rows = newRows;
+        if (oldSize > newRows.length) {
+            fireIntervalRemoved(this, newRows.length, oldSize - 1);
+        }
+        if (newRows.length > 0 && oldSize > 0) {
+            fireContentsChanged(this, 0, Math.min(oldSize, newRows.length) - 1);
+        }
+        if (newRows.length > oldSize) {
+            fireIntervalAdded(this, oldSize, newRows.length - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return rows.length;
+    }
+
+    @Override
+    public Produkt getElementAt(int row) {
+        return index.get(rows[row]);
+    }
+
+    /**
+     * Cached list text of a row.
+     */
+    public String getDisplayText(int row) {
+        return index.getDisplayText(rows[row]);
+    }
+}
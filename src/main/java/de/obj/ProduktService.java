@@ -9,136 +9,186 @@ import java.util.List;
 
 /**
  * Service class for product management.
+ * Lookups are served from a shared in-memory catalog; the database is only read on load or on a miss.
  */
 public class ProduktService {
+    static final String SELECT_SQL = "SELECT PID, Bezeichnung, PreisCent, COALESCE(MwSt, 0.19) as MwSt, " +
+                    "COALESCE(KID, 1) as KID, COALESCE(Barcode, '') as Barcode, " +
+                    "COALESCE(IsWeightBased, 0) as IsWeightBased FROM Produkt";
+    static final String FIND_BY_BARCODE_SQL = SELECT_SQL + " WHERE Barcode = ?";
+    static final String FIND_BY_ID_SQL = SELECT_SQL + " WHERE PID = ?";
+    // Shared by all service instances so every screen sees the same catalog
+    private static ProduktKatalog katalog;
     private final DatabaseManager dbManager;
     
     public ProduktService() {
         this.dbManager = DatabaseManager.getInstance();
+        synchronized (ProduktService.class) {
+            if (katalog == null) {
+                katalog = new ProduktKatalog(this::loadAllFromDatabase);
+            }
+        }
     }
     
     /**
      * Get all products.
      */
     public List<Produkt> getAllProducts() {
-        List<Produkt> products = new ArrayList<>();
-        String sql = "SELECT PID, Bezeichnung, Preis, COALESCE(MwSt, 0.19) as MwSt, " +
-                    "COALESCE(KID, 1) as KID, COALESCE(Barcode, '') as Barcode, " +
-                    "COALESCE(IsWeightBased, 0) as IsWeightBased FROM Produkt";
-        
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Produkt product = new Produkt();
-                product.setPid(rs.getInt("PID"));
-                product.setBezeichnung(rs.getString("Bezeichnung"));
-                product.setPreis(rs.getDouble("Preis"));
-                product.setMwst(rs.getDouble("MwSt"));
-                product.setKid(rs.getInt("KID"));
-                product.setBarcode(rs.getString("Barcode"));
-                product.setWeightBased(rs.getBoolean("IsWeightBased"));
-                products.add(product);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting products: " + e.getMessage());
-        }
-        
-        return products;
+        return new ArrayList<>(katalog.getAll());
+    }
+    
+    /**
+     * Type-ahead search index over names and barcodes of all products.
+     */
+    public ProduktSuchindex getSuchindex() {
+        return katalog.getSuchindex();
     }
     
     /**
      * Find product by barcode.
      */
     public Produkt findByBarcode(String barcode) {
-        String sql = "SELECT PID, Bezeichnung, Preis, COALESCE(MwSt, 0.19) as MwSt, " +
-                    "COALESCE(KID, 1) as KID, COALESCE(Barcode, '') as Barcode, " +
-                    "COALESCE(IsWeightBased, 0) as IsWeightBased FROM Produkt WHERE Barcode = ?";
-        
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, barcode);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Produkt product = new Produkt();
-                    product.setPid(rs.getInt("PID"));
-                    product.setBezeichnung(rs.getString("Bezeichnung"));
-                    product.setPreis(rs.getDouble("Preis"));
-                    product.setMwst(rs.getDouble("MwSt"));
-                    product.setKid(rs.getInt("KID"));
-                    product.setBarcode(rs.getString("Barcode"));
-                    product.setWeightBased(rs.getBoolean("IsWeightBased"));
-                    return product;
-                }
+        if (barcode == null || barcode.isEmpty()) {
+            return null;
+        }
+        Produkt product = katalog.findByBarcode(barcode);
+        if (product == null) {
+            // Possibly added by another lane since the catalog was loaded
+            product = queryOne(FIND_BY_BARCODE_SQL, barcode);
+            if (product != null) {
+                katalog.put(product);
             }
-        } catch (SQLException e) {
-            System.err.println("Error finding product by barcode: " + e.getMessage());
         }
-        
-        return null;
+        return product;
+    }
+    
+    /**
+     * Find product by barcode in the loaded catalog only; never touches the database.
+     * Null means "not known yet", so callers fall back to {@link #findByBarcode} off the UI thread.
+     */
+    public Produkt findCachedByBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) {
+            return null;
+        }
+        return katalog.peekByBarcode(barcode);
     }
     
     /**
      * Find product by ID.
      */
     public Produkt findById(int pid) {
-        String sql = "SELECT PID, Bezeichnung, Preis, COALESCE(MwSt, 0.19) as MwSt, " +
-                    "COALESCE(KID, 1) as KID, COALESCE(Barcode, '') as Barcode, " +
-                    "COALESCE(IsWeightBased, 0) as IsWeightBased FROM Produkt WHERE PID = ?";
-        
+        Produkt product = katalog.findById(pid);
+        if (product == null) {
+            product = queryOne(FIND_BY_ID_SQL, pid);
+            if (product != null) {
+                katalog.put(product);
+            }
+        }
+        return product;
+    }
+    
+    /**
+     * Reload the product catalog from the database, e.g. after another lane changed prices.
+     */
+    public void reloadCatalog() {
+        katalog.reload();
+    }
+    
+    /**
+     * Catalog cache metrics (hit rate and reload time).
+     */
+    public ProduktKatalog.KatalogStats getCatalogStats() {
+        return katalog.getStats();
+    }
+    
+    private List<Produkt> loadAllFromDatabase() throws SQLException {
+        List<Produkt> products = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                products.add(mapProduct(rs));
+            }
+        }
+        return products;
+    }
+    
+    private Produkt queryOne(String sql, Object key) {
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, pid);
+            stmt.setObject(1, key);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Produkt product = new Produkt();
-                    product.setPid(rs.getInt("PID"));
-                    product.setBezeichnung(rs.getString("Bezeichnung"));
-                    product.setPreis(rs.getDouble("Preis"));
-                    product.setMwst(rs.getDouble("MwSt"));
-                    product.setKid(rs.getInt("KID"));
-                    product.setBarcode(rs.getString("Barcode"));
-                    product.setWeightBased(rs.getBoolean("IsWeightBased"));
-                    return product;
+                    return mapProduct(rs);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error finding product by ID: " + e.getMessage());
+            System.err.println("Error finding product: " + e.getMessage());
         }
         
         return null;
     }
     
+    private Produkt mapProduct(ResultSet rs) throws SQLException {
+        Produkt product = new Produkt();
+        product.setPid(rs.getInt("PID"));
+        product.setBezeichnung(rs.getString("Bezeichnung"));
+        product.setMwst(rs.getDouble("MwSt"));
+        product.setPreisCents(rs.getLong("PreisCent"));
+        product.setKid(rs.getInt("KID"));
+        product.setBarcode(rs.getString("Barcode"));
+        product.setWeightBased(rs.getBoolean("IsWeightBased"));
+        return product;
+    }
+    
     /**
      * Add or update product.
      */
     public boolean saveProduct(Produkt product) {
-        if (product.getPid() > 0) {
-            return updateProduct(product);
-        } else {
-            return insertProduct(product);
+        boolean saved = product.getPid() > 0 ? updateProduct(product) : insertProduct(product);
+        if (saved) {
+            katalog.put(product);
         }
+        return saved;
     }
     
     private boolean insertProduct(Produkt product) {
-        String sql = "INSERT INTO Produkt (Bezeichnung, Preis, MwSt, KID, Barcode, IsWeightBased) VALUES (?, ?, ?, ?, ?, ?)";
+        // PID is a plain INT PRIMARY KEY (no rowid alias), so it has to be assigned explicitly
+        String idSql = "SELECT COALESCE(MAX(PID), 0) + 1 FROM Produkt";
+        String sql = "INSERT INTO Produkt (PID, Bezeichnung, Preis, PreisCent, MwSt, KID, Barcode, IsWeightBased) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
             
-            stmt.setString(1, product.getBezeichnung());
-            stmt.setDouble(2, product.getPreis());
-            stmt.setDouble(3, product.getMwst());
-            stmt.setInt(4, product.getKid());
-            stmt.setString(5, product.getBarcode());
-            stmt.setBoolean(6, product.isWeightBased());
+            int pid;
+            try (PreparedStatement idStmt = conn.prepareStatement(idSql);
+                 ResultSet rs = idStmt.executeQuery()) {
+                rs.next();
+                pid = rs.getInt(1);
+            }
             
-            return stmt.executeUpdate() > 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, pid);
+                stmt.setString(2, product.getBezeichnung());
+                stmt.setDouble(3, product.getPreis());
+                stmt.setLong(4, product.getPreisCents());
+                stmt.setDouble(5, product.getMwst());
+                stmt.setInt(6, product.getKid());
+                stmt.setString(7, barcodeOrNull(product));
+                stmt.setBoolean(8, product.isWeightBased());
+                
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            
+            conn.commit();
+            product.setPid(pid);
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Error inserting product: " + e.getMessage());
@@ -147,18 +197,20 @@ public class ProduktService {
     }
     
     private boolean updateProduct(Produkt product) {
-        String sql = "UPDATE Produkt SET Bezeichnung = ?, Preis = ?, MwSt = ?, KID = ?, Barcode = ?, IsWeightBased = ? WHERE PID = ?";
+        String sql = "UPDATE Produkt SET Bezeichnung = ?, Preis = ?, PreisCent = ?, MwSt = ?, KID = ?, Barcode = ?, " +
+                "IsWeightBased = ? WHERE PID = ?";
         
         try (Connection conn = dbManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, product.getBezeichnung());
             stmt.setDouble(2, product.getPreis());
-            stmt.setDouble(3, product.getMwst());
-            stmt.setInt(4, product.getKid());
-            stmt.setString(5, product.getBarcode());
-            stmt.setBoolean(6, product.isWeightBased());
-            stmt.setInt(7, product.getPid());
+            stmt.setLong(3, product.getPreisCents());
+            stmt.setDouble(4, product.getMwst());
+            stmt.setInt(5, product.getKid());
+            stmt.setString(6, barcodeOrNull(product));
+            stmt.setBoolean(7, product.isWeightBased());
+            stmt.setInt(8, product.getPid());
             
             return stmt.executeUpdate() > 0;
             
@@ -167,4 +219,10 @@ public class ProduktService {
             return false;
         }
     }
-}
\ No newline at end of file
+    
+    // Barcodes are unique; products without one are stored as NULL, never as ''
+    private String barcodeOrNull(Produkt product) {
+        String barcode = product.getBarcode();
+        return barcode == null || barcode.trim().isEmpty() ? null : barcode.trim();
+    }
+}
@@ -0,0 +1,481 @@
+package de.obj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable type-ahead index over product names and barcodes.
+ * Search terms of one or two characters match word prefixes; longer terms are looked up in a
+ * trigram index and confirmed as substrings. Barcodes match by prefix. A query with several
+ * words must match all of them. Results are positions in name order, see {@link #get(int)}.
+ * A position stays with its product, so {@link #withProduct(Produkt)} only touches the postings
+ * of the one product that changed.
+ */
+public final class ProduktSuchindex {
+    private static final int[] NONE = new int[0];
+
+    private final Produkt[] products;
+    private final String[] names;
+    // Formatted list text, filled on first display
+    private final String[] display;
+    // All positions in name order, and the place of each position in it
+    private final int[] all;
+    private final int[] rank;
+    private final boolean positionsInNameOrder;
+    // First one and two characters of every word to ascending product positions
+    private final Map<String, int[]> wordPrefixes;
+    private final String[] barcodes;
+    private final int[] barcodeProduct;
+    // Trigram (three chars packed into a long) to ascending product positions
+    private final Map<Long, int[]> trigrams;
+
+    public ProduktSuchindex(List<Produkt> catalog) {
+        products = catalog.toArray(new Produkt[0]);
+        Arrays.sort(products, Comparator.comparing(ProduktSuchindex::sortKey));
+        int n = products.length;
+        names = new String[n];
+        display = new String[n];
+        all = new int[n];
+        rank = new int[n];
+
+        Map<String, IntList> prefixes = new HashMap<>();
+        List<Entry> codes = new ArrayList<>();
+        Map<Long, IntList> grams = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            all[i] = i;
+            rank[i] = i;
+            names[i] = normalize(products[i].getBezeichnung());
+            for (String prefix : prefixKeys(names[i])) {
+                addPosting(prefixes, prefix, i);
+            }
+            for (Long gram : trigramKeys(names[i])) {
+                addPosting(grams, gram, i);
+            }
+            String barcode = products[i].getBarcode();
+            if (barcode != null && !barcode.isEmpty()) {
+                codes.add(new Entry(barcode, i));
+            }
+        }
+
+        wordPrefixes = compact(prefixes);
+        codes.sort(Comparator.comparing(e -> e.key));
+        barcodes = new String[codes.size()];
+        barcodeProduct = new int[codes.size()];
+        for (int i = 0; i < barcodes.length; i++) {
+            barcodes[i] = codes.get(i).key;
+            barcodeProduct[i] = codes.get(i).product;
+        }
+        trigrams = compact(grams);
+        positionsInNameOrder = true;
+    }
+
+    private ProduktSuchindex(Produkt[] products, String[] names, String[] display, int[] all,
+                             Map<String, int[]> wordPrefixes, String[] barcodes, int[] barcodeProduct,
+                             Map<Long, int[]> trigrams) {
+        this.products = products;
+        this.names = names;
+        this.display = display;
+        this.all = all;
+        this.rank = new int[all.length];
+        boolean inOrder = true;
+        for (int i = 0; i < all.length; i++) {
+            rank[all[i]] = i;
+            inOrder &= all[i] == i;
+        }
+        this.positionsInNameOrder = inOrder;
+        this.wordPrefixes = wordPrefixes;
+        this.barcodes = barcodes;
+        this.barcodeProduct = barcodeProduct;
+        this.trigrams = trigrams;
+    }
+
+    /**
+     * Copy of this index with one product added, or replaced if its PID is already indexed.
+     * Only the postings of that product are rewritten; all other postings and cached list texts are shared.
+     */
+    public ProduktSuchindex withProduct(Produkt product) {
+        int position = 0;
+        while (position < products.length && products[position].getPid() != product.getPid()) {
+            position++;
+        }
+        boolean added = position == products.length;
+        int n = added ? products.length + 1 : products.length;
+        Produkt[] newProducts = Arrays.copyOf(products, n);
+        String[] newNames = Arrays.copyOf(names, n);
+        String[] newDisplay = Arrays.copyOf(display, n);
+        newProducts[position] = product;
+        newNames[position] = normalize(product.getBezeichnung());
+        newDisplay[position] = null;
+
+        String oldName = added ? null : names[position];
+        String name = newNames[position];
+        Map<String, int[]> newPrefixes = wordPrefixes;
+        Map<Long, int[]> newTrigrams = trigrams;
+        int[] newAll = all;
+        if (!name.equals(oldName)) {
+            Set<String> oldPrefixes = added ? Collections.<String>emptySet() : prefixKeys(oldName);
+            Set<String> prefixes = prefixKeys(name);
+            newPrefixes = new HashMap<>(wordPrefixes);
+            updatePostings(newPrefixes, oldPrefixes, prefixes, position);
+            Set<Long> oldGrams = added ? Collections.<Long>emptySet() : trigramKeys(oldName);
+            Set<Long> grams = trigramKeys(name);
+            newTrigrams = new HashMap<>(trigrams);
+            updatePostings(newTrigrams, oldGrams, grams, position);
+            newAll = reorder(newNames, position, added);
+        }
+
+        String[] newBarcodes = barcodes;
+        int[] newBarcodeProduct = barcodeProduct;
+        String oldBarcode = added ? null : products[position].getBarcode();
+        String barcode = product.getBarcode();
+        if (!Objects.equals(emptyToNull(oldBarcode), emptyToNull(barcode))) {
+            List<Entry> codes = new ArrayList<>(barcodes.length + 1);
+            for (int i = 0; i < barcodes.length; i++) {
+                if (barcodeProduct[i] != position) {
+                    codes.add(new Entry(barcodes[i], barcodeProduct[i]));
+                }
+            }
+            if (emptyToNull(barcode) != null) {
+                int at = 0;
+                while (at < codes.size() && codes.get(at).key.compareTo(barcode) < 0) {
+                    at++;
+                }
+                codes.add(at, new Entry(barcode, position));
+            }
+            newBarcodes = new String[codes.size()];
+            newBarcodeProduct = new int[codes.size()];
+            for (int i = 0; i < newBarcodes.length; i++) {
+                newBarcodes[i] = codes.get(i).key;
+                newBarcodeProduct[i] = codes.get(i).product;
+            }
+        }
+        return new ProduktSuchindex(newProducts, newNames, newDisplay, newAll, newPrefixes,
+                newBarcodes, newBarcodeProduct, newTrigrams);
+    }
+
+    private static <K> void updatePostings(Map<K, int[]> postings, Set<K> oldKeys, Set<K> newKeys, int position) {
+        for (K key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                int[] list = postings.get(key);
+                int at = Arrays.binarySearch(list, position);
+                if (list.length == 1) {
+                    postings.remove(key);
+                } else {
+                    int[] shorter = new int[list.length - 1];
+                    System.arraycopy(list, 0, shorter, 0, at);
+                    System.arraycopy(list, at + 1, shorter, at, shorter.length - at);
+                    postings.put(key, shorter);
+                }
+            }
+        }
+        for (K key : newKeys) {
+            if (!oldKeys.contains(key)) {
+                int[] list = postings.get(key);
+                if (list == null) {
+                    postings.put(key, new int[] {position});
+                } else {
+                    int at = -Arrays.binarySearch(list, position) - 1;
+                    int[] longer = new int[list.length + 1];
+                    System.arraycopy(list, 0, longer, 0, at);
+                    longer[at] = position;
+                    System.arraycopy(list, at, longer, at + 1, list.length - at);
+                    postings.put(key, longer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Name order after the name at a position changed: take the position out and insert it after all
+     * equal or smaller names.
+     */
+    private int[] reorder(String[] newNames, int position, boolean added) {
+        int[] others = new int[products.length - (added ? 0 : 1)];
+        int size = 0;
+        for (int p : all) {
+            if (p != position) {
+                others[size++] = p;
+            }
+        }
+        String name = newNames[position];
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (newNames[others[mid]].compareTo(name) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int[] order = new int[size + 1];
+        System.arraycopy(others, 0, order, 0, lo);
+        order[lo] = position;
+        System.arraycopy(others, lo, order, lo + 1, size - lo);
+        return order;
+    }
+
+    private static Set<String> prefixKeys(String name) {
+        Set<String> keys = new HashSet<>();
+        for (int start = 0; start < name.length(); start++) {
+            if (Character.isLetterOrDigit(name.charAt(start))
+                    && (start == 0 || !Character.isLetterOrDigit(name.charAt(start - 1)))) {
+                keys.add(name.substring(start, start + 1));
+                if (start + 2 <= name.length()) {
+                    keys.add(name.substring(start, start + 2));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static Set<Long> trigramKeys(String name) {
+        Set<Long> keys = new HashSet<>();
+        for (int k = 0; k + 3 <= name.length(); k++) {
+            keys.add(trigram(name, k));
+        }
+        return keys;
+    }
+
+    private static String emptyToNull(String text) {
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    private static <K> void addPosting(Map<K, IntList> postings, K key, int position) {
+        IntList list = postings.computeIfAbsent(key, k -> new IntList());
+        // Positions are added in order, so checking the last one removes duplicates
+        if (list.size == 0 || list.values[list.size - 1] != position) {
+            list.add(position);
+        }
+    }
+
+    private static <K> Map<K, int[]> compact(Map<K, IntList> postings) {
+        Map<K, int[]> result = new HashMap<>(postings.size() * 2);
+        for (Map.Entry<K, IntList> e : postings.entrySet()) {
+            result.put(e.getKey(), e.getValue().toArray());
+        }
+        return result;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    public Produkt get(int position) {
+        return products[position];
+    }
+
+    /**
+     * List text of a product, formatted once and then reused.
+     */
+    public String getDisplayText(int position) {
+        String text = display[position];
+        if (text == null) {
+            text = products[position].toString();
+            display[position] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Positions of all matching products in name order. An empty query matches everything.
+     * The returned array must not be modified.
+     */
+    public int[] search(String query) {
+        String normalized = normalize(query).trim();
+        if (normalized.isEmpty()) {
+            return all;
+        }
+        int[] result = null;
+        for (String term : normalized.split("\\s+")) {
+            int[] matches = union(matchName(term), matchBarcode(term));
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return inNameOrder(result);
+    }
+
+    /**
+     * Sort ascending positions by name; after {@link #withProduct(Produkt)} the two orders differ.
+     */
+    private int[] inNameOrder(int[] positions) {
+        if (positionsInNameOrder || positions.length < 2) {
+            return positions;
+        }
+        long[] keyed = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            keyed[i] = ((long) rank[positions[i]] << 32) | positions[i];
+        }
+        Arrays.sort(keyed);
+        int[] ordered = new int[positions.length];
+        for (int i = 0; i < keyed.length; i++) {
+            ordered[i] = (int) keyed[i];
+        }
+        return ordered;
+    }
+
+    private int[] matchName(String term) {
+        if (term.length() < 3) {
+            return matchWordPrefix(term);
+        }
+        // Start with the rarest trigram and narrow down with the others
+        int[] candidates = null;
+        for (int k = 0; k + 3 <= term.length(); k++) {
+            int[] postings = trigrams.get(trigram(term, k));
+            if (postings == null) {
+                return NONE;
+            }
+            if (candidates == null || postings.length < candidates.length) {
+                candidates = postings;
+            }
+        }
+        IntList matches = new IntList();
+        for (int position : candidates) {
+            // Trigrams do not keep their order, so confirm the actual substring
+            if (names[position].contains(term)) {
+                matches.add(position);
+            }
+        }
+        return matches.toArray();
+    }
+
+    private int[] matchWordPrefix(String term) {
+        int[] postings = wordPrefixes.get(term);
+        return postings == null ? NONE : postings;
+    }
+
+    private int[] matchBarcode(String term) {
+        if (!Character.isDigit(term.charAt(0))) {
+            return NONE;
+        }
+        int from = lowerBound(barcodes, term);
+        IntList matches = new IntList();
+        for (int i = from; i < barcodes.length && barcodes[i].startsWith(term); i++) {
+            matches.add(barcodeProduct[i]);
+        }
+        return sortedDistinct(matches);
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] sortedDistinct(IntList list) {
+        int[] values = list.toArray();
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (size == 0 || values[size - 1] != values[i]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+                if (j < b.length && b[j] == next) {
+                    j++;
+                }
+            } else {
+                next = b[j++];
+            }
+            out[size++] = next;
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static long trigram(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+
+    private static String sortKey(Produkt p) {
+        return normalize(p.getBezeichnung());
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.GERMAN);
+    }
+
+    private static final class Entry {
+        final String key;
+        final int product;
+
+        Entry(String key, int product) {
+            this.key = key;
+            this.product = product;
+        }
+    }
+
+    /**
+     * Growable int array without boxing.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.obj;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a complete receipt (header, seller and positions) with a single JOIN query.
+ * Positions are rebuilt from the stored Einzelpreis, not from the current product price.
+ */
+public class ReceiptLoader {
+    static final String RECEIPT_SQL =
+            "SELECT k.BonID, k.VerkauferID, k.Datum, k.DatumEpoch, k.IsCancelled, " +
+            "v.Vorname, v.Nachname, COALESCE(v.Rolle, 'VERKAUFER') as Rolle, " +
+            "bp.ProduktID, bp.Menge, bp.EinzelpreisCent, " +
+            "p.Bezeichnung, COALESCE(p.MwSt, 0.19) as MwSt, COALESCE(p.KID, 1) as KID, " +
+            "COALESCE(p.Barcode, '') as Barcode, COALESCE(p.IsWeightBased, 0) as IsWeightBased " +
+            "FROM Kassenbons k " +
+            "LEFT JOIN Verkäufer v ON v.VID = k.VerkauferID " +
+            "LEFT JOIN BonPositionen bp ON bp.BonID = k.BonID " +
+            "LEFT JOIN Produkt p ON p.PID = bp.ProduktID " +
+            "WHERE k.BonID = ? ORDER BY bp.PositionID";
+
+    /**
+     * Load a receipt on the given connection, or null if it does not exist.
+     */
+    public Bon load(Connection conn, int bonId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RECEIPT_SQL)) {
+            stmt.setInt(1, bonId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                Bon bon = new Bon();
+                bon.setBonId(rs.getInt("BonID"));
+                bon.setCancelled(rs.getBoolean("IsCancelled"));
+                bon.setDatum(readDatum(rs));
+                bon.setVerkaufer(mapVerkaufer(rs));
+
+                List<Artikel> positionen = new ArrayList<>();
+                do {
+                    // A receipt without positions yields one row with NULL position columns
+                    if (rs.getObject("ProduktID") != null) {
+                        positionen.add(mapPosition(rs));
+                    }
+                } while (rs.next());
+                bon.setPositionen(positionen);
+
+                return bon;
+            }
+        }
+    }
+
+    private LocalDateTime readDatum(ResultSet rs) throws SQLException {
+        long epochMillis = rs.getLong("DatumEpoch");
+        if (rs.wasNull()) {
+            // Rows written before the epoch column existed and not yet backfilled
+            return LocalDateTime.parse(rs.getString("Datum"), Zeitstempel.DB_FORMAT);
+        }
+        return Zeitstempel.fromEpochMillis(epochMillis);
+    }
+
+    private User mapVerkaufer(ResultSet rs) throws SQLException {
+        if (rs.getString("Vorname") == null && rs.getString("Nachname") == null) {
+            return null;
+        }
+        User user = new User();
+        user.setVid(rs.getInt("VerkauferID"));
+        user.setVorname(rs.getString("Vorname"));
+        user.setNachname(rs.getString("Nachname"));
+        user.setRolle("FILIALLEITER".equals(rs.getString("Rolle")) ? User.Role.FILIALLEITER : User.Role.VERKAUFER);
+        return user;
+    }
+
+    private Artikel mapPosition(ResultSet rs) throws SQLException {
+        int pid = rs.getInt("ProduktID");
+        String bezeichnung = rs.getString("Bezeichnung");
+        double mwst = rs.getDouble("MwSt");
+
+        Produkt produkt = new Produkt();
+        produkt.setPid(pid);
+        produkt.setBezeichnung(bezeichnung != null ? bezeichnung : "Artikel " + pid);
+        produkt.setMwst(mwst);
+        // Einzelpreis is stored gross; keep it exactly and derive netto from it
+        produkt.setBruttoPreisCents(rs.getLong("EinzelpreisCent"));
+        produkt.setKid(rs.getInt("KID"));
+        produkt.setBarcode(rs.getString("Barcode"));
+        produkt.setWeightBased(rs.getBoolean("IsWeightBased"));
+
+        return new Artikel(produkt, rs.getDouble("Menge"));
+    }
+}
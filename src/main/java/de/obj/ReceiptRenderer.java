@@ -0,0 +1,346 @@
+package de.obj;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders receipts into reusable buffers, as plain text or as ESC/POS bytes for thermal printers.
+ * Numbers and dates are written digit by digit, so a render allocates nothing once the buffers are warm.
+ * An instance is not thread-safe; the returned text and bytes are only valid until the next render.
+ */
+public class ReceiptRenderer {
+    private static final String DOUBLE_LINE = "=====================================";
+    private static final String SINGLE_LINE = "-------------------------------------";
+    private static final String COMPANY = "GoodFood GmbH";
+    private static final String COMPANY_LINE = "           GoodFood GmbH            ";
+
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    // ESC t 19 selects code page 858 (CP850 with the euro sign)
+    private static final byte CODE_PAGE_858 = 19;
+
+    private final StringBuilder text = new StringBuilder(4096);
+    private final TextTarget textTarget = new TextTarget(text);
+    private final EscPosTarget escPosTarget = new EscPosTarget();
+
+    /**
+     * Render the receipt as plain text. The returned buffer is reused by the next call.
+     */
+    public CharSequence renderText(Bon bon) {
+        text.setLength(0);
+        layout(bon, textTarget);
+        return text;
+    }
+
+    /**
+     * Render the receipt as ESC/POS commands; the valid bytes are [0, getEscPosLength()).
+     * The returned array is reused by the next call.
+     */
+    public byte[] renderEscPos(Bon bon) {
+        EscPosTarget t = escPosTarget;
+        t.length = 0;
+        t.command(ESC, (byte) '@');
+        t.command(ESC, (byte) 't', CODE_PAGE_858);
+        layout(bon, t);
+        t.command(GS, (byte) 'V', (byte) 66);
+        t.put('\0'); // GS V 66 n: feed n lines and partial cut
+        return t.bytes;
+    }
+
+    public int getEscPosLength() {
+        return escPosTarget.length;
+    }
+
+    /**
+     * Copy of the last ESC/POS render, trimmed to its length.
+     */
+    public byte[] copyEscPos() {
+        return Arrays.copyOf(escPosTarget.bytes, escPosTarget.length);
+    }
+
+    private void layout(Bon bon, Target t) {
+        t.line(DOUBLE_LINE);
+        t.heading();
+        t.line(DOUBLE_LINE);
+
+        t.text("Datum: ");
+        appendDatum(t, bon.getDatum());
+        t.newline();
+        User verkaufer = bon.getVerkaufer();
+        if (verkaufer != null) {
+            t.text("Verkäufer: ");
+            t.text(verkaufer.getVorname());
+            t.put(' ');
+            t.text(verkaufer.getNachname());
+            t.newline();
+        }
+        t.text("Bon-Nr: ");
+        if (bon.getBonId() == 0 && bon.getJournalId() != null) {
+            // Printed offline, before the database has handed out a BonID
+            t.text(bon.getVorlaeufigeNummer());
+            t.text(" (vorläufig)");
+        } else {
+            appendLong(t, bon.getBonId());
+        }
+        t.newline();
+        t.line(SINGLE_LINE);
+
+        List<Artikel> positionen = bon.getPositionen();
+        for (int i = 0; i < positionen.size(); i++) {
+            appendLong(t, i + 1);
+            t.text(". ");
+            appendPosition(t, positionen.get(i));
+            t.newline();
+        }
+
+        t.line(SINGLE_LINE);
+        t.text("Netto: ");
+        appendAmount(t, bon.getNettoGesamtbetragCents());
+        t.text(" EUR");
+        t.newline();
+        t.text("MwSt:  ");
+        appendAmount(t, bon.getGesamtMwstCents());
+        t.text(" EUR");
+        t.newline();
+        for (int i = 0; i < bon.getMwstSatzCount(); i++) {
+            if (bon.getMwstSatzBrutto(i) != 0) {
+                t.text("  ");
+                appendMwstZeile(t, bon.getMwstSatz(i), bon.getMwstSatzBetrag(i), bon.getMwstSatzBrutto(i));
+                t.newline();
+            }
+        }
+        t.emphasis(true);
+        t.text("TOTAL: ");
+        appendAmount(t, bon.getBruttoGesamtbetragCents());
+        t.text(" EUR");
+        t.emphasis(false);
+        t.newline();
+        t.line(DOUBLE_LINE);
+
+        if (bon.isCancelled()) {
+            t.emphasis(true);
+            t.line("*** STORNIERT ***");
+            t.emphasis(false);
+        }
+    }
+
+    /**
+     * Position text as shown on the receipt and in the article lists.
+     */
+    static void appendPosition(StringBuilder sb, Artikel artikel) {
+        appendPosition(new TextTarget(sb), artikel);
+    }
+
+    static void appendMwstZeile(StringBuilder sb, int rateBasisPoints, long mwstCents, long bruttoCents) {
+        appendMwstZeile(new TextTarget(sb), rateBasisPoints, mwstCents, bruttoCents);
+    }
+
+    private static void appendPosition(Target t, Artikel artikel) {
+        appendMenge(t, artikel.getMengeMilli());
+        t.text(artikel.getProdukt().isWeightBased() ? " kg " : " Stück ");
+        t.text(artikel.getProdukt().getBezeichnung());
+        t.text(" = ");
+        appendAmount(t, artikel.getNettoGesamtpreisCents());
+        t.text(" EUR (netto) ");
+        appendAmount(t, artikel.getBruttoGesamtpreisCents());
+        t.text(" EUR (brutto)");
+    }
+
+    private static void appendMwstZeile(Target t, int rateBasisPoints, long mwstCents, long bruttoCents) {
+        appendLong(t, rateBasisPoints / 100);
+        t.text("% MwSt: ");
+        appendAmount(t, mwstCents);
+        t.text(" (netto ");
+        appendAmount(t, bruttoCents - mwstCents);
+        t.text(", brutto ");
+        appendAmount(t, bruttoCents);
+        t.put(')');
+    }
+
+    private static void appendDatum(Target t, LocalDateTime datum) {
+        append2(t, datum.getDayOfMonth());
+        t.put('.');
+        append2(t, datum.getMonthValue());
+        t.put('.');
+        appendLong(t, datum.getYear());
+        t.put(' ');
+        append2(t, datum.getHour());
+        t.put(':');
+        append2(t, datum.getMinute());
+        t.put(':');
+        append2(t, datum.getSecond());
+    }
+
+    private static void append2(Target t, int value) {
+        t.put((char) ('0' + value / 10));
+        t.put((char) ('0' + value % 10));
+    }
+
+    /**
+     * Quantity with up to two decimals and no trailing zeros, e.g. 2, 0.5, 1.25.
+     */
+    private static void appendMenge(Target t, long mengeMilli) {
+        if (mengeMilli < 0) {
+            t.put('-');
+            mengeMilli = -mengeMilli;
+        }
+        long hundredths = (mengeMilli + 5) / 10;
+        appendLong(t, hundredths / 100);
+        int fraction = (int) (hundredths % 100);
+        if (fraction != 0) {
+            t.put('.');
+            t.put((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                t.put((char) ('0' + fraction % 10));
+            }
+        }
+    }
+
+    private static void appendAmount(Target t, long cents) {
+        if (cents < 0) {
+            t.put('-');
+            cents = -cents;
+        }
+        appendLong(t, cents / 100);
+        t.put('.');
+        append2(t, (int) (cents % 100));
+    }
+
+    private static void appendLong(Target t, long value) {
+        if (value < 0) {
+            t.put('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            t.put((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    /**
+     * Output target of a render.
+     */
+    private abstract static class Target {
+        abstract void put(char c);
+
+        abstract void emphasis(boolean on);
+
+        abstract void heading();
+
+        void text(String s) {
+            if (s == null) {
+                return;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                put(s.charAt(i));
+            }
+        }
+
+        void newline() {
+            put('\n');
+        }
+
+        void line(String s) {
+            text(s);
+            newline();
+        }
+    }
+
+    private static final class TextTarget extends Target {
+        private final StringBuilder sb;
+
+        TextTarget(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        @Override
+        void put(char c) {
+            sb.append(c);
+        }
+
+        @Override
+        void text(String s) {
+            if (s != null) {
+                sb.append(s);
+            }
+        }
+
+        @Override
+        void emphasis(boolean on) {
+            // Plain text has no styles
+        }
+
+        @Override
+        void heading() {
+            line(COMPANY_LINE);
+        }
+    }
+
+    private static final class EscPosTarget extends Target {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        @Override
+        void put(char c) {
+            ensure(1);
+            bytes[length++] = encode(c);
+        }
+
+        @Override
+        void emphasis(boolean on) {
+            // ESC E n: bold, GS ! n: character size (double width and height when on)
+            command(ESC, (byte) 'E', (byte) (on ? 1 : 0));
+            command(GS, (byte) '!', (byte) (on ? 0x11 : 0));
+        }
+
+        @Override
+        void heading() {
+            command(ESC, (byte) 'a', (byte) 1); // centered
+            emphasis(true);
+            line(COMPANY);
+            emphasis(false);
+            command(ESC, (byte) 'a', (byte) 0);
+        }
+
+        void command(byte b1, byte b2) {
+            ensure(2);
+            bytes[length++] = b1;
+            bytes[length++] = b2;
+        }
+
+        void command(byte b1, byte b2, byte b3) {
+            ensure(3);
+            bytes[length++] = b1;
+            bytes[length++] = b2;
+            bytes[length++] = b3;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private static byte encode(char c) {
+            if (c < 0x80) {
+                return (byte) c;
+            }
+            switch (c) {
+                case 'ä': return (byte) 0x84;
+                case 'ö': return (byte) 0x94;
+                case 'ü': return (byte) 0x81;
+                case 'Ä': return (byte) 0x8E;
+                case 'Ö': return (byte) 0x99;
+                case 'Ü': return (byte) 0x9A;
+                case 'ß': return (byte) 0xE1;
+                case 'é': return (byte) 0x82;
+                case '€': return (byte) 0xD5;
+                default: return (byte) '?';
+            }
+        }
+    }
+}
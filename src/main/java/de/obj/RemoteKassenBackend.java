@@ -0,0 +1,376 @@
+package de.obj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend of a lane that talks to a {@link KassenServer} instead of opening the database.
+ * The product catalog is loaded once from the server and kept locally, so scans and the
+ * type-ahead search do not wait for the network. Each login opens a session on the server; a sale
+ * is sent with the session of its own seller, so sales booked later from the journal keep their
+ * seller. Cancellations and product changes carry the session of the acting Filialleiter; the
+ * remaining calls that need a login carry the session of the last login.
+ */
+public class RemoteKassenBackend implements KassenBackend {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+
+    private final String baseUrl;
+    private final ProduktKatalog katalog;
+    private volatile String session;
+    // VID -> session of every seller who logged in at this lane
+    private final Map<Integer, String> sessionsByVid = new ConcurrentHashMap<>();
+
+    /**
+     * @param server host:port of the store server, or a full http:// URL
+     */
+    public RemoteKassenBackend(String server) {
+        this.baseUrl = (server.startsWith("http://") ? server : "http://" + server) + KassenProtokoll.PATH;
+        this.katalog = new ProduktKatalog(this::loadProducts);
+    }
+
+    /**
+     * A request body writer; requests without arguments pass null.
+     */
+    private interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A response body reader.
+     */
+    private interface Response<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Non-OK answer of the server.
+     */
+    private static final class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        StatusException(int status, String operation) {
+            super("Server antwortet " + status + " auf " + operation);
+            this.status = status;
+        }
+    }
+
+    private <T> T call(String operation, Request request, Response<T> response) throws IOException {
+        return call(operation, session, request, response);
+    }
+
+    private <T> T call(String operation, String currentSession, Request request, Response<T> response)
+            throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + operation).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", KassenProtokoll.CONTENT_TYPE);
+        if (currentSession != null) {
+            conn.setRequestProperty(KassenProtokoll.SESSION_HEADER, currentSession);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        if (request != null) {
+            DataOutputStream out = new DataOutputStream(body);
+            request.write(out);
+            out.flush();
+        }
+        conn.setFixedLengthStreamingMode(body.size());
+        try (OutputStream out = new BufferedOutputStream(conn.getOutputStream())) {
+            body.writeTo(out);
+        }
+        int status = conn.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            InputStream error = conn.getErrorStream();
+            if (error != null) {
+                error.close();
+            }
+            throw new StatusException(status, operation);
+        }
+        // Closing the fully read stream hands the connection back to the JDK's keep-alive cache
+        try (InputStream in = new BufferedInputStream(conn.getInputStream())) {
+            return response.read(new DataInputStream(in));
+        }
+    }
+
+    private List<Produkt> loadProducts() throws SQLException {
+        try {
+            return call(KassenProtokoll.PRODUCTS, null, KassenProtokoll::readProdukte);
+        } catch (IOException e) {
+            throw new SQLException("Store server not reachable: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            return call(KassenProtokoll.PING, null, DataInputStream::readBoolean);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        try {
+            return call(KassenProtokoll.USERS, null, KassenProtokoll::readUsers);
+        } catch (IOException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public User authenticate(int vid, String pin) {
+        try {
+            User user = call(KassenProtokoll.AUTHENTICATE, out -> {
+                out.writeInt(vid);
+                out.writeUTF(pin);
+            }, in -> {
+                User authenticated = KassenProtokoll.readUser(in);
+                if (authenticated != null) {
+                    session = in.readUTF();
+                    sessionsByVid.put(authenticated.getVid(), session);
+                }
+                return authenticated;
+            });
+            return user;
+        } catch (IOException e) {
+            System.err.println("Authentication error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void logout(User user) {
+        String userSession = sessionsByVid.remove(user.getVid());
+        if (userSession == null) {
+            return;
+        }
+        if (userSession.equals(session)) {
+            Iterator<String> others = sessionsByVid.values().iterator();
+            session = others.hasNext() ? others.next() : null;
+        }
+        try {
+            call(KassenProtokoll.LOGOUT, userSession, null, DataInputStream::readBoolean);
+        } catch (IOException e) {
+            // The server drops the session once it has been idle long enough
+            System.err.println("Logout error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Produkt> getAllProducts() {
+        return new ArrayList<>(katalog.getAll());
+    }
+
+    @Override
+    public ProduktSuchindex getSuchindex() {
+        return katalog.getSuchindex();
+    }
+
+    @Override
+    public Produkt findByBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) {
+            return null;
+        }
+        Produkt product = katalog.findByBarcode(barcode);
+        if (product == null) {
+            // Possibly added at another lane since the catalog was loaded
+            try {
+                product = call(KassenProtokoll.PRODUCT_BY_BARCODE, out -> out.writeUTF(barcode),
+                        KassenProtokoll::readProdukt);
+            } catch (IOException e) {
+                System.err.println("Error finding product: " + e.getMessage());
+            }
+            if (product != null) {
+                katalog.put(product);
+            }
+        }
+        return product;
+    }
+
+    @Override
+    public Produkt findCachedByBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) {
+            return null;
+        }
+        return katalog.peekByBarcode(barcode);
+    }
+
+    @Override
+    public boolean saveProduct(Produkt product, User changedBy) {
+        String userSession = sessionsByVid.get(changedBy.getVid());
+        try {
+            int pid = call(KassenProtokoll.SAVE_PRODUCT, userSession,
+                    out -> KassenProtokoll.writeProdukt(out, product), DataInputStream::readInt);
+            if (pid <= 0) {
+                return false;
+            }
+            product.setPid(pid);
+            katalog.put(product);
+            return true;
+        } catch (StatusException e) {
+            forgetRefused(e, changedBy.getVid(), userSession);
+            System.err.println("Error saving product: " + e.getMessage());
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error saving product: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Session of the sale's seller; the last login's for a sale without one.
+     */
+    private String sessionFor(Bon bon) {
+        return bon.getVerkaufer() == null ? session : sessionsByVid.get(bon.getVerkaufer().getVid());
+    }
+
+    @Override
+    public boolean canSave(Bon bon) {
+        return sessionFor(bon) != null && isAvailable();
+    }
+
+    @Override
+    public int saveSale(Bon bon) {
+        // Without a session of the seller the server refuses the sale
+        String sellerSession = sessionFor(bon);
+        try {
+            int bonId = call(KassenProtokoll.SAVE_SALE, sellerSession, out -> KassenProtokoll.writeBon(out, bon),
+                    DataInputStream::readInt);
+            if (bonId > 0) {
+                bon.setBonId(bonId);
+            }
+            return bonId;
+        } catch (StatusException e) {
+            forgetRefused(e, bon.getVerkaufer() == null ? -1 : bon.getVerkaufer().getVid(), sellerSession);
+            System.err.println("Error saving sale: " + e.getMessage());
+            return -1;
+        } catch (IOException e) {
+            System.err.println("Error saving sale: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Forget a session the server refused (unknown after a restart, or expired); the user has to log in again.
+     */
+    private void forgetRefused(StatusException e, int vid, String refusedSession) {
+        if (e.status == HttpURLConnection.HTTP_FORBIDDEN && refusedSession != null) {
+            sessionsByVid.remove(vid, refusedSession);
+        }
+    }
+
+    @Override
+    public BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+        try {
+            return call(KassenProtokoll.RESERVE_NUMBERS, out -> {
+                out.writeUTF(kasse);
+                out.writeInt(anzahl);
+            }, KassenProtokoll::readBlock);
+        } catch (IOException e) {
+            System.err.println("Error reserving receipt numbers: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean cancelSale(int bonId, User cancelledBy, String reason) {
+        if (!cancelledBy.isFilialleiter()) {
+            System.err.println("Only Filialleiter can cancel sales!");
+            return false;
+        }
+        // Booked on the session of the Filialleiter who cancels, not on whoever logged in last
+        String userSession = sessionsByVid.get(cancelledBy.getVid());
+        try {
+            return call(KassenProtokoll.CANCEL_SALE, userSession, out -> {
+                out.writeInt(bonId);
+                KassenProtokoll.writeString(out, reason);
+            }, DataInputStream::readBoolean);
+        } catch (StatusException e) {
+            forgetRefused(e, cancelledBy.getVid(), userSession);
+            System.err.println("Error cancelling sale: " + e.getMessage());
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error cancelling sale: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Bon getReceiptById(int bonId) {
+        try {
+            return call(KassenProtokoll.RECEIPT, out -> out.writeInt(bonId), KassenProtokoll::readBon);
+        } catch (IOException e) {
+            System.err.println("Error getting receipt: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public VerkaufService.SalesStatistics getSalesStatistics(String fromDate, String toDate) {
+        try {
+            return call(KassenProtokoll.STATISTICS, out -> {
+                out.writeUTF(fromDate);
+                out.writeUTF(toDate);
+            }, KassenProtokoll::readStatistics);
+        } catch (IOException e) {
+            System.err.println("Error getting statistics: " + e.getMessage());
+            return new VerkaufService.SalesStatistics();
+        }
+    }
+
+    @Override
+    public Map<Integer, VerkaufService.SalesStatistics> getSalesStatisticsByHour(String fromDate, String toDate) {
+        try {
+            return call(KassenProtokoll.STATISTICS_BY_HOUR, out -> {
+                out.writeUTF(fromDate);
+                out.writeUTF(toDate);
+            }, KassenProtokoll::readStatisticsMap);
+        } catch (IOException e) {
+            System.err.println("Error getting statistics: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> getRevenueByCategory(String fromDate, String toDate) {
+        try {
+            return call(KassenProtokoll.REVENUE_BY_CATEGORY, out -> {
+                out.writeUTF(fromDate);
+                out.writeUTF(toDate);
+            }, KassenProtokoll::readCentsMap);
+        } catch (IOException e) {
+            System.err.println("Error getting category revenue: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @Override
+    public String getSystemStatus() {
+        String local = "Lokaler " + katalog.getStats();
+        try {
+            return call(KassenProtokoll.STATUS, null, in -> in.readUTF()) + "\n" + local;
+        } catch (IOException e) {
+            return "Server " + baseUrl + " nicht erreichbar: " + e.getMessage() + "\n" + local;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package de.obj;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Streams Kassenbons, BonPositionen and Stornierungen for a date range to CSV or a compact binary format.
+ * Rows are read through a forward-only cursor in primary key order and written straight to disk,
+ * so memory use does not depend on the size of the range. All tables are read in one read
+ * transaction, so they show the same database state even while lanes keep selling. A checkpoint
+ * file allows resuming an interrupted export; the resumed part reads the state at resume time.
+ */
+public class SalesJournalExport {
+    /**
+     * Output format.
+     */
+    public enum Format { CSV, BINARY }
+
+    // Rows between two checkpoints
+    private static final int CHECKPOINT_INTERVAL = 5000;
+    private static final int FETCH_SIZE = 1000;
+    private static final byte[] BINARY_MAGIC = {'K', 'S', 'J', '1'};
+
+    /**
+     * One exported table: its keyset query (key column first) and the output file name.
+     */
+    private static final class Table {
+        final String name;
+        final String sql;
+
+        Table(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+        }
+    }
+
+    private static final Table[] TABLES = {
+        new Table("kassenbons",
+                "SELECT BonID, VerkauferID, Datum, DatumEpoch, GesamtbetragCent, IsCancelled FROM Kassenbons " +
+                "WHERE BonID > ? AND DatumEpoch >= ? AND DatumEpoch < ? ORDER BY BonID"),
+        new Table("bonpositionen",
+                "SELECT bp.PositionID, bp.BonID, bp.ProduktID, bp.Menge, bp.EinzelpreisCent, bp.GesamtpreisCent " +
+                "FROM BonPositionen bp JOIN Kassenbons k ON k.BonID = bp.BonID " +
+                "WHERE bp.PositionID > ? AND k.DatumEpoch >= ? AND k.DatumEpoch < ? ORDER BY bp.PositionID"),
+        new Table("stornierungen",
+                "SELECT StornierungID, BonID, StorniertVon, StorniertAm, StorniertAmEpoch, Grund FROM Stornierungen " +
+                "WHERE StornierungID > ? AND StorniertAmEpoch >= ? AND StorniertAmEpoch < ? " +
+                "ORDER BY StornierungID"),
+    };
+
+    private final DatabaseManager dbManager;
+
+    public SalesJournalExport() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Export all three tables for the date range (yyyy-MM-dd, inclusive) into the target directory.
+     * If a checkpoint from an interrupted run of the same export exists there, the export resumes.
+     *
+     * @return number of rows written in this run
+     */
+    public long export(String fromDate, String toDate, Format format, File targetDir)
+            throws IOException, SQLException {
+        if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+            throw new IOException("Cannot create export directory " + targetDir);
+        }
+        Checkpoint checkpoint = Checkpoint.load(new File(targetDir, "export.checkpoint"),
+                fromDate + "|" + toDate + "|" + format);
+
+        long rows = 0;
+        try (Connection conn = dbManager.getReportingConnection()) {
+            // One snapshot for all tables (WAL: readers see the state at their first read and never block writers)
+            conn.setAutoCommit(false);
+            for (Table table : TABLES) {
+                if (!checkpoint.isDone(table.name)) {
+                    rows += exportTable(conn, table, fromDate, toDate, format, targetDir, checkpoint);
+                }
+            }
+            conn.commit();
+        }
+        checkpoint.delete();
+        return rows;
+    }
+
+    private long exportTable(Connection conn, Table table, String fromDate, String toDate, Format format,
+            File targetDir, Checkpoint checkpoint) throws IOException, SQLException {
+        File file = new File(targetDir, table.name + (format == Format.CSV ? ".csv" : ".bin"));
+        long lastKey = checkpoint.getLastKey(table.name);
+        boolean resume = lastKey > 0 || checkpoint.getOffset(table.name) > 0;
+        if (resume) {
+            // Drop whatever was written after the last checkpoint
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(checkpoint.getOffset(table.name));
+            }
+        }
+
+        long rows = 0;
+        try (CountingOutputStream out = new CountingOutputStream(new FileOutputStream(file, resume),
+                resume ? file.length() : 0);
+             PreparedStatement stmt = conn.prepareStatement(table.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            stmt.setLong(1, lastKey);
+            stmt.setLong(2, Zeitstempel.startOfDay(fromDate));
+            stmt.setLong(3, Zeitstempel.endOfDay(toDate));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new BinaryRowWriter(out);
+                ResultSetMetaData meta = rs.getMetaData();
+                if (!resume) {
+                    writer.header(table.name, meta);
+                }
+                int columns = meta.getColumnCount();
+                while (rs.next()) {
+                    writer.row(rs, columns);
+                    lastKey = rs.getLong(1);
+                    rows++;
+                    if (rows % CHECKPOINT_INTERVAL == 0) {
+                        writer.flush();
+                        checkpoint.save(table.name, lastKey, out.getCount(), false);
+                    }
+                }
+                writer.end();
+                writer.flush();
+                checkpoint.save(table.name, lastKey, out.getCount(), true);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes rows of one table.
+     */
+    private interface RowWriter {
+        void header(String table, ResultSetMetaData meta) throws IOException, SQLException;
+
+        void row(ResultSet rs, int columns) throws IOException, SQLException;
+
+        void end() throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV with a header line.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        CsvRowWriter(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 64 * 1024);
+        }
+
+        @Override
+        public void header(String table, ResultSetMetaData meta) throws IOException, SQLException {
+            line.setLength(0);
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                line.append(meta.getColumnLabel(i));
+            }
+            writeLine();
+        }
+
+        @Override
+        public void row(ResultSet rs, int columns) throws IOException, SQLException {
+            line.setLength(0);
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                Object value = rs.getObject(i);
+                if (value instanceof String) {
+                    appendQuoted((String) value);
+                } else if (value != null) {
+                    line.append(value);
+                }
+            }
+            writeLine();
+        }
+
+        private void appendQuoted(String value) {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        private void writeLine() throws IOException {
+            line.append("\r\n");
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void end() {
+            // CSV has no trailer
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Compact binary format: magic, table name and column names, then one tagged record per row
+     * (0 = NULL, 1 = zigzag varint integer, 2 = IEEE double, 3 = length-prefixed UTF-8 text)
+     * and a 0 byte after the last row.
+     */
+    private static final class BinaryRowWriter implements RowWriter {
+        private final DataOutputStream out;
+
+        BinaryRowWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        }
+
+        @Override
+        public void header(String table, ResultSetMetaData meta) throws IOException, SQLException {
+            out.write(BINARY_MAGIC);
+            writeText(table);
+            writeVarint(meta.getColumnCount());
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                writeText(meta.getColumnLabel(i));
+            }
+        }
+
+        @Override
+        public void row(ResultSet rs, int columns) throws IOException, SQLException {
+            out.writeByte(1);
+            for (int i = 1; i <= columns; i++) {
+                Object value = rs.getObject(i);
+                if (value == null) {
+                    out.writeByte(0);
+                } else if (value instanceof Integer || value instanceof Long) {
+                    long v = ((Number) value).longValue();
+                    out.writeByte(1);
+                    writeVarint((v << 1) ^ (v >> 63));
+                } else if (value instanceof Number) {
+                    out.writeByte(2);
+                    out.writeDouble(((Number) value).doubleValue());
+                } else {
+                    out.writeByte(3);
+                    writeText(value.toString());
+                }
+            }
+        }
+
+        private void writeText(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.writeByte(0);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Tracks the file offset so checkpoints can record how far the output is valid.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out, long initialCount) {
+            this.out = out;
+            this.count = initialCount;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Resume state per table: last exported key, valid output length and whether the table is done.
+     */
+    private static final class Checkpoint {
+        private final File file;
+        private final Properties props = new Properties();
+
+        private Checkpoint(File file) {
+            this.file = file;
+        }
+
+        static Checkpoint load(File file, String job) throws IOException {
+            Checkpoint checkpoint = new Checkpoint(file);
+            if (file.exists()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    checkpoint.props.load(in);
+                }
+                if (!job.equals(checkpoint.props.getProperty("job"))) {
+                    // Checkpoint of a different export; start over
+                    checkpoint.props.clear();
+                }
+            }
+            checkpoint.props.setProperty("job", job);
+            return checkpoint;
+        }
+
+        boolean isDone(String table) {
+            return Boolean.parseBoolean(props.getProperty(table + ".done"));
+        }
+
+        long getLastKey(String table) {
+            return Long.parseLong(props.getProperty(table + ".lastKey", "0"));
+        }
+
+        long getOffset(String table) {
+            return Long.parseLong(props.getProperty(table + ".offset", "0"));
+        }
+
+        void save(String table, long lastKey, long offset, boolean done) throws IOException {
+            props.setProperty(table + ".lastKey", Long.toString(lastKey));
+            props.setProperty(table + ".offset", Long.toString(offset));
+            props.setProperty(table + ".done", Boolean.toString(done));
+            File tmp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                props.store(out, "Sales journal export checkpoint");
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        void delete() {
+            file.delete();
+        }
+    }
+
+    /**
+     * Command line entry point: SalesJournalExport fromDate toDate [CSV|BINARY] [targetDir].
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Aufruf: SalesJournalExport <von yyyy-MM-dd> <bis yyyy-MM-dd> [CSV|BINARY] [Zielordner]");
+            return;
+        }
+        Format format = args.length > 2 ? Format.valueOf(args[2].toUpperCase()) : Format.CSV;
+        File targetDir = new File(args.length > 3 ? args[3] : "export");
+
+        long start = System.nanoTime();
+        try {
+            long rows = new SalesJournalExport().export(args[0], args[1], format, targetDir);
+            System.out.printf("%d Zeilen nach %s exportiert (%.1f s)%n", rows, targetDir,
+                    (System.nanoTime() - start) / 1e9);
+        } catch (IOException | SQLException e) {
+            System.err.println("Export error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package de.obj;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Incrementally maintained daily sales rollup.
+ * UmsatzTag is keyed by day and seller, UmsatzTagKategorie by day and product category.
+ * Category revenue is added and removed under the KID stored with each receipt position,
+ * so moving a product to another category does not shift the revenue of older receipts.
+ * All updates run on the caller's connection, inside the caller's transaction.
+ */
+public class SalesRollup {
+    static final String ADD_DAY_SQL =
+            "INSERT INTO UmsatzTag (Tag, VerkauferID, AnzahlBons, UmsatzCent) VALUES (?, ?, 1, ?) " +
+            "ON CONFLICT (Tag, VerkauferID) DO UPDATE SET " +
+            "AnzahlBons = AnzahlBons + 1, UmsatzCent = UmsatzCent + excluded.UmsatzCent";
+    static final String ADD_CATEGORY_SQL =
+            "INSERT INTO UmsatzTagKategorie (Tag, KID, UmsatzCent) VALUES (?, ?, ?) " +
+            "ON CONFLICT (Tag, KID) DO UPDATE SET UmsatzCent = UmsatzCent + excluded.UmsatzCent";
+    static final String BON_SQL =
+            "SELECT substr(Datum, 1, 10) as Tag, COALESCE(VerkauferID, 0) as VerkauferID, GesamtbetragCent " +
+            "FROM Kassenbons WHERE BonID = ?";
+    static final String BON_CATEGORIES_SQL =
+            "SELECT COALESCE(KID, 1) as KID, SUM(GesamtpreisCent) as UmsatzCent FROM BonPositionen " +
+            "WHERE BonID = ? GROUP BY 1";
+    static final String REMOVE_DAY_SQL =
+            "UPDATE UmsatzTag SET AnzahlBons = AnzahlBons - 1, UmsatzCent = UmsatzCent - ? " +
+            "WHERE Tag = ? AND VerkauferID = ?";
+    static final String REMOVE_CATEGORY_SQL =
+            "UPDATE UmsatzTagKategorie SET UmsatzCent = UmsatzCent - ? WHERE Tag = ? AND KID = ?";
+    static final String STATISTICS_SQL =
+            "SELECT SUM(AnzahlBons) as totalSales, SUM(UmsatzCent) as totalAmountCents FROM UmsatzTag " +
+            "WHERE Tag BETWEEN ? AND ?";
+    static final String STATISTICS_BY_SELLER_SQL =
+            "SELECT VerkauferID, SUM(AnzahlBons) as totalSales, SUM(UmsatzCent) as totalAmountCents " +
+            "FROM UmsatzTag WHERE Tag BETWEEN ? AND ? GROUP BY VerkauferID ORDER BY VerkauferID";
+    static final String REVENUE_BY_CATEGORY_SQL =
+            "SELECT KID, SUM(UmsatzCent) as UmsatzCent FROM UmsatzTagKategorie " +
+            "WHERE Tag BETWEEN ? AND ? GROUP BY KID HAVING SUM(UmsatzCent) <> 0 ORDER BY KID";
+
+    /**
+     * Add a freshly saved receipt to the rollup.
+     */
+    public void addSale(Connection conn, Bon bon) throws SQLException {
+        String tag = bon.getDatum().toLocalDate().toString();
+
+        try (PreparedStatement stmt = conn.prepareStatement(ADD_DAY_SQL)) {
+            stmt.setString(1, tag);
+            stmt.setInt(2, bon.getVerkaufer() != null ? bon.getVerkaufer().getVid() : 0);
+            stmt.setLong(3, bon.getBruttoGesamtbetragCents());
+            stmt.executeUpdate();
+        }
+
+        Map<Integer, Long> byCategory = new LinkedHashMap<>();
+        for (Artikel artikel : bon.getPositionen()) {
+            byCategory.merge(artikel.getProdukt().getKid(), artikel.getBruttoGesamtpreisCents(), Long::sum);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(ADD_CATEGORY_SQL)) {
+            for (Map.Entry<Integer, Long> entry : byCategory.entrySet()) {
+                stmt.setString(1, tag);
+                stmt.setInt(2, entry.getKey());
+                stmt.setLong(3, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Take a receipt back out of the rollup, e.g. when it is cancelled.
+     */
+    public void removeSale(Connection conn, int bonId) throws SQLException {
+        String tag;
+        try (PreparedStatement stmt = conn.prepareStatement(BON_SQL)) {
+            stmt.setInt(1, bonId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+                tag = rs.getString("Tag");
+                try (PreparedStatement update = conn.prepareStatement(REMOVE_DAY_SQL)) {
+                    update.setLong(1, rs.getLong("GesamtbetragCent"));
+                    update.setString(2, tag);
+                    update.setInt(3, rs.getInt("VerkauferID"));
+                    update.executeUpdate();
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(BON_CATEGORIES_SQL);
+             PreparedStatement update = conn.prepareStatement(REMOVE_CATEGORY_SQL)) {
+            stmt.setInt(1, bonId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    update.setLong(1, rs.getLong("UmsatzCent"));
+                    update.setString(2, tag);
+                    update.setInt(3, rs.getInt("KID"));
+                    update.addBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * Totals for a date range (inclusive, yyyy-MM-dd), summed from one rollup row per day and seller.
+     */
+    public VerkaufService.SalesStatistics statistics(Connection conn, String fromDate, String toDate)
+            throws SQLException {
+        VerkaufService.SalesStatistics stats = new VerkaufService.SalesStatistics();
+        stats.fromDate = fromDate;
+        stats.toDate = toDate;
+        try (PreparedStatement stmt = conn.prepareStatement(STATISTICS_SQL)) {
+            stmt.setString(1, fromDate);
+            stmt.setString(2, toDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    fill(stats, rs);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Totals per seller (VID) for a date range.
+     */
+    public Map<Integer, VerkaufService.SalesStatistics> statisticsBySeller(Connection conn, String fromDate,
+            String toDate) throws SQLException {
+        Map<Integer, VerkaufService.SalesStatistics> result = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(STATISTICS_BY_SELLER_SQL)) {
+            stmt.setString(1, fromDate);
+            stmt.setString(2, toDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    VerkaufService.SalesStatistics stats = new VerkaufService.SalesStatistics();
+                    stats.fromDate = fromDate;
+                    stats.toDate = toDate;
+                    fill(stats, rs);
+                    result.put(rs.getInt("VerkauferID"), stats);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gross revenue in cents per product category (KID) for a date range.
+     * Categories whose sales were all cancelled are left out.
+     */
+    public Map<Integer, Long> revenueByCategory(Connection conn, String fromDate, String toDate)
+            throws SQLException {
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(REVENUE_BY_CATEGORY_SQL)) {
+            stmt.setString(1, fromDate);
+            stmt.setString(2, toDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt("KID"), rs.getLong("UmsatzCent"));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void fill(VerkaufService.SalesStatistics stats, ResultSet rs) throws SQLException {
+        stats.setTotals(rs.getInt("totalSales"), rs.getLong("totalAmountCents"));
+    }
+}
@@ -0,0 +1,346 @@
+package de.obj;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema migrations keyed on PRAGMA user_version.
+ * Each migration runs exactly once, inside its own write transaction.
+ */
+public class SchemaMigrations {
+    /**
+     * A single schema change.
+     */
+    interface Migration {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Step {
+        final int version;
+        final String description;
+        final Migration migration;
+
+        Step(int version, String description, Migration migration) {
+            this.version = version;
+            this.description = description;
+            this.migration = migration;
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+
+    public SchemaMigrations() {
+        add(1, "Basisschema", this::baseSchema);
+        add(2, "Indizes für Statistik, Bonpositionen, Barcode und PIN", this::salesIndexes);
+        add(3, "Tagesumsatz-Rollup", this::dailyRollup);
+        add(4, "Epoch-Zeitstempel für Kassenbons und Stornierungen", this::epochTimestamps);
+        add(5, "Geldbeträge in Cent", this::centAmounts);
+        add(6, "PIN-Hashes mit BCrypt", this::bcryptPins);
+        add(7, "Journal-Kennung für Kassenbons", this::journalIds);
+        add(8, "Bonnummernblöcke je Kasse", this::receiptNumberBlocks);
+        add(9, "Kategorie je Bonposition", this::positionCategories);
+    }
+
+    private void add(int version, String description, Migration migration) {
+        steps.add(new Step(version, description, migration));
+    }
+
+    /**
+     * Highest schema version known to this build.
+     */
+    public int getLatestVersion() {
+        return steps.isEmpty() ? 0 : steps.get(steps.size() - 1).version;
+    }
+
+    /**
+     * Bring the database up to the latest version. A current database costs one pragma read.
+     */
+    public int migrate(Connection conn) throws SQLException {
+        int current = readUserVersion(conn);
+        for (Step step : steps) {
+            if (step.version > current) {
+                current = apply(conn, step);
+            }
+        }
+        return current;
+    }
+
+    private int apply(Connection conn, Step step) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Take the write lock up front so two lanes starting at once cannot both migrate
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                int current = readUserVersion(conn);
+                if (current >= step.version) {
+                    stmt.execute("COMMIT");
+                    return current;
+                }
+                step.migration.apply(conn);
+                stmt.execute("PRAGMA user_version = " + step.version);
+                stmt.execute("COMMIT");
+                System.out.println("Schema migrated to version " + step.version + ": " + step.description);
+                return step.version;
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw new SQLException("Migration " + step.version + " (" + step.description + ") failed: "
+                        + e.getMessage(), e);
+            }
+        }
+    }
+
+    static int readUserVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Version 1: the schema that used to be probed on every start.
+    // Existing databases may already have some of these columns, so this step still checks once.
+    private void baseSchema(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS Verkäufer (VID INT PRIMARY KEY, "
+                + "Vorname VARCHAR(255), Nachname VARCHAR(255))");
+        execute(conn, "CREATE TABLE IF NOT EXISTS Kategorie (KID INT PRIMARY KEY, Bezeichnung VARCHAR(255))");
+        execute(conn, "CREATE TABLE IF NOT EXISTS Produkt (PID INT PRIMARY KEY, Bezeichnung VARCHAR(255), "
+                + "Preis DECIMAL(10,2), KID INT, FOREIGN KEY (KID) REFERENCES Kategorie(KID))");
+
+        // Add PIN and Role columns to Verkäufer table if they don't exist
+        addColumnIfNotExists(conn, "Verkäufer", "PIN", "VARCHAR(255)");
+        addColumnIfNotExists(conn, "Verkäufer", "Rolle", "VARCHAR(20) DEFAULT 'VERKAUFER'");
+
+        // Add barcode and weight flag to Produkt table
+        addColumnIfNotExists(conn, "Produkt", "Barcode", "VARCHAR(50)");
+        addColumnIfNotExists(conn, "Produkt", "IsWeightBased", "BOOLEAN DEFAULT 0");
+        addColumnIfNotExists(conn, "Produkt", "MwSt", "DECIMAL(5,4) DEFAULT 0.19");
+
+        // Create sales receipts table
+        execute(conn, "CREATE TABLE IF NOT EXISTS Kassenbons (" +
+                "BonID INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "VerkauferID INTEGER, " +
+                "Datum TEXT, " +
+                "Gesamtbetrag DECIMAL(10,2), " +
+                "IsCancelled BOOLEAN DEFAULT 0, " +
+                "FOREIGN KEY (VerkauferID) REFERENCES Verkäufer(VID))");
+
+        // Create receipt items table
+        execute(conn, "CREATE TABLE IF NOT EXISTS BonPositionen (" +
+                "PositionID INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "BonID INTEGER, " +
+                "ProduktID INTEGER, " +
+                "Menge DECIMAL(10,3), " +
+                "Einzelpreis DECIMAL(10,2), " +
+                "Gesamtpreis DECIMAL(10,2), " +
+                "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), " +
+                "FOREIGN KEY (ProduktID) REFERENCES Produkt(PID))");
+
+        // Create cancellations log table
+        execute(conn, "CREATE TABLE IF NOT EXISTS Stornierungen (" +
+                "StornierungID INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "BonID INTEGER, " +
+                "StorniertVon INTEGER, " +
+                "StorniertAm TEXT, " +
+                "Grund TEXT, " +
+                "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), " +
+                "FOREIGN KEY (StorniertVon) REFERENCES Verkäufer(VID))");
+
+        // Initialize default users with PINs if not exist
+        initializeDefaultUsers(conn);
+    }
+
+    // Version 2: secondary indexes for the service queries
+    private void salesIndexes(Connection conn) throws SQLException {
+        // Covering index for the date range statistics
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_kassenbons_datum "
+                + "ON Kassenbons (Datum, IsCancelled, Gesamtbetrag)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_bonpositionen_bonid ON BonPositionen (BonID)");
+        // Empty barcodes would collide in the unique index; NULLs do not
+        execute(conn, "UPDATE Produkt SET Barcode = NULL WHERE TRIM(Barcode) = ''");
+        execute(conn, "CREATE UNIQUE INDEX IF NOT EXISTS idx_produkt_barcode ON Produkt (Barcode)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_verkaeufer_pin ON Verkäufer (PIN)");
+    }
+
+    // Version 3: daily sales rollup, backfilled from the existing receipts
+    private void dailyRollup(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS UmsatzTag (" +
+                "Tag TEXT NOT NULL, " +
+                "VerkauferID INTEGER NOT NULL, " +
+                "AnzahlBons INTEGER NOT NULL DEFAULT 0, " +
+                "Umsatz DECIMAL(12,2) NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (Tag, VerkauferID)) WITHOUT ROWID");
+        execute(conn, "CREATE TABLE IF NOT EXISTS UmsatzTagKategorie (" +
+                "Tag TEXT NOT NULL, " +
+                "KID INTEGER NOT NULL, " +
+                "Umsatz DECIMAL(12,2) NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (Tag, KID)) WITHOUT ROWID");
+        execute(conn, "INSERT INTO UmsatzTag (Tag, VerkauferID, AnzahlBons, Umsatz) " +
+                "SELECT substr(Datum, 1, 10), COALESCE(VerkauferID, 0), COUNT(*), SUM(Gesamtbetrag) " +
+                "FROM Kassenbons WHERE IsCancelled = 0 GROUP BY 1, 2");
+        execute(conn, "INSERT INTO UmsatzTagKategorie (Tag, KID, Umsatz) " +
+                "SELECT substr(k.Datum, 1, 10), COALESCE(p.KID, 1), SUM(bp.Gesamtpreis) " +
+                "FROM BonPositionen bp JOIN Kassenbons k ON k.BonID = bp.BonID " +
+                "LEFT JOIN Produkt p ON p.PID = bp.ProduktID WHERE k.IsCancelled = 0 GROUP BY 1, 2");
+    }
+
+    // Version 4: integer epoch-millis next to the TEXT dates; 'utc' reads the text as local time
+    private void epochTimestamps(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "Kassenbons", "DatumEpoch", "INTEGER");
+        addColumnIfNotExists(conn, "Stornierungen", "StorniertAmEpoch", "INTEGER");
+        execute(conn, "UPDATE Kassenbons SET DatumEpoch = CAST(strftime('%s', Datum, 'utc') AS INTEGER) * 1000 "
+                + "WHERE DatumEpoch IS NULL AND Datum IS NOT NULL");
+        execute(conn, "UPDATE Stornierungen SET StorniertAmEpoch = "
+                + "CAST(strftime('%s', StorniertAm, 'utc') AS INTEGER) * 1000 "
+                + "WHERE StorniertAmEpoch IS NULL AND StorniertAm IS NOT NULL");
+        // Range queries no longer compare the text column
+        execute(conn, "DROP INDEX IF EXISTS idx_kassenbons_datum");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_kassenbons_datumepoch "
+                + "ON Kassenbons (DatumEpoch, IsCancelled, Gesamtbetrag)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_stornierungen_epoch ON Stornierungen (StorniertAmEpoch)");
+    }
+
+    // Version 5: exact integer cents next to the DECIMAL amounts; the rollup switches to cents entirely
+    private void centAmounts(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "Produkt", "PreisCent", "INTEGER");
+        addColumnIfNotExists(conn, "Kassenbons", "GesamtbetragCent", "INTEGER");
+        addColumnIfNotExists(conn, "BonPositionen", "EinzelpreisCent", "INTEGER");
+        addColumnIfNotExists(conn, "BonPositionen", "GesamtpreisCent", "INTEGER");
+        execute(conn, "UPDATE Produkt SET PreisCent = CAST(ROUND(Preis * 100) AS INTEGER) WHERE PreisCent IS NULL");
+        execute(conn, "UPDATE Kassenbons SET GesamtbetragCent = CAST(ROUND(Gesamtbetrag * 100) AS INTEGER) "
+                + "WHERE GesamtbetragCent IS NULL");
+        execute(conn, "UPDATE BonPositionen SET EinzelpreisCent = CAST(ROUND(Einzelpreis * 100) AS INTEGER), "
+                + "GesamtpreisCent = CAST(ROUND(Gesamtpreis * 100) AS INTEGER) WHERE GesamtpreisCent IS NULL");
+
+        execute(conn, "DROP INDEX IF EXISTS idx_kassenbons_datumepoch");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_kassenbons_datumepoch "
+                + "ON Kassenbons (DatumEpoch, IsCancelled, GesamtbetragCent)");
+
+        execute(conn, "DROP TABLE IF EXISTS UmsatzTag");
+        execute(conn, "DROP TABLE IF EXISTS UmsatzTagKategorie");
+        execute(conn, "CREATE TABLE UmsatzTag (" +
+                "Tag TEXT NOT NULL, " +
+                "VerkauferID INTEGER NOT NULL, " +
+                "AnzahlBons INTEGER NOT NULL DEFAULT 0, " +
+                "UmsatzCent INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (Tag, VerkauferID)) WITHOUT ROWID");
+        execute(conn, "CREATE TABLE UmsatzTagKategorie (" +
+                "Tag TEXT NOT NULL, " +
+                "KID INTEGER NOT NULL, " +
+                "UmsatzCent INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (Tag, KID)) WITHOUT ROWID");
+        execute(conn, "INSERT INTO UmsatzTag (Tag, VerkauferID, AnzahlBons, UmsatzCent) " +
+                "SELECT substr(Datum, 1, 10), COALESCE(VerkauferID, 0), COUNT(*), SUM(GesamtbetragCent) " +
+                "FROM Kassenbons WHERE IsCancelled = 0 GROUP BY 1, 2");
+        execute(conn, "INSERT INTO UmsatzTagKategorie (Tag, KID, UmsatzCent) " +
+                "SELECT substr(k.Datum, 1, 10), COALESCE(p.KID, 1), SUM(bp.GesamtpreisCent) " +
+                "FROM BonPositionen bp JOIN Kassenbons k ON k.BonID = bp.BonID " +
+                "LEFT JOIN Produkt p ON p.PID = bp.ProduktID WHERE k.IsCancelled = 0 GROUP BY 1, 2");
+    }
+
+    private void addColumnIfNotExists(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("PRAGMA table_info(" + table + ")");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    // Version 6: replace the deterministic "hash_<pin>_salt" values with salted BCrypt hashes.
+    // Salted hashes cannot be looked up by value, so the PIN index goes away too.
+    private void bcryptPins(Connection conn) throws SQLException {
+        String prefix = "hash_";
+        String suffix = "_salt";
+        List<Integer> ids = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT VID, PIN FROM Verkäufer WHERE PIN LIKE 'hash\\_%\\_salt' ESCAPE '\\'");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String legacy = rs.getString("PIN");
+                String pin = legacy.substring(prefix.length(), legacy.length() - suffix.length());
+                ids.add(rs.getInt("VID"));
+                hashes.add(DatabaseManager.hashPin(pin));
+            }
+        }
+        try (PreparedStatement update = conn.prepareStatement("UPDATE Verkäufer SET PIN = ? WHERE VID = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                update.setString(1, hashes.get(i));
+                update.setInt(2, ids.get(i));
+                update.executeUpdate();
+            }
+        }
+        execute(conn, "DROP INDEX IF EXISTS idx_verkaeufer_pin");
+    }
+
+    // Version 7: sales replayed from a lane's journal carry its entry ID, so a replay never books twice
+    private void journalIds(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "Kassenbons", "JournalID", "TEXT");
+        execute(conn, "CREATE UNIQUE INDEX IF NOT EXISTS idx_kassenbons_journal ON Kassenbons (JournalID) "
+                + "WHERE JournalID IS NOT NULL");
+    }
+
+    // Version 8: receipt number blocks reserved by the terminals (hi/lo), kept for the gap audit
+    private void receiptNumberBlocks(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS Bonnummernbloecke (" +
+                "Von INTEGER PRIMARY KEY, " +
+                "Bis INTEGER NOT NULL, " +
+                "Kasse TEXT NOT NULL, " +
+                "ReserviertAm INTEGER NOT NULL)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_bonnummernbloecke_kasse ON Bonnummernbloecke (Kasse, Von)");
+    }
+
+    // Version 9: the category a position was sold under, so a cancellation takes the revenue out of the
+    // category the rollup booked it in even after the product was moved; backfilled from the current KID
+    private void positionCategories(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "BonPositionen", "KID", "INTEGER");
+        execute(conn, "UPDATE BonPositionen SET KID = COALESCE((SELECT p.KID FROM Produkt p "
+                + "WHERE p.PID = BonPositionen.ProduktID), 1) WHERE KID IS NULL");
+    }
+
+    private void initializeDefaultUsers(Connection conn) throws SQLException {
+        // Check if users already have PINs set
+        String checkSql = "SELECT COUNT(*) FROM Verkäufer WHERE PIN IS NOT NULL AND PIN != ''";
+        try (PreparedStatement stmt = conn.prepareStatement(checkSql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next() || rs.getInt(1) > 0) {
+                return;
+            }
+        }
+
+        // Set default PINs and roles
+        String updateSql = "UPDATE Verkäufer SET PIN = ?, Rolle = ? WHERE VID = ?";
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+            // Maria Schmidt - Filialleiter
+            updateStmt.setString(1, DatabaseManager.hashPin("1234"));
+            updateStmt.setString(2, "FILIALLEITER");
+            updateStmt.setInt(3, 1);
+            updateStmt.executeUpdate();
+
+            // Johannes Müller - Verkäufer
+            updateStmt.setString(1, DatabaseManager.hashPin("5678"));
+            updateStmt.setString(2, "VERKAUFER");
+            updateStmt.setInt(3, 2);
+            updateStmt.executeUpdate();
+
+            // Emma Fischer - Verkäufer
+            updateStmt.setString(1, DatabaseManager.hashPin("9999"));
+            updateStmt.setString(2, "VERKAUFER");
+            updateStmt.setInt(3, 3);
+            updateStmt.executeUpdate();
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
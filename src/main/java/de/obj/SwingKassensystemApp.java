@@ -1,32 +1,45 @@
 package de.obj;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Swing GUI application for the cash register system.
  */
 public class SwingKassensystemApp extends JFrame {
-    private final UserService userService;
-    private final ProduktService produktService;
-    private final VerkaufService verkaufService;
+    private final KassenBackend backend;
+    private final PrintSpooler printSpooler;
     private User currentUser;
     private Bon currentBon;
     private JLabel statusLabel;
+    private JLabel laneStatusLabel;
     private JButton loginButton;
     private JButton newSaleButton;
     private JButton productManagementButton;
     private JButton statisticsButton;
     private JButton cancelSaleButton;
     private JButton logoutButton;
+    private BackgroundTaskPanel taskPanel;
 
     public SwingKassensystemApp() {
-        this.userService = new UserService();
-        this.produktService = new ProduktService();
-        this.verkaufService = new VerkaufService();
+        this(new LocalKassenBackend());
+    }
+
+    /**
+     * Lane working on the given backend, e.g. a {@link RemoteKassenBackend}.
+     */
+    public SwingKassensystemApp(KassenBackend backend) {
+        this.backend = backend;
+        this.printSpooler = PrintSpooler.getInstance();
         
         initializeGUI();
         updateButtonStates();
@@ -65,6 +78,13 @@ public class SwingKassensystemApp extends JFrame {
         statusLabel.setForeground(Color.WHITE);
         headerPanel.add(statusLabel, BorderLayout.SOUTH);
         
+        // Online/offline indicator; only reads state the backend already has, so it can poll on the EDT
+        laneStatusLabel = new JLabel();
+        laneStatusLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        headerPanel.add(laneStatusLabel, BorderLayout.EAST);
+        updateLaneStatus();
+        new Timer(1000, e -> updateLaneStatus()).start();
+        
         mainPanel.add(headerPanel, BorderLayout.NORTH);
 
         // Button panel
@@ -87,9 +107,23 @@ public class SwingKassensystemApp extends JFrame {
         
         mainPanel.add(buttonPanel, BorderLayout.CENTER);
         
+        // Service calls run in the background; this strip shows what is still pending
+        taskPanel = new BackgroundTaskPanel();
+        mainPanel.add(taskPanel, BorderLayout.SOUTH);
+        
         add(mainPanel);
     }
 
+    private void updateLaneStatus() {
+        KassenBackend.LaneStatus status = backend.getLaneStatus();
+        if (status == null) {
+            laneStatusLabel.setText("");
+            return;
+        }
+        laneStatusLabel.setText(status.toString());
+        laneStatusLabel.setForeground(status.isWarning() ? Color.YELLOW : Color.WHITE);
+    }
+
     private JButton createButton(String text, ActionListener listener) {
         JButton button = new JButton(text);
         button.setFont(new Font("Arial", Font.PLAIN, 16));
@@ -119,14 +153,31 @@ public class SwingKassensystemApp extends JFrame {
 
     private void showLoginDialog() {
         JDialog loginDialog = new JDialog(this, "Anmeldung", true);
-        loginDialog.setSize(400, 200);
+        loginDialog.setSize(400, 260);
         loginDialog.setLocationRelativeTo(this);
+        BackgroundTaskPanel loginTasks = new BackgroundTaskPanel();
+        loginTasks.cancelOnClose(loginDialog);
         
         JPanel panel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10);
         
         gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Benutzer:"), gbc);
+        
+        JComboBox<User> userBox = new JComboBox<>();
+        userBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                Object text = value instanceof User ? ((User) value).getFullName() : value;
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        gbc.gridx = 1;
+        panel.add(userBox, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 1;
         panel.add(new JLabel("PIN eingeben:"), gbc);
         
         JPasswordField pinField = new JPasswordField(10);
@@ -137,25 +188,33 @@ public class SwingKassensystemApp extends JFrame {
         JButton cancelBtn = new JButton("Abbrechen");
         
         loginBtn.addActionListener(e -> {
-            String pin = new String(pinField.getPassword());
-            User user = userService.authenticate(pin);
-            if (user != null) {
-                currentUser = user;
-                updateButtonStates();
-                loginDialog.dispose();
-                JOptionPane.showMessageDialog(this, 
-                    "Willkommen, " + user.getFullName() + "!");
-            } else {
-                JOptionPane.showMessageDialog(loginDialog, 
-                    "Ungültige PIN! Bitte versuchen Sie es erneut.\n\n" +
-                    "Demo PINs:\n" +
-                    "Maria Schmidt (Filialleiter): 1234\n" +
-                    "Johannes Müller (Verkäufer): 5678\n" +
-                    "Emma Fischer (Verkäufer): 9999", 
-                    "Anmeldung fehlgeschlagen", JOptionPane.ERROR_MESSAGE);
-                pinField.setText("");
+            User selected = (User) userBox.getSelectedItem();
+            if (selected == null) {
+                return;
             }
+            int vid = selected.getVid();
+            String pin = new String(pinField.getPassword());
+            // BCrypt verification takes a noticeable moment
+            loginTasks.run("PIN wird geprüft", true, () -> backend.authenticate(vid, pin), user -> {
+                if (user != null) {
+                    currentUser = user;
+                    updateButtonStates();
+                    loginDialog.dispose();
+                    JOptionPane.showMessageDialog(this, 
+                        "Willkommen, " + user.getFullName() + "!");
+                } else {
+                    JOptionPane.showMessageDialog(loginDialog, 
+                        "Ungültige PIN! Bitte versuchen Sie es erneut.\n\n" +
+                        "Demo PINs:\n" +
+                        "Maria Schmidt (Filialleiter): 1234\n" +
+                        "Johannes Müller (Verkäufer): 5678\n" +
+                        "Emma Fischer (Verkäufer): 9999", 
+                        "Anmeldung fehlgeschlagen", JOptionPane.ERROR_MESSAGE);
+                    pinField.setText("");
+                }
+            }, loginBtn, userBox);
         });
+        loginDialog.getRootPane().setDefaultButton(loginBtn);
         
         cancelBtn.addActionListener(e -> loginDialog.dispose());
         
@@ -163,11 +222,17 @@ public class SwingKassensystemApp extends JFrame {
         buttonPanel.add(loginBtn);
         buttonPanel.add(cancelBtn);
         
-        gbc.gridx = 0; gbc.gridy = 1;
+        gbc.gridx = 0; gbc.gridy = 2;
         gbc.gridwidth = 2;
         panel.add(buttonPanel, gbc);
         
-        loginDialog.add(panel);
+        loginDialog.add(panel, BorderLayout.CENTER);
+        loginDialog.add(loginTasks, BorderLayout.SOUTH);
+        loginTasks.run("Benutzer werden geladen", true, backend::getAllUsers, users -> {
+            for (User user : users) {
+                userBox.addItem(user);
+            }
+        }, loginBtn);
         loginDialog.setVisible(true);
     }
 
@@ -177,6 +242,10 @@ public class SwingKassensystemApp extends JFrame {
         JDialog saleDialog = new JDialog(this, "Neuer Verkauf", true);
         saleDialog.setSize(800, 600);
         saleDialog.setLocationRelativeTo(this);
+        // Lookups and commits get separate queues, so scanning goes on while a receipt is saved
+        BackgroundTaskPanel scanTasks = new BackgroundTaskPanel();
+        BackgroundTaskPanel saveTasks = new BackgroundTaskPanel();
+        scanTasks.cancelOnClose(saleDialog);
         
         JPanel mainPanel = new JPanel(new BorderLayout());
         
@@ -201,7 +270,60 @@ public class SwingKassensystemApp extends JFrame {
         totalsPanel.add(mwstLabel);
         totalsPanel.add(totalLabel);
         
+        // Adds a resolved product to the receipt; the list and totals repaint together
+        BiConsumer<String, Produkt> addScanned = (barcode, product) -> {
+            if (product == null) {
+                Toolkit.getDefaultToolkit().beep();
+                JOptionPane.showMessageDialog(saleDialog, "Kein Produkt mit Barcode " + barcode + " gefunden.");
+                return;
+            }
+            double quantity = 1.0;
+            if (product.isWeightBased()) {
+                String input = JOptionPane.showInputDialog(saleDialog, "Gewicht in kg für " + product.getBezeichnung() + ":");
+                try {
+                    quantity = input == null ? 0.0 : Double.parseDouble(input.replace(',', '.'));
+                } catch (NumberFormatException ex) {
+                    quantity = 0.0;
+                }
+                if (quantity <= 0) {
+                    return;
+                }
+            }
+            Artikel artikel = new Artikel(product, quantity);
+            currentBon.addArtikel(artikel);
+            listModel.addElement(artikel);
+            itemsList.ensureIndexIsVisible(listModel.getSize() - 1);
+            updateTotals(nettoLabel, mwstLabel, totalLabel);
+        };
+        Consumer<String> onBarcode = barcode -> {
+            // Catalog hits are added right away, unless earlier scans are still being looked up
+            if (!scanTasks.isBusy()) {
+                Produkt cached = backend.findCachedByBarcode(barcode);
+                if (cached != null) {
+                    addScanned.accept(barcode, cached);
+                    return;
+                }
+            }
+            scanTasks.run("Barcode " + barcode, true, () -> backend.findByBarcode(barcode),
+                    product -> addScanned.accept(barcode, product));
+        };
+        
+        // Scanner bursts are recognized wherever the focus is; the field is for typing codes by hand
+        BarcodeScanner scanner = new BarcodeScanner(saleDialog, onBarcode);
+        JTextField barcodeField = new JTextField(20);
+        JPanel barcodePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        barcodePanel.add(new JLabel("Barcode:"));
+        barcodePanel.add(barcodeField);
+        barcodeField.addActionListener(e -> {
+            String barcode = barcodeField.getText().trim();
+            barcodeField.setText("");
+            if (!barcode.isEmpty()) {
+                onBarcode.accept(barcode);
+            }
+        });
+        
         JPanel leftPanel = new JPanel(new BorderLayout());
+        leftPanel.add(barcodePanel, BorderLayout.NORTH);
         leftPanel.add(scrollPane, BorderLayout.CENTER);
         leftPanel.add(totalsPanel, BorderLayout.SOUTH);
         
@@ -238,13 +360,40 @@ public class SwingKassensystemApp extends JFrame {
                 "Verkauf abschließen", JOptionPane.YES_NO_OPTION);
             
             if (result == JOptionPane.YES_OPTION) {
-                int bonId = verkaufService.saveSale(currentBon);
-                if (bonId > 0) {
-                    showReceiptDialog(currentBon);
-                    saleDialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(saleDialog, "Fehler beim Speichern des Verkaufs!");
-                }
+                // The lane starts the next receipt right away; the finished one is saved in the background
+                Bon bon = currentBon;
+                currentBon = new Bon(currentUser);
+                listModel.clear();
+                updateTotals(nettoLabel, mwstLabel, totalLabel);
+                barcodeField.requestFocusInWindow();
+                
+                // Not cancellable: the commit cannot be taken back once it has started
+                Runnable printReceipt = () -> {
+                    // Printing runs on the spooler thread; the lane is free right away
+                    if (!printSpooler.submit(bon)) {
+                        JOptionPane.showMessageDialog(saleDialog, "Drucker ausgelastet - Bon wurde nicht gedruckt.",
+                                "Drucker", JOptionPane.WARNING_MESSAGE);
+                    }
+                    showReceiptDialog(saleDialog.isDisplayable() ? saleDialog : this, bon);
+                };
+                saveTasks.run("Bon wird gespeichert", false, () -> backend.saveSale(bon), bonId -> {
+                    if (bonId > 0 || bonId == KassenBackend.SALE_PENDING) {
+                        // A pending sale is safe in the lane journal and gets its provisional number;
+                        // it must not be put back, or it would be sold twice
+                        printReceipt.run();
+                    } else {
+                        JOptionPane.showMessageDialog(saleDialog.isDisplayable() ? saleDialog : this,
+                                "Fehler beim Speichern des Verkaufs!");
+                        if (saleDialog.isDisplayable() && currentBon.getPositionen().isEmpty()) {
+                            // Nothing scanned yet for the next customer; put the failed receipt back
+                            currentBon = bon;
+                            for (Artikel artikel : bon.getPositionen()) {
+                                listModel.addElement(artikel);
+                            }
+                            updateTotals(nettoLabel, mwstLabel, totalLabel);
+                        }
+                    }
+                });
             }
         });
         
@@ -256,37 +405,88 @@ public class SwingKassensystemApp extends JFrame {
         buttonPanel.add(completeSaleButton);
         buttonPanel.add(cancelButton);
         
+        JPanel statusPanel = new JPanel(new GridLayout(1, 2));
+        statusPanel.add(scanTasks);
+        statusPanel.add(saveTasks);
+        
         mainPanel.add(leftPanel, BorderLayout.CENTER);
         mainPanel.add(buttonPanel, BorderLayout.EAST);
+        mainPanel.add(statusPanel, BorderLayout.SOUTH);
         
         saleDialog.add(mainPanel);
+        saleDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                scanner.install();
+                barcodeField.requestFocusInWindow();
+            }
+            
+            @Override
+            public void windowClosed(WindowEvent e) {
+                scanner.uninstall();
+            }
+        });
         saleDialog.setVisible(true);
     }
 
     private void showAddProductDialog(DefaultListModel<Artikel> listModel, JLabel nettoLabel, JLabel mwstLabel, JLabel totalLabel) {
-        List<Produkt> products = produktService.getAllProducts();
-        if (products.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Keine Produkte verfügbar!");
-            return;
-        }
-        
         JDialog productDialog = new JDialog(this, "Produkt hinzufügen", true);
         productDialog.setSize(500, 400);
         productDialog.setLocationRelativeTo(this);
+        BackgroundTaskPanel productTasks = new BackgroundTaskPanel();
+        productTasks.cancelOnClose(productDialog);
         
         JPanel panel = new JPanel(new BorderLayout());
         
-        // Product list
-        DefaultListModel<Produkt> productListModel = new DefaultListModel<>();
-        for (Produkt product : products) {
-            productListModel.addElement(product);
-        }
+        // Product list over the search index, filled once the index is ready
+        ProduktListModel productListModel = new ProduktListModel();
         
         JList<Produkt> productList = new JList<>(productListModel);
         productList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Fixed cell size, so only the visible rows are ever rendered
+        productList.setFixedCellHeight(20);
+        productList.setFixedCellWidth(440);
+        productList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, productListModel.getDisplayText(index), index,
+                        isSelected, cellHasFocus);
+            }
+        });
         JScrollPane scrollPane = new JScrollPane(productList);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Verfügbare Produkte"));
         
+        // Type-ahead filter on name and barcode
+        JTextField filterField = new JTextField(25);
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Suche:"));
+        filterPanel.add(filterField);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+            
+            private void applyFilter() {
+                productListModel.filter(filterField.getText());
+                if (productListModel.getSize() > 0) {
+                    productList.setSelectedIndex(0);
+                    productList.ensureIndexIsVisible(0);
+                }
+            }
+        });
+        
         // Quantity input
         JPanel quantityPanel = new JPanel(new FlowLayout());
         quantityPanel.add(new JLabel("Menge:"));
@@ -320,35 +520,51 @@ public class SwingKassensystemApp extends JFrame {
         });
         
         cancelButton.addActionListener(e -> productDialog.dispose());
+        filterField.addActionListener(e -> addButton.doClick());
         
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(addButton);
         buttonPanel.add(cancelButton);
         
+        panel.add(filterPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
         JPanel southPanel = new JPanel(new BorderLayout());
-        southPanel.add(quantityPanel, BorderLayout.CENTER);
-        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+        southPanel.add(quantityPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        southPanel.add(productTasks, BorderLayout.SOUTH);
         panel.add(southPanel, BorderLayout.SOUTH);
         
         productDialog.add(panel);
+        // The index is built once per catalog version; later dialogs get it right away
+        productTasks.run("Produkte werden geladen", true, backend::getSuchindex, index -> {
+            if (index.size() == 0) {
+                JOptionPane.showMessageDialog(productDialog, "Keine Produkte verfügbar!");
+                productDialog.dispose();
+                return;
+            }
+            productListModel.setIndex(index);
+            if (productListModel.getSize() > 0) {
+                productList.setSelectedIndex(0);
+            }
+        }, addButton);
         productDialog.setVisible(true);
     }
 
     private void updateTotals(JLabel nettoLabel, JLabel mwstLabel, JLabel totalLabel) {
-        double netto = currentBon.getNettoGesamtbetrag();
-        double mwst = currentBon.getGesamtMwst();
-        double brutto = currentBon.getBruttoGesamtbetrag();
+        long netto = currentBon.getNettoGesamtbetragCents();
+        long mwst = currentBon.getGesamtMwstCents();
+        long brutto = currentBon.getBruttoGesamtbetragCents();
         
-        nettoLabel.setText(String.format("Netto: %.2f EUR", netto));
-        mwstLabel.setText(String.format("MwSt: %.2f EUR", mwst));
-        totalLabel.setText(String.format("GESAMT: %.2f EUR", brutto));
+        nettoLabel.setText("Netto: " + Money.format(netto) + " EUR");
+        mwstLabel.setText("MwSt: " + Money.format(mwst) + " EUR");
+        totalLabel.setText("GESAMT: " + Money.format(brutto) + " EUR");
     }
 
-    private void showReceiptDialog(Bon bon) {
-        JDialog receiptDialog = new JDialog(this, "Bon", true);
+    private void showReceiptDialog(Window owner, Bon bon) {
+        // Non-modal, so the next sale can go on while the receipt is still on screen
+        JDialog receiptDialog = new JDialog(owner, "Bon", Dialog.ModalityType.MODELESS);
         receiptDialog.setSize(500, 600);
-        receiptDialog.setLocationRelativeTo(this);
+        receiptDialog.setLocationRelativeTo(owner);
         
         JTextArea receiptText = new JTextArea(bon.generateReceiptText());
         receiptText.setEditable(false);
@@ -394,19 +610,20 @@ public class SwingKassensystemApp extends JFrame {
         }
         
         // Retrieve receipt
-        Bon bon = verkaufService.getReceiptById(bonId);
-        if (bon == null) {
-            JOptionPane.showMessageDialog(this, "Bon nicht gefunden!", "Fehler", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        
-        if (bon.isCancelled()) {
-            JOptionPane.showMessageDialog(this, "Bon ist bereits storniert!", "Info", JOptionPane.INFORMATION_MESSAGE);
-            return;
-        }
-        
-        // Show receipt details dialog
-        showReceiptDetailsForCancellation(bon);
+        taskPanel.run("Bon " + bonId + " wird geladen", true, () -> backend.getReceiptById(bonId), bon -> {
+            if (bon == null) {
+                JOptionPane.showMessageDialog(this, "Bon nicht gefunden!", "Fehler", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            if (bon.isCancelled()) {
+                JOptionPane.showMessageDialog(this, "Bon ist bereits storniert!", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            
+            // Show receipt details dialog
+            showReceiptDetailsForCancellation(bon);
+        }, cancelSaleButton);
     }
 
     private void showReceiptDetailsForCancellation(Bon bon) {
@@ -414,6 +631,7 @@ public class SwingKassensystemApp extends JFrame {
         cancelDialog.setLayout(new BorderLayout());
         cancelDialog.setSize(500, 600);
         cancelDialog.setLocationRelativeTo(this);
+        BackgroundTaskPanel cancelTasks = new BackgroundTaskPanel();
         
         // Receipt display area
         JTextArea receiptArea = new JTextArea();
@@ -444,15 +662,18 @@ public class SwingKassensystemApp extends JFrame {
                 return;
             }
             
-            boolean success = verkaufService.cancelSale(bon.getBonId(), currentUser, reason);
-            if (success) {
-                JOptionPane.showMessageDialog(cancelDialog, "Verkauf erfolgreich storniert!", 
-                                              "Erfolg", JOptionPane.INFORMATION_MESSAGE);
-                cancelDialog.dispose();
-            } else {
-                JOptionPane.showMessageDialog(cancelDialog, "Fehler beim Stornieren des Verkaufs!", 
-                                              "Fehler", JOptionPane.ERROR_MESSAGE);
-            }
+            User cancelledBy = currentUser;
+            cancelTasks.run("Storno wird gespeichert", false,
+                    () -> backend.cancelSale(bon.getBonId(), cancelledBy, reason), success -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(cancelDialog, "Verkauf erfolgreich storniert!", 
+                                                  "Erfolg", JOptionPane.INFORMATION_MESSAGE);
+                    cancelDialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(cancelDialog, "Fehler beim Stornieren des Verkaufs!", 
+                                                  "Fehler", JOptionPane.ERROR_MESSAGE);
+                }
+            }, confirmButton, cancelButton);
         });
         
         cancelButton.addActionListener(e -> cancelDialog.dispose());
@@ -466,8 +687,12 @@ public class SwingKassensystemApp extends JFrame {
         topPanel.add(scrollPane, BorderLayout.CENTER);
         topPanel.add(reasonPanel, BorderLayout.SOUTH);
         
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(buttonPanel, BorderLayout.CENTER);
+        bottomPanel.add(cancelTasks, BorderLayout.SOUTH);
+        
         cancelDialog.add(topPanel, BorderLayout.CENTER);
-        cancelDialog.add(buttonPanel, BorderLayout.SOUTH);
+        cancelDialog.add(bottomPanel, BorderLayout.SOUTH);
         
         cancelDialog.setVisible(true);
     }
@@ -477,19 +702,27 @@ public class SwingKassensystemApp extends JFrame {
     }
 
     private void logout() {
+        User user = currentUser;
+        if (user != null) {
+            // Ends the server session; not on the EDT, it may wait for the server
+            taskPanel.run("Abmelden", false, () -> {
+                backend.logout(user);
+                return null;
+            }, ignored -> { });
+        }
         currentUser = null;
         updateButtonStates();
         JOptionPane.showMessageDialog(this, "Erfolgreich abgemeldet.");
     }
 
     public static void main(String[] args) {
-        // Initialize database
-        DatabaseManager.getInstance();
+        // Opens the database, or just remembers the server address
+        KassenBackend backend = KassenBackend.create(args);
         
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                SwingKassensystemApp app = new SwingKassensystemApp();
+                SwingKassensystemApp app = new SwingKassensystemApp(backend);
                 app.setVisible(true);
             }
         });
@@ -4,86 +4,135 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class for user authentication and management.
+ * PINs are stored as salted BCrypt hashes, so a login first selects the user and then verifies
+ * one hash. Verification is deliberately slow and must not run on the UI thread.
  */
 public class UserService {
+    static final String AUTHENTICATE_SQL =
+            "SELECT VID, Vorname, Nachname, PIN, COALESCE(Rolle, 'VERKAUFER') as Rolle FROM Verkäufer WHERE VID = ?";
+    static final String USER_BY_ID_SQL =
+            "SELECT VID, Vorname, Nachname, COALESCE(Rolle, 'VERKAUFER') as Rolle FROM Verkäufer WHERE VID = ?";
+    static final String ALL_USERS_SQL =
+            "SELECT VID, Vorname, Nachname, PIN, COALESCE(Rolle, 'VERKAUFER') as Rolle FROM Verkäufer "
+            + "WHERE PIN IS NOT NULL AND PIN != '' ORDER BY Nachname, Vorname";
+    // Users by VID, without PIN hashes; shared by all service instances
+    private static final Map<Integer, User> USER_CACHE = new ConcurrentHashMap<>();
     private final DatabaseManager dbManager;
-    
+
     public UserService() {
         this.dbManager = DatabaseManager.getInstance();
     }
-    
+
     /**
-     * Authenticate user with PIN.
+     * Authenticate the selected user with their PIN. Costs one BCrypt verification, which runs
+     * after the connection is back in the pool.
      */
-    public User authenticate(String pin) {
-        String sql = "SELECT VID, Vorname, Nachname, PIN, COALESCE(Rolle, 'VERKAUFER') as Rolle FROM Verkäufer WHERE PIN = ?";
-        
+    public User authenticate(int vid, String pin) {
+        User user = null;
+        String hash = null;
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, "hash_" + pin + "_salt"); // Use same hashing as in DatabaseManager
-            
+             PreparedStatement stmt = conn.prepareStatement(AUTHENTICATE_SQL)) {
+
+            stmt.setInt(1, vid);
+
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    User user = new User();
-                    user.setVid(rs.getInt("VID"));
-                    user.setVorname(rs.getString("Vorname"));
-                    user.setNachname(rs.getString("Nachname"));
-                    user.setPin(rs.getString("PIN"));
-                    
-                    String rolle = rs.getString("Rolle");
-                    if ("FILIALLEITER".equals(rolle)) {
-                        user.setRolle(User.Role.FILIALLEITER);
-                    } else {
-                        user.setRolle(User.Role.VERKAUFER);
-                    }
-                    
-                    return user;
+                    user = mapUser(rs);
+                    hash = rs.getString("PIN");
                 }
             }
         } catch (SQLException e) {
             System.err.println("Authentication error: " + e.getMessage());
+            return null;
+        }
+
+        if (user != null && dbManager.verifyPin(pin, hash)) {
+            return remember(user);
         }
-        
         return null;
     }
-    
+
+    /**
+     * All users that can log in, for the user selection of the login screen.
+     */
+    public List<User> getAllUsers() {
+        List<User> users = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ALL_USERS_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                users.add(remember(mapUser(rs)));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+        }
+        return users;
+    }
+
     /**
-     * Get user by ID.
+     * Get user by ID. Served from the user cache after the first lookup.
      */
     public User getUserById(int vid) {
-        String sql = "SELECT VID, Vorname, Nachname, PIN, COALESCE(Rolle, 'VERKAUFER') as Rolle FROM Verkäufer WHERE VID = ?";
-        
+        User cached = USER_CACHE.get(vid);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
         try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+             PreparedStatement stmt = conn.prepareStatement(USER_BY_ID_SQL)) {
+
             stmt.setInt(1, vid);
-            
+
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    User user = new User();
-                    user.setVid(rs.getInt("VID"));
-                    user.setVorname(rs.getString("Vorname"));
-                    user.setNachname(rs.getString("Nachname"));
-                    user.setPin(rs.getString("PIN"));
-                    
-                    String rolle = rs.getString("Rolle");
-                    if ("FILIALLEITER".equals(rolle)) {
-                        user.setRolle(User.Role.FILIALLEITER);
-                    } else {
-                        user.setRolle(User.Role.VERKAUFER);
-                    }
-                    
-                    return user;
+                    return remember(mapUser(rs));
                 }
             }
         } catch (SQLException e) {
             System.err.println("Error getting user: " + e.getMessage());
         }
-        
+
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Drop all cached users, e.g. after names or roles were changed in the database.
+     */
+    public static void clearCache() {
+        USER_CACHE.clear();
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setVid(rs.getInt("VID"));
+        user.setVorname(rs.getString("Vorname"));
+        user.setNachname(rs.getString("Nachname"));
+
+        String rolle = rs.getString("Rolle");
+        if ("FILIALLEITER".equals(rolle)) {
+            user.setRolle(User.Role.FILIALLEITER);
+        } else {
+            user.setRolle(User.Role.VERKAUFER);
+        }
+        return user;
+    }
+
+    /**
+     * Cache a user and hand out a copy, so callers cannot change the cached record.
+     */
+    private static User remember(User user) {
+        USER_CACHE.put(user.getVid(), user);
+        return copyOf(user);
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getVid(), user.getVorname(), user.getNachname(), null, user.getRolle());
+    }
+}
@@ -5,170 +5,293 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service class for managing sales transactions.
  */
 public class VerkaufService {
+    // BonID is NULL unless the terminal reserved the number; SQLite then assigns the next one
+    static final String INSERT_BON_SQL =
+            "INSERT INTO Kassenbons (BonID, VerkauferID, Datum, DatumEpoch, Gesamtbetrag, GesamtbetragCent, " +
+            "IsCancelled, JournalID) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String BON_BY_JOURNAL_SQL = "SELECT BonID FROM Kassenbons WHERE JournalID = ?";
+    static final String INSERT_POSITION_SQL =
+            "INSERT INTO BonPositionen (BonID, ProduktID, Menge, Einzelpreis, Gesamtpreis, " +
+            "EinzelpreisCent, GesamtpreisCent, KID) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String CANCEL_BON_SQL = "UPDATE Kassenbons SET IsCancelled = 1 WHERE BonID = ? AND IsCancelled = 0";
+    static final String INSERT_CANCELLATION_SQL =
+            "INSERT INTO Stornierungen (BonID, StorniertVon, StorniertAm, StorniertAmEpoch, Grund) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    static final String SALES_BY_HOUR_SQL =
+            "SELECT DatumEpoch / " + Zeitstempel.MILLIS_PER_HOUR + " as Stunde, COUNT(*) as totalSales, " +
+            "SUM(GesamtbetragCent) as totalAmountCents FROM Kassenbons " +
+            "WHERE DatumEpoch >= ? AND DatumEpoch < ? AND IsCancelled = 0 GROUP BY Stunde";
+    // Next free number: behind every block, every receipt and the AUTOINCREMENT counter.
+    // Blocks only grow, so the newest one (by key) ends highest.
+    static final String NEXT_FREE_BON_ID_SQL =
+            "SELECT MAX(COALESCE((SELECT Bis FROM Bonnummernbloecke " +
+            "WHERE Von = (SELECT MAX(Von) FROM Bonnummernbloecke)), 0), " +
+            "COALESCE((SELECT MAX(BonID) FROM Kassenbons), 0), " +
+            "COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'Kassenbons'), 0)) + 1";
+    static final String INSERT_BLOCK_SQL =
+            "INSERT INTO Bonnummernbloecke (Von, Bis, Kasse, ReserviertAm) VALUES (?, ?, ?, ?)";
+    // Receipts saved without a reserved number must not take one of a block
+    static final String SKIP_SEQUENCE_SQL =
+            "UPDATE sqlite_sequence SET seq = ? WHERE name = 'Kassenbons' AND seq < ?";
+    static final String INIT_SEQUENCE_SQL =
+            "INSERT INTO sqlite_sequence (name, seq) SELECT 'Kassenbons', ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'Kassenbons')";
+    static final String NUMBER_AUDIT_SQL =
+            "SELECT b.Kasse, b.Von, b.Bis, COUNT(k.BonID) AS Verwendet, MAX(k.BonID) AS Hoechste, " +
+            "b.Von = (SELECT MAX(Von) FROM Bonnummernbloecke WHERE Kasse = b.Kasse) AS Aktuell " +
+            "FROM Bonnummernbloecke b LEFT JOIN Kassenbons k ON k.BonID BETWEEN b.Von AND b.Bis " +
+            "GROUP BY b.Von ORDER BY b.Kasse, b.Von";
+    // How long the synchronous writes wait for the commit queue; the write may still commit later
+    private static final long WRITE_WAIT_MILLIS = Long.getLong("shop.db.writeWaitMillis", 30_000L);
     private final DatabaseManager dbManager;
-    private final ProduktService produktService;
-    private final UserService userService;
+    private final ReceiptLoader receiptLoader;
+    private final SalesRollup salesRollup;
     
     public VerkaufService() {
         this.dbManager = DatabaseManager.getInstance();
-        this.produktService = new ProduktService();
-        this.userService = new UserService();
+        this.receiptLoader = new ReceiptLoader();
+        this.salesRollup = new SalesRollup();
     }
     
     /**
-     * Save a completed sale to database.
+     * Save a completed sale to database. Waits until the commit queue has committed it.
      */
     public int saveSale(Bon bon) {
-        String bonSql = "INSERT INTO Kassenbons (VerkauferID, Datum, Gesamtbetrag, IsCancelled) VALUES (?, ?, ?, ?)";
-        String positionSql = "INSERT INTO BonPositionen (BonID, ProduktID, Menge, Einzelpreis, Gesamtpreis) VALUES (?, ?, ?, ?, ?)";
-        
-        try (Connection conn = dbManager.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
+        try {
+            return saveSaleAsync(bon).get(WRITE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            System.err.println("Error saving sale: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            System.err.println("Sale not committed within " + WRITE_WAIT_MILLIS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while saving sale");
+        }
+        return -1;
+    }
+    
+    /**
+     * Queue a completed sale; the future yields its BonID once it is committed.
+     * Sales queued at the same time share one transaction.
+     */
+    public CompletableFuture<Integer> saveSaleAsync(Bon bon) {
+        return dbManager.getCommitQueue().submit(conn -> insertSale(conn, bon));
+    }
+    
+    private int insertSale(Connection conn, Bon bon) throws SQLException {
+        if (bon.getJournalId() != null) {
+            // A journal replay of a sale that is already booked returns the existing receipt
+            try (PreparedStatement stmt = conn.prepareStatement(BON_BY_JOURNAL_SQL)) {
+                stmt.setString(1, bon.getJournalId());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        bon.setBonId(rs.getInt(1));
+                        return bon.getBonId();
+                    }
+                }
+            }
+        }
+        // Insert receipt header
+        try (PreparedStatement bonStmt = conn.prepareStatement(INSERT_BON_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            if (bon.isNummerReserviert()) {
+                bonStmt.setInt(1, bon.getBonId());
+            } else {
+                bonStmt.setNull(1, Types.INTEGER);
+            }
+            bonStmt.setInt(2, bon.getVerkaufer().getVid());
+            bonStmt.setString(3, Zeitstempel.format(bon.getDatum()));
+            bonStmt.setLong(4, Zeitstempel.toEpochMillis(bon.getDatum()));
+            // The DECIMAL column is still written for older readers; totals are taken from the cents
+            long bruttoCents = bon.getBruttoGesamtbetragCents();
+            bonStmt.setDouble(5, Money.toEuros(bruttoCents));
+            bonStmt.setLong(6, bruttoCents);
+            bonStmt.setBoolean(7, bon.isCancelled());
+            bonStmt.setString(8, bon.getJournalId());
             
-            // Insert receipt header
-            try (PreparedStatement bonStmt = conn.prepareStatement(bonSql, Statement.RETURN_GENERATED_KEYS)) {
-                bonStmt.setInt(1, bon.getVerkaufer().getVid());
-                bonStmt.setString(2, bon.getDatum().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                bonStmt.setDouble(3, bon.getBruttoGesamtbetrag());
-                bonStmt.setBoolean(4, bon.isCancelled());
-                
-                int affectedRows = bonStmt.executeUpdate();
-                if (affectedRows == 0) {
-                    throw new SQLException("Creating receipt failed, no rows affected.");
+            int affectedRows = bonStmt.executeUpdate();
+            if (affectedRows == 0) {
+                throw new SQLException("Creating receipt failed, no rows affected.");
+            }
+            
+            try (ResultSet generatedKeys = bonStmt.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("Creating receipt failed, no ID obtained.");
                 }
+                int bonId = generatedKeys.getInt(1);
                 
-                try (ResultSet generatedKeys = bonStmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        int bonId = generatedKeys.getInt(1);
-                        bon.setBonId(bonId);
-                        
-                        // Insert receipt positions
-                        try (PreparedStatement posStmt = conn.prepareStatement(positionSql)) {
-                            for (Artikel artikel : bon.getPositionen()) {
-                                posStmt.setInt(1, bonId);
-                                posStmt.setInt(2, artikel.getProdukt().getPid());
-                                posStmt.setDouble(3, artikel.getMenge());
-                                posStmt.setDouble(4, artikel.getProdukt().getBruttoPreis());
-                                posStmt.setDouble(5, artikel.getBruttoGesamtpreis());
-                                posStmt.executeUpdate();
-                            }
-                        }
-                        
-                        conn.commit(); // Commit transaction
-                        return bonId;
-                    } else {
-                        throw new SQLException("Creating receipt failed, no ID obtained.");
+                // Insert receipt positions as one batch
+                try (PreparedStatement posStmt = conn.prepareStatement(INSERT_POSITION_SQL)) {
+                    for (Artikel artikel : bon.getPositionen()) {
+                        posStmt.setInt(1, bonId);
+                        posStmt.setInt(2, artikel.getProdukt().getPid());
+                        long einzelpreis = artikel.getProdukt().getBruttoPreisCents();
+                        long gesamtpreis = artikel.getBruttoGesamtpreisCents();
+                        posStmt.setDouble(3, artikel.getMenge());
+                        posStmt.setDouble(4, Money.toEuros(einzelpreis));
+                        posStmt.setDouble(5, Money.toEuros(gesamtpreis));
+                        posStmt.setLong(6, einzelpreis);
+                        posStmt.setLong(7, gesamtpreis);
+                        // The category the rollup books this position under
+                        posStmt.setInt(8, artikel.getProdukt().getKid());
+                        posStmt.addBatch();
                     }
+                    posStmt.executeBatch();
+                }
+                
+                if (!bon.isCancelled()) {
+                    salesRollup.addSale(conn, bon);
                 }
+                bon.setBonId(bonId);
+                return bonId;
             }
-        } catch (SQLException e) {
-            System.err.println("Error saving sale: " + e.getMessage());
-            return -1;
         }
     }
     
     /**
-     * Cancel a sale (only for Filialleiter).
+     * Reserve the next block of receipt numbers for a terminal, in one small transaction through
+     * the commit queue. Returns null on failure.
+     */
+    public BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+        try {
+            return dbManager.getCommitQueue().submit(conn -> reserveBlock(conn, kasse, anzahl))
+                    .get(WRITE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            System.err.println("Error reserving receipt numbers: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            System.err.println("Receipt numbers not reserved within " + WRITE_WAIT_MILLIS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while reserving receipt numbers");
+        }
+        return null;
+    }
+
+    private BonNummernKreis.Block reserveBlock(Connection conn, String kasse, int anzahl) throws SQLException {
+        int von;
+        try (PreparedStatement stmt = conn.prepareStatement(NEXT_FREE_BON_ID_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            von = rs.getInt(1);
+        }
+        int bis = von + anzahl - 1;
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_BLOCK_SQL)) {
+            stmt.setInt(1, von);
+            stmt.setInt(2, bis);
+            stmt.setString(3, kasse);
+            stmt.setLong(4, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SKIP_SEQUENCE_SQL)) {
+            stmt.setInt(1, bis);
+            stmt.setInt(2, bis);
+            if (stmt.executeUpdate() == 0) {
+                try (PreparedStatement init = conn.prepareStatement(INIT_SEQUENCE_SQL)) {
+                    init.setInt(1, bis);
+                    init.executeUpdate();
+                }
+            }
+        }
+        return new BonNummernKreis.Block(kasse, von, bis);
+    }
+
+    /**
+     * Gap audit of all reserved receipt number blocks, oldest first per terminal.
+     */
+    public List<BonNummernKreis.BlockAudit> getNummernAudit() {
+        List<BonNummernKreis.BlockAudit> audit = new ArrayList<>();
+        try (Connection conn = dbManager.getReportingConnection();
+             PreparedStatement stmt = conn.prepareStatement(NUMBER_AUDIT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                BonNummernKreis.BlockAudit block = new BonNummernKreis.BlockAudit();
+                block.kasse = rs.getString("Kasse");
+                block.von = rs.getInt("Von");
+                block.bis = rs.getInt("Bis");
+                block.verwendet = rs.getInt("Verwendet");
+                block.hoechste = block.verwendet == 0 ? block.von - 1 : rs.getInt("Hoechste");
+                block.luecken = block.hoechste - block.von + 1 - block.verwendet;
+                block.aktuell = rs.getBoolean("Aktuell");
+                audit.add(block);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error auditing receipt numbers: " + e.getMessage());
+        }
+        return audit;
+    }
+
+    /**
+     * Cancel a sale (only for Filialleiter). Waits until the commit queue has committed it.
      */
     public boolean cancelSale(int bonId, User cancelledBy, String reason) {
+        try {
+            return cancelSaleAsync(bonId, cancelledBy, reason).get(WRITE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            System.err.println("Error cancelling sale: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            System.err.println("Cancellation not committed within " + WRITE_WAIT_MILLIS + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while cancelling sale");
+        }
+        return false;
+    }
+    
+    /**
+     * Queue a cancellation; the future yields false if the receipt was already cancelled.
+     */
+    public CompletableFuture<Boolean> cancelSaleAsync(int bonId, User cancelledBy, String reason) {
         if (!cancelledBy.isFilialleiter()) {
             System.err.println("Only Filialleiter can cancel sales!");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
-        
-        String updateBonSql = "UPDATE Kassenbons SET IsCancelled = 1 WHERE BonID = ?";
-        String insertCancelSql = "INSERT INTO Stornierungen (BonID, StorniertVon, StorniertAm, Grund) VALUES (?, ?, ?, ?)";
-        
-        try (Connection conn = dbManager.getConnection()) {
-            conn.setAutoCommit(false);
-            
-            // Update receipt as cancelled
-            try (PreparedStatement updateStmt = conn.prepareStatement(updateBonSql)) {
-                updateStmt.setInt(1, bonId);
-                int updated = updateStmt.executeUpdate();
-                
-                if (updated > 0) {
-                    // Log cancellation
-                    try (PreparedStatement cancelStmt = conn.prepareStatement(insertCancelSql)) {
-                        cancelStmt.setInt(1, bonId);
-                        cancelStmt.setInt(2, cancelledBy.getVid());
-                        cancelStmt.setString(3, dbManager.getCurrentTimestamp());
-                        cancelStmt.setString(4, reason);
-                        cancelStmt.executeUpdate();
-                        
-                        conn.commit();
-                        return true;
-                    }
-                }
+        return dbManager.getCommitQueue().submit(conn -> cancel(conn, bonId, cancelledBy, reason));
+    }
+    
+    private boolean cancel(Connection conn, int bonId, User cancelledBy, String reason) throws SQLException {
+        // Update receipt as cancelled
+        try (PreparedStatement updateStmt = conn.prepareStatement(CANCEL_BON_SQL)) {
+            updateStmt.setInt(1, bonId);
+            // Already cancelled receipts are not updated, so they never leave the rollup twice
+            if (updateStmt.executeUpdate() == 0) {
+                return false;
             }
-        } catch (SQLException e) {
-            System.err.println("Error cancelling sale: " + e.getMessage());
         }
+        salesRollup.removeSale(conn, bonId);
         
-        return false;
+        // Log cancellation
+        try (PreparedStatement cancelStmt = conn.prepareStatement(INSERT_CANCELLATION_SQL)) {
+            cancelStmt.setInt(1, bonId);
+            cancelStmt.setInt(2, cancelledBy.getVid());
+            LocalDateTime now = LocalDateTime.now();
+            cancelStmt.setString(3, Zeitstempel.format(now));
+            cancelStmt.setLong(4, Zeitstempel.toEpochMillis(now));
+            cancelStmt.setString(5, reason);
+            cancelStmt.executeUpdate();
+        }
+        return true;
     }
     
     /**
      * Get receipt by ID.
      */
     public Bon getReceiptById(int bonId) {
-        String bonSql = "SELECT k.BonID, k.VerkauferID, k.Datum, k.Gesamtbetrag, k.IsCancelled " +
-                       "FROM Kassenbons k WHERE k.BonID = ?";
-        String positionsSql = "SELECT bp.ProduktID, bp.Menge, bp.Einzelpreis, bp.Gesamtpreis " +
-                             "FROM BonPositionen bp WHERE bp.BonID = ?";
-        
-        try (Connection conn = dbManager.getConnection()) {
-            // Get receipt header
-            try (PreparedStatement bonStmt = conn.prepareStatement(bonSql)) {
-                bonStmt.setInt(1, bonId);
-                
-                try (ResultSet rs = bonStmt.executeQuery()) {
-                    if (rs.next()) {
-                        Bon bon = new Bon();
-                        bon.setBonId(rs.getInt("BonID"));
-                        bon.setCancelled(rs.getBoolean("IsCancelled"));
-                        
-                        // Get seller
-                        User verkaufer = userService.getUserById(rs.getInt("VerkauferID"));
-                        bon.setVerkaufer(verkaufer);
-                        
-                        // Parse date
-                        String datumStr = rs.getString("Datum");
-                        LocalDateTime datum = LocalDateTime.parse(datumStr, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                        bon.setDatum(datum);
-                        
-                        // Get positions
-                        try (PreparedStatement posStmt = conn.prepareStatement(positionsSql)) {
-                            posStmt.setInt(1, bonId);
-                            
-                            try (ResultSet posRs = posStmt.executeQuery()) {
-                                List<Artikel> positionen = new ArrayList<>();
-                                
-                                while (posRs.next()) {
-                                    Produkt produkt = produktService.findById(posRs.getInt("ProduktID"));
-                                    if (produkt != null) {
-                                        Artikel artikel = new Artikel(produkt, posRs.getDouble("Menge"));
-                                        positionen.add(artikel);
-                                    }
-                                }
-                                
-                                bon.setPositionen(positionen);
-                            }
-                        }
-                        
-                        return bon;
-                    }
-                }
-            }
+        try (Connection conn = dbManager.getReportingConnection()) {
+            return receiptLoader.load(conn, bonId);
         } catch (SQLException e) {
             System.err.println("Error getting receipt: " + e.getMessage());
         }
@@ -177,35 +300,79 @@ public class VerkaufService {
     }
     
     /**
-     * Get sales statistics for a date range.
+     * Get sales statistics for a date range (yyyy-MM-dd, inclusive).
+     * Answered from the daily rollup, so the cost grows with days, not receipts.
      */
     public SalesStatistics getSalesStatistics(String fromDate, String toDate) {
-        String sql = "SELECT COUNT(*) as totalSales, SUM(Gesamtbetrag) as totalAmount, " +
-                    "AVG(Gesamtbetrag) as avgAmount FROM Kassenbons " +
-                    "WHERE Datum BETWEEN ? AND ? AND IsCancelled = 0";
+        try (Connection conn = dbManager.getReportingConnection()) {
+            return salesRollup.statistics(conn, fromDate, toDate);
+        } catch (SQLException e) {
+            System.err.println("Error getting statistics: " + e.getMessage());
+        }
         
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, fromDate + " 00:00:00");
-            stmt.setString(2, toDate + " 23:59:59");
-            
+        return new SalesStatistics();
+    }
+    
+    /**
+     * Get sales statistics per seller (VID) for a date range.
+     */
+    public Map<Integer, SalesStatistics> getSalesStatisticsBySeller(String fromDate, String toDate) {
+        try (Connection conn = dbManager.getReportingConnection()) {
+            return salesRollup.statisticsBySeller(conn, fromDate, toDate);
+        } catch (SQLException e) {
+            System.err.println("Error getting seller statistics: " + e.getMessage());
+        }
+        
+        return new LinkedHashMap<>();
+    }
+    
+    /**
+     * Get gross revenue in cents per product category (KID) for a date range.
+     */
+    public Map<Integer, Long> getRevenueByCategory(String fromDate, String toDate) {
+        try (Connection conn = dbManager.getReportingConnection()) {
+            return salesRollup.revenueByCategory(conn, fromDate, toDate);
+        } catch (SQLException e) {
+            System.err.println("Error getting category revenue: " + e.getMessage());
+        }
+        
+        return new LinkedHashMap<>();
+    }
+    
+    /**
+     * Get sales statistics per hour of day (0-23) for a date range.
+     * Buckets by epoch hour in SQL and maps each bucket to local time, so DST days stay correct.
+     */
+    public Map<Integer, SalesStatistics> getSalesStatisticsByHour(String fromDate, String toDate) {
+        int[] sales = new int[24];
+        long[] cents = new long[24];
+        try (Connection conn = dbManager.getReportingConnection();
+             PreparedStatement stmt = conn.prepareStatement(SALES_BY_HOUR_SQL)) {
+            stmt.setLong(1, Zeitstempel.startOfDay(fromDate));
+            stmt.setLong(2, Zeitstempel.endOfDay(toDate));
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    SalesStatistics stats = new SalesStatistics();
-                    stats.totalSales = rs.getInt("totalSales");
-                    stats.totalAmount = rs.getDouble("totalAmount");
-                    stats.avgAmount = rs.getDouble("avgAmount");
-                    stats.fromDate = fromDate;
-                    stats.toDate = toDate;
-                    return stats;
+                while (rs.next()) {
+                    int hour = Zeitstempel.fromEpochMillis(rs.getLong("Stunde") * Zeitstempel.MILLIS_PER_HOUR)
+                            .getHour();
+                    sales[hour] += rs.getInt("totalSales");
+                    cents[hour] += rs.getLong("totalAmountCents");
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting statistics: " + e.getMessage());
+            System.err.println("Error getting hourly statistics: " + e.getMessage());
         }
         
-        return new SalesStatistics();
+        Map<Integer, SalesStatistics> result = new LinkedHashMap<>();
+        for (int hour = 0; hour < sales.length; hour++) {
+            if (sales[hour] > 0) {
+                SalesStatistics stats = new SalesStatistics();
+                stats.fromDate = fromDate;
+                stats.toDate = toDate;
+                stats.setTotals(sales[hour], cents[hour]);
+                result.put(hour, stats);
+            }
+        }
+        return result;
     }
     
     /**
@@ -213,11 +380,19 @@ public class VerkaufService {
      */
     public static class SalesStatistics {
         public int totalSales = 0;
+        public long totalAmountCents = 0;
         public double totalAmount = 0.0;
         public double avgAmount = 0.0;
         public String fromDate;
         public String toDate;
         
+        void setTotals(int totalSales, long totalAmountCents) {
+            this.totalSales = totalSales;
+            this.totalAmountCents = totalAmountCents;
+            this.totalAmount = Money.toEuros(totalAmountCents);
+            this.avgAmount = totalSales == 0 ? 0.0 : totalAmountCents / 100.0 / totalSales;
+        }
+        
         @Override
         public String toString() {
             return String.format("Verkaufsstatistik (%s - %s):\n" +
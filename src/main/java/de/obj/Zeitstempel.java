@@ -0,0 +1,46 @@
+package de.obj;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Conversions between local date/time values and the epoch-millis columns
+ * (Kassenbons.DatumEpoch, Stornierungen.StorniertAmEpoch).
+ * The TEXT columns next to them keep the local time for display.
+ */
+public final class Zeitstempel {
+    /** Format of the TEXT date columns. */
+    public static final DateTimeFormatter DB_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private Zeitstempel() {}
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public static String format(LocalDateTime dateTime) {
+        return dateTime.format(DB_FORMAT);
+    }
+
+    /**
+     * First millisecond of a day (yyyy-MM-dd) in local time.
+     */
+    public static long startOfDay(String date) {
+        return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * First millisecond after a day (yyyy-MM-dd), for half-open ranges.
+     */
+    public static long endOfDay(String date) {
+        return LocalDate.parse(date).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,84 @@
+package de.obj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JButton;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the background execution of GUI service calls.
+ */
+class BackgroundTaskPanelTest {
+
+    @Test
+    void testResultsArriveOnEdtInSubmissionOrder() throws Exception {
+        List<Integer> results = new ArrayList<>();
+        AtomicBoolean allOnEdt = new AtomicBoolean(true);
+        AtomicBoolean workOffEdt = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(3);
+        JButton button = new JButton();
+
+        SwingUtilities.invokeAndWait(() -> {
+            BackgroundTaskPanel panel = new BackgroundTaskPanel();
+            for (int i = 0; i < 3; i++) {
+                int delay = 30 - i * 10;
+                int value = i;
+                panel.run("Task " + i, true, () -> {
+                    workOffEdt.compareAndSet(true, !SwingUtilities.isEventDispatchThread());
+                    Thread.sleep(delay);
+                    return value;
+                }, result -> {
+                    allOnEdt.compareAndSet(true, SwingUtilities.isEventDispatchThread());
+                    results.add(result);
+                    done.countDown();
+                }, button);
+            }
+            assertFalse(button.isEnabled(), "Button should be disabled while work is pending");
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> assertTrue(button.isEnabled(), "Button should be enabled again"));
+        assertEquals(3, results.size());
+        assertEquals(Integer.valueOf(0), results.get(0));
+        assertEquals(Integer.valueOf(2), results.get(2));
+        assertTrue(workOffEdt.get(), "Work must not run on the EDT");
+        assertTrue(allOnEdt.get(), "Results must be delivered on the EDT");
+    }
+
+    @Test
+    void testCancelledResultIsDropped() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean delivered = new AtomicBoolean(false);
+        BackgroundTaskPanel[] panel = new BackgroundTaskPanel[1];
+
+        SwingUtilities.invokeAndWait(() -> {
+            panel[0] = new BackgroundTaskPanel();
+            panel[0].run("Langsam", true, () -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "x";
+            }, result -> delivered.set(true));
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {
+            panel[0].cancelAll();
+            assertFalse(panel[0].isBusy(), "Cancelled work should no longer count as pending");
+        });
+        release.countDown();
+        // Let any late callback reach the EDT before checking
+        Thread.sleep(50);
+        SwingUtilities.invokeAndWait(() -> { });
+        assertFalse(delivered.get(), "A cancelled task must not deliver its result");
+    }
+}
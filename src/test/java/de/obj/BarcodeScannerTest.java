@@ -0,0 +1,97 @@
+package de.obj;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the keyboard-wedge burst detection.
+ */
+class BarcodeScannerTest {
+    private JPanel target;
+    private StringBuilder typed;
+    private List<String> scans;
+    private BarcodeScanner scanner;
+
+    @BeforeEach
+    void setUp() {
+        target = new JPanel();
+        typed = new StringBuilder();
+        target.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent e) {
+                typed.append(e.getKeyChar());
+            }
+        });
+        scans = new ArrayList<>();
+        scanner = new BarcodeScanner(null, scans::add, 40, 4);
+    }
+
+    @Test
+    void testFastBurstBecomesScan() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            long when = 1_000;
+            for (char c : "4001234567890".toCharArray()) {
+                assertTrue(scanner.dispatchKeyEvent(typedKey(c, when)), "Burst digits should be held");
+                when += 5;
+            }
+            assertTrue(scanner.dispatchKeyEvent(enter(KeyEvent.KEY_PRESSED, when)));
+            assertTrue(scanner.dispatchKeyEvent(enter(KeyEvent.KEY_TYPED, when)));
+            assertTrue(scanner.dispatchKeyEvent(enter(KeyEvent.KEY_RELEASED, when + 5)));
+            assertFalse(scanner.dispatchKeyEvent(enter(KeyEvent.KEY_PRESSED, when + 500)),
+                    "A later Enter belongs to the focused component again");
+        });
+        assertEquals(1, scans.size());
+        assertEquals("4001234567890", scans.get(0), "No digit may be lost");
+        assertEquals("", typed.toString(), "Scanned digits must not reach the focused component");
+        assertEquals(1, scanner.getScanCount());
+    }
+
+    @Test
+    void testSlowTypingIsPassedOnInOrder() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            long when = 1_000;
+            for (char c : "12345".toCharArray()) {
+                scanner.dispatchKeyEvent(typedKey(c, when));
+                when += 150;
+            }
+            assertFalse(scanner.dispatchKeyEvent(enter(KeyEvent.KEY_PRESSED, when)),
+                    "Enter after hand typing should reach the component");
+        });
+        assertTrue(scans.isEmpty(), "Hand typing is no scan");
+        assertEquals("12345", typed.toString());
+    }
+
+    @Test
+    void testHeldKeysAreReleasedWithoutEnter() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            scanner.dispatchKeyEvent(typedKey('4', 1_000));
+            scanner.dispatchKeyEvent(typedKey('2', 1_005));
+            // What the hold timer does once no further key arrives
+            scanner.release();
+        });
+        assertEquals("42", typed.toString());
+        assertTrue(scans.isEmpty());
+    }
+
+    private KeyEvent typedKey(char c, long when) {
+        return new KeyEvent(target, KeyEvent.KEY_TYPED, when, 0, KeyEvent.VK_UNDEFINED, c);
+    }
+
+    private KeyEvent enter(int id, long when) {
+        return id == KeyEvent.KEY_TYPED
+                ? new KeyEvent(target, id, when, 0, KeyEvent.VK_UNDEFINED, '\n')
+                : new KeyEvent(target, id, when, 0, KeyEvent.VK_ENTER, '\n');
+    }
+}
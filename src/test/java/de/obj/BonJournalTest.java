@@ -0,0 +1,189 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the crash-safe sale journal.
+ */
+class BonJournalTest {
+    private static final int CAPACITY = 64 * 1024;
+    private File file;
+    private final List<Bon> booked = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("bon-journal", ".journal");
+        file.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    private int book(Bon bon) {
+        synchronized (booked) {
+            booked.add(bon);
+        }
+        return nextId.getAndIncrement();
+    }
+
+    private static Bon sale(int cents) {
+        Bon bon = new Bon(new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER));
+        Produkt produkt = new Produkt(7, "Testartikel", 0.0, 0.07, 1, "4000000000007", false);
+        produkt.setPreisCents(cents);
+        bon.addArtikel(new Artikel(produkt, 2.0));
+        return bon;
+    }
+
+    @Test
+    void testAppendedSalesAreBooked() throws Exception {
+        BonJournal journal = new BonJournal(file, CAPACITY, true, this::book);
+        CompletableFuture<Integer> first = journal.append(sale(100));
+        CompletableFuture<Integer> second = journal.append(sale(250));
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(2, second.get(5, TimeUnit.SECONDS).intValue(), "Sales are booked in journal order");
+        assertEquals(2, journal.getStats().applied);
+        assertEquals(0, journal.getStats().pending);
+        journal.close();
+
+        BonJournal reopened = new BonJournal(file, CAPACITY, true, this::book);
+        assertEquals(0, reopened.getStats().recovered, "Booked sales must not be replayed");
+        reopened.close();
+    }
+
+    @Test
+    void testUnbookedSalesAreRecoveredAfterRestart() throws Exception {
+        // Database unreachable: nothing gets booked before the lane goes down
+        BonJournal down = new BonJournal(file, CAPACITY, true, bon -> -1);
+        Bon bon = sale(199);
+        down.append(bon);
+        down.append(sale(50));
+        down.close();
+
+        // Booking waits until the test has looked at the pending sale
+        CountDownLatch looked = new CountDownLatch(1);
+        BonJournal journal = new BonJournal(file, CAPACITY, true, b -> {
+            try {
+                looked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return -1;
+            }
+            return book(b);
+        });
+        assertEquals(2, journal.getStats().recovered);
+        CompletableFuture<Integer> replayed = journal.pending(bon.getJournalId());
+        looked.countDown();
+        assertNotNull(replayed);
+        assertEquals(1, replayed.get(5, TimeUnit.SECONDS).intValue());
+        Bon recovered = booked.get(0);
+        assertEquals(bon.getJournalId(), recovered.getJournalId(), "The journal ID makes the replay idempotent");
+        assertEquals(bon.getBruttoGesamtbetragCents(), recovered.getBruttoGesamtbetragCents());
+        assertEquals(bon.getDatum().withNano(bon.getDatum().getNano() / 1_000_000 * 1_000_000),
+                recovered.getDatum(), "The sale keeps its original time");
+        journal.close();
+    }
+
+    @Test
+    void testTornEntryIsDropped() throws Exception {
+        BonJournal down = new BonJournal(file, CAPACITY, true, bon -> -1);
+        down.append(sale(100));
+        down.append(sale(200));
+        down.close();
+
+        // Damage the payload of the second entry, as a write cut off by a power loss would
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int firstLength = readInt(raf, 32);
+            long secondPayload = 32 + 16 + firstLength + 16;
+            raf.seek(secondPayload + 3);
+            int b = raf.read();
+            raf.seek(secondPayload + 3);
+            raf.write(b ^ 0xff);
+        }
+
+        BonJournal journal = new BonJournal(file, CAPACITY, true, this::book);
+        assertEquals(1, journal.getStats().recovered, "Only the intact entry should be replayed");
+        CompletableFuture<Integer> next = journal.append(sale(300));
+        assertTrue(next.get(5, TimeUnit.SECONDS) > 0, "New sales go where the torn entry was");
+        journal.close();
+    }
+
+    @Test
+    void testRejectedSaleIsMovedAsideAndOthersAreBooked() throws Exception {
+        Bon poison = sale(666);
+        BonJournal journal = new BonJournal(file, CAPACITY, true, b -> {
+            if (b.getJournalId().equals(poison.getJournalId())) {
+                throw new IllegalStateException("Produkt fehlt");
+            }
+            return book(b);
+        }, b -> true, 3);
+        CompletableFuture<Integer> rejected = journal.append(poison);
+        CompletableFuture<Integer> next = journal.append(sale(100));
+        assertTrue(next.get(10, TimeUnit.SECONDS) > 0, "A rejected sale must not hold up the ones behind it");
+        assertThrows(ExecutionException.class, rejected::get);
+        assertEquals(1, journal.getDeadLetterCount());
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(1, journal.getStats().deadLetters);
+        journal.close();
+
+        List<Bon> deadLetters = BonJournal.readDeadLetters(journal.getDeadLetterFile());
+        assertEquals(1, deadLetters.size());
+        assertEquals(poison.getJournalId(), deadLetters.get(0).getJournalId());
+        journal.getDeadLetterFile().delete();
+    }
+
+    @Test
+    void testFailuresWhileOfflineDoNotCount() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        BonJournal journal = new BonJournal(file, CAPACITY, true, b -> {
+            attempts.incrementAndGet();
+            return -1;
+        }, b -> false, 3);
+        CompletableFuture<Integer> pending = journal.append(sale(100));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (attempts.get() <= 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(attempts.get() > 3);
+        assertFalse(pending.isDone(), "The sale waits for the database instead of being moved aside");
+        assertEquals(0, journal.getDeadLetterCount());
+        journal.close();
+    }
+
+    @Test
+    void testReplayedSaleIsBookedOnce() {
+        DatabaseManager.getInstance();
+        VerkaufService verkaufService = new VerkaufService();
+        Bon bon = new Bon(new UserService().getUserById(1));
+        bon.addArtikel(new Artikel(new ProduktService().getAllProducts().get(0), 1.0));
+        bon.setJournalId("test-" + System.nanoTime());
+        int bonId = verkaufService.saveSale(bon);
+        assertTrue(bonId > 0);
+        assertEquals(bonId, verkaufService.saveSale(bon), "A second replay must return the booked receipt");
+    }
+
+    private static int readInt(RandomAccessFile raf, long pos) throws IOException {
+        raf.seek(pos);
+        return raf.readInt();
+    }
+}
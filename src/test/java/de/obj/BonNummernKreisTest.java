@@ -0,0 +1,118 @@
+package de.obj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for block-allocated receipt numbers.
+ */
+class BonNummernKreisTest {
+    private VerkaufService verkaufService;
+    private User user;
+    private Produkt produkt;
+
+    @BeforeEach
+    void setUp() {
+        verkaufService = new VerkaufService();
+        user = new UserService().authenticate(1, "1234");
+        produkt = new ProduktService().getAllProducts().get(0);
+    }
+
+    private Bon sale() {
+        Bon bon = new Bon(user);
+        bon.addArtikel(new Artikel(produkt, 1.0));
+        return bon;
+    }
+
+    @Test
+    void testNumbersComeFromBlocksInOrder() {
+        List<BonNummernKreis.Block> reserved = new ArrayList<>();
+        int[] next = {1000};
+        BonNummernKreis kreis = new BonNummernKreis("K1", 8, (kasse, anzahl) -> {
+            BonNummernKreis.Block block = new BonNummernKreis.Block(kasse, next[0], next[0] + anzahl - 1);
+            next[0] += anzahl + 100;
+            reserved.add(block);
+            return block;
+        });
+        int previous = 0;
+        for (int i = 0; i < 20; i++) {
+            // What the lane's status thread does between sales
+            kreis.nachschub();
+            Bon bon = sale();
+            assertTrue(kreis.nummeriere(bon));
+            assertTrue(bon.getBonId() > previous, "Numbers rise monotonically per terminal");
+            previous = bon.getBonId();
+        }
+        assertEquals(3, reserved.size(), "The next block is reserved ahead, one per block used");
+        assertEquals(1000, reserved.get(0).von);
+
+        Bon numbered = sale();
+        kreis.nummeriere(numbered);
+        int bonId = numbered.getBonId();
+        kreis.nummeriere(numbered);
+        assertEquals(bonId, numbered.getBonId(), "A retried sale keeps its number");
+    }
+
+    @Test
+    void testSalesNeverReserveAndRunOutWithoutRefill() {
+        int[] reservations = {0};
+        BonNummernKreis kreis = new BonNummernKreis("K1", 4, (kasse, anzahl) -> {
+            reservations[0]++;
+            return new BonNummernKreis.Block(kasse, 1, 4);
+        });
+        assertFalse(kreis.nummeriere(sale()), "Without a reserved block there is no number");
+        assertTrue(kreis.nachschub());
+        assertFalse(kreis.nachschub(), "One block waiting is enough");
+        for (int i = 0; i < 4; i++) {
+            assertTrue(kreis.nummeriere(sale()));
+        }
+        Bon bon = sale();
+        assertFalse(kreis.nummeriere(bon), "Numbering never reserves a block itself");
+        assertEquals(1, reservations[0]);
+        assertFalse(bon.isNummerReserviert());
+        assertEquals(2, kreis.getStats().ohneNummer);
+    }
+
+    @Test
+    void testReservedNumbersAreBookedAndAudited() {
+        BonNummernKreis.Block k1 = verkaufService.reserveBonNummern("test-k1", 10);
+        BonNummernKreis.Block k2 = verkaufService.reserveBonNummern("test-k2", 10);
+        assertNotNull(k1);
+        assertNotNull(k2);
+        assertTrue(k2.von > k1.bis, "Blocks of different terminals never overlap");
+
+        Bon unnumbered = sale();
+        assertTrue(verkaufService.saveSale(unnumbered) > k2.bis, "Sales without a reserved number skip the blocks");
+
+        Bon first = sale();
+        first.setBonId(k1.von);
+        first.setNummerReserviert(true);
+        assertEquals(k1.von, verkaufService.saveSale(first));
+        // k1.von + 1 is handed out but never booked
+        Bon third = sale();
+        third.setBonId(k1.von + 2);
+        third.setNummerReserviert(true);
+        assertEquals(k1.von + 2, verkaufService.saveSale(third));
+
+        BonNummernKreis.BlockAudit audit = null;
+        for (BonNummernKreis.BlockAudit block : verkaufService.getNummernAudit()) {
+            if (block.von == k1.von) {
+                audit = block;
+            }
+        }
+        assertNotNull(audit);
+        assertEquals("test-k1", audit.kasse);
+        assertEquals(2, audit.verwendet);
+        assertEquals(k1.von + 2, audit.hoechste);
+        assertEquals(1, audit.luecken, "The skipped number is reported");
+        assertTrue(audit.aktuell);
+    }
+}
@@ -3,6 +3,16 @@ package de.obj;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,8 +37,8 @@ public class CancelSaleTest {
         produktService = new ProduktService();
         
         // Get test users
-        filialleiter = userService.authenticate("1234"); // Assuming this is Filialleiter PIN
-        verkaufer = userService.authenticate("9999"); // Assuming this is regular Verkäufer PIN
+        filialleiter = userService.authenticate(1, "1234"); // Maria Schmidt, Filialleiterin
+        verkaufer = userService.authenticate(3, "9999"); // Emma Fischer, Verkäuferin
     }
 
     @Test
@@ -85,4 +95,119 @@ public class CancelSaleTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStatisticsFollowSaleAndCancellation() {
+        String today = LocalDate.now().toString();
+        VerkaufService.SalesStatistics before = verkaufService.getSalesStatistics(today, today);
+        
+        Bon testBon = new Bon(filialleiter);
+        testBon.addArtikel(new Artikel(produktService.findById(1), 2.0));
+        int bonId = verkaufService.saveSale(testBon);
+        assertTrue(bonId > 0, "Sale should be saved successfully");
+        
+        VerkaufService.SalesStatistics afterSale = verkaufService.getSalesStatistics(today, today);
+        assertEquals(before.totalSales + 1, afterSale.totalSales, "Rollup should count the new receipt");
+        assertEquals(before.totalAmount + testBon.getBruttoGesamtbetrag(), afterSale.totalAmount, 0.001);
+        
+        assertTrue(verkaufService.cancelSale(bonId, filialleiter, "Test cancellation"));
+        assertFalse(verkaufService.cancelSale(bonId, filialleiter, "Second cancellation"),
+                "A receipt can only be cancelled once");
+        
+        VerkaufService.SalesStatistics afterCancel = verkaufService.getSalesStatistics(today, today);
+        assertEquals(before.totalSales, afterCancel.totalSales, "Cancelled receipt should leave the rollup");
+        assertEquals(before.totalAmount, afterCancel.totalAmount, 0.001);
+    }
+
+    @Test
+    public void testHourlyStatisticsAndReceiptDateUseEpochColumn() {
+        String today = LocalDate.now().toString();
+        LocalDateTime earlyMorning = LocalDate.now().atTime(3, 15, 42);
+        Map<Integer, VerkaufService.SalesStatistics> before = verkaufService.getSalesStatisticsByHour(today, today);
+        
+        Bon testBon = new Bon(filialleiter);
+        testBon.setDatum(earlyMorning);
+        testBon.addArtikel(new Artikel(produktService.findById(1), 1.0));
+        int bonId = verkaufService.saveSale(testBon);
+        assertTrue(bonId > 0, "Sale should be saved successfully");
+        
+        Map<Integer, VerkaufService.SalesStatistics> after = verkaufService.getSalesStatisticsByHour(today, today);
+        int countBefore = before.containsKey(3) ? before.get(3).totalSales : 0;
+        assertEquals(countBefore + 1, after.get(3).totalSales, "Sale should land in its local hour");
+        assertEquals(earlyMorning, verkaufService.getReceiptById(bonId).getDatum());
+    }
+
+    @Test
+    public void testRevenueByCategoryMatchesReceiptPositions() throws SQLException {
+        String today = LocalDate.now().toString();
+        Produkt first = produktService.findById(1);
+        Produkt other = null;
+        for (Produkt produkt : produktService.getAllProducts()) {
+            if (produkt.getKid() != first.getKid()) {
+                other = produkt;
+                break;
+            }
+        }
+        assertNotNull(other, "Test data should have products in two categories");
+
+        Bon testBon = new Bon(filialleiter);
+        testBon.addArtikel(new Artikel(first, 2.0));
+        testBon.addArtikel(new Artikel(other, 1.0));
+        int bonId = verkaufService.saveSale(testBon);
+        assertTrue(bonId > 0, "Sale should be saved successfully");
+        assertEquals(revenueFromPositions(today), verkaufService.getRevenueByCategory(today, today),
+                "Rollup should match the receipt positions");
+
+        assertTrue(verkaufService.cancelSale(bonId, filialleiter, "Test cancellation"));
+        assertEquals(revenueFromPositions(today), verkaufService.getRevenueByCategory(today, today),
+                "Cancelled receipt should leave the category rollup");
+    }
+
+    @Test
+    public void testCancellationAfterRecategorisationKeepsCategoryRevenue() throws SQLException {
+        String today = LocalDate.now().toString();
+        Produkt product = produktService.findById(1);
+        int oldKid = product.getKid();
+        int newKid = oldKid == 2 ? 3 : 2;
+        Map<Integer, Long> before = verkaufService.getRevenueByCategory(today, today);
+
+        Bon testBon = new Bon(filialleiter);
+        testBon.addArtikel(new Artikel(product, 1.0));
+        int bonId = verkaufService.saveSale(testBon);
+        assertTrue(bonId > 0, "Sale should be saved successfully");
+        try {
+            setKid(product.getPid(), newKid);
+            assertTrue(verkaufService.cancelSale(bonId, filialleiter, "Test cancellation"));
+        } finally {
+            setKid(product.getPid(), oldKid);
+        }
+        assertEquals(before, verkaufService.getRevenueByCategory(today, today),
+                "The cancellation must leave the category the sale was booked in");
+    }
+
+    private static void setKid(int pid, int kid) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE Produkt SET KID = ? WHERE PID = ?")) {
+            stmt.setInt(1, kid);
+            stmt.setInt(2, pid);
+            assertEquals(1, stmt.executeUpdate());
+        }
+    }
+
+    private Map<Integer, Long> revenueFromPositions(String day) throws SQLException {
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        try (Connection conn = DatabaseManager.getInstance().getReportingConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COALESCE(bp.KID, 1) as KID, SUM(bp.GesamtpreisCent) as UmsatzCent "
+                     + "FROM BonPositionen bp JOIN Kassenbons k ON k.BonID = bp.BonID "
+                     + "WHERE k.IsCancelled = 0 AND substr(k.Datum, 1, 10) = ? GROUP BY 1 ORDER BY 1")) {
+            stmt.setString(1, day);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt("KID"), rs.getLong("UmsatzCent"));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the single-writer commit queue.
+ */
+class CommitQueueTest {
+    private File dbFile;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        dbFile = File.createTempFile("commit-test", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + dbFile.getAbsolutePath(), 2, 1000,
+                Arrays.asList("PRAGMA journal_mode = WAL"), 8);
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    @Test
+    void testFailedWriteDoesNotAbortGroup() throws Exception {
+        // Long linger, so all three writes end up in one transaction
+        CommitQueue queue = new CommitQueue(pool, 16, 16, 200, 1000);
+        CompletableFuture<Integer> first = queue.submit(conn -> insert(conn, "a"));
+        CompletableFuture<Integer> failing = queue.submit(conn -> insert(conn, null));
+        CompletableFuture<Integer> third = queue.submit(conn -> insert(conn, "c"));
+
+        assertTrue(first.get() > 0);
+        assertTrue(third.get() > first.get());
+        ExecutionException e = assertThrows(ExecutionException.class, failing::get);
+        assertTrue(e.getCause() instanceof SQLException);
+        assertEquals(2, count(), "The failing write should be rolled back to its savepoint only");
+
+        CommitQueue.CommitStats stats = queue.getStats();
+        assertEquals(1, stats.commits);
+        assertEquals(2, stats.writes);
+        assertEquals(1, stats.failedWrites);
+        queue.close();
+    }
+
+    @Test
+    void testRuntimeExceptionDoesNotStopWriter() throws Exception {
+        CommitQueue queue = new CommitQueue(pool, 16, 16, 200, 1000);
+        CompletableFuture<Integer> first = queue.submit(conn -> insert(conn, "a"));
+        CompletableFuture<Integer> throwing = queue.submit(conn -> {
+            insert(conn, "b");
+            throw new IllegalStateException("Bon ohne Verkäufer");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, throwing::get);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(first.get() > 0);
+
+        assertTrue(queue.submit(conn -> insert(conn, "c")).get() > 0, "The writer must keep committing");
+        assertEquals(2, count(), "The throwing write should be rolled back to its savepoint only");
+        assertEquals(1, queue.getStats().failedWrites);
+        queue.close();
+    }
+
+    @Test
+    void testWritesAfterTheWriterStoppedFail() throws Exception {
+        CommitQueue queue = new CommitQueue(pool, 16, 16, 0, 1000);
+        // Interrupting the writer thread makes it stop once this group is committed
+        CompletableFuture<Integer> last = queue.submit(conn -> {
+            Thread.currentThread().interrupt();
+            return insert(conn, "a");
+        });
+        assertTrue(last.get(5, TimeUnit.SECONDS) > 0);
+
+        CompletableFuture<Integer> late = queue.submit(conn -> insert(conn, "b"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS),
+                "A write nobody will commit must fail instead of waiting forever");
+        assertEquals("Commit queue is closed", e.getCause().getMessage());
+        assertEquals(1, count());
+    }
+
+    @Test
+    void testCloseCommitsQueuedWrites() throws Exception {
+        CommitQueue queue = new CommitQueue(pool, 64, 8, 0, 1000);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String value = "v" + i;
+            futures.add(queue.submit(conn -> insert(conn, value)));
+        }
+        queue.close();
+        for (CompletableFuture<Integer> future : futures) {
+            assertTrue(future.isDone(), "Queued writes should be committed before close returns");
+            assertTrue(future.get() > 0);
+        }
+        assertEquals(40, count());
+        assertTrue(queue.getStats().maxGroupSize <= 8);
+        assertThrows(ExecutionException.class, () -> queue.submit(conn -> insert(conn, "late")).get());
+    }
+
+    private static int insert(Connection conn, String value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO t (v) VALUES (?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, value);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the SQLite connection pool.
+ */
+class ConnectionPoolTest {
+    private File dbFile;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFile = File.createTempFile("pool-test", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + dbFile.getAbsolutePath(), 2, 100,
+                Arrays.asList("PRAGMA journal_mode = WAL"), 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    @Test
+    void testPragmasAppliedOnCreate() throws SQLException {
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(rs.next());
+            assertEquals("wal", rs.getString(1), "Pooled connections should use WAL");
+        }
+    }
+
+    @Test
+    void testConnectionIsReused() throws SQLException {
+        Connection physical;
+        try (Connection conn = pool.borrow()) {
+            physical = conn.unwrap(Connection.class);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertSame(physical, conn.unwrap(Connection.class), "Returned connection should be reused");
+        }
+        ConnectionPool.PoolStats stats = pool.getStats();
+        assertEquals(2, stats.borrowCount);
+        assertEquals(0, stats.active);
+        assertEquals(1, stats.idle);
+    }
+
+    @Test
+    void testOpenTransactionRolledBackOnReturn() throws SQLException {
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (x INTEGER)");
+            conn.setAutoCommit(false);
+            stmt.execute("INSERT INTO t VALUES (1)");
+        }
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(conn.getAutoCommit(), "Returned connection should be back in auto-commit mode");
+            assertEquals(0, rs.getInt(1), "Uncommitted insert should have been rolled back");
+        }
+    }
+
+    @Test
+    void testPoolIsBounded() throws SQLException {
+        try (Connection first = pool.borrow(); Connection second = pool.borrow()) {
+            assertNotSame(first, second, "Each borrow should get its own connection");
+            assertEquals(2, pool.getStats().active);
+            assertThrows(SQLException.class, pool::borrow, "Third borrow should time out");
+        }
+        assertEquals(1, pool.getStats().timeouts);
+    }
+
+    @Test
+    void testPreparedStatementsAreCachedPerConnection() throws SQLException {
+        String sql = "SELECT ? + 1";
+        PreparedStatement first;
+        try (Connection conn = pool.borrow(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            first = stmt;
+            stmt.setInt(1, 41);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertEquals(42, rs.getInt(1));
+            }
+        }
+        try (Connection conn = pool.borrow(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            assertSame(first, stmt, "Same SQL on the same connection should reuse the statement");
+            try (PreparedStatement parallel = conn.prepareStatement(sql)) {
+                assertNotSame(stmt, parallel, "A statement in use must not be handed out twice");
+            }
+            stmt.setInt(1, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+        ConnectionPool.PoolStats stats = pool.getStats();
+        assertEquals(1, stats.statementCacheHits);
+        assertEquals(2, stats.statementCacheMisses);
+    }
+
+    @Test
+    void testReadOnlyPoolSeesCommittedDataButRejectsWrites() throws SQLException {
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (x INTEGER)");
+            stmt.execute("INSERT INTO t VALUES (1)");
+        }
+        ConnectionPool readOnly = new ConnectionPool(
+                DatabaseManager.readOnlyUrl("jdbc:sqlite:" + dbFile.getAbsolutePath()), 1, 100,
+                Arrays.asList("PRAGMA busy_timeout = 100"), 8);
+        try (Connection conn = readOnly.borrow(); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+                assertEquals(1, rs.getInt(1));
+            }
+            assertThrows(SQLException.class, () -> stmt.execute("INSERT INTO t VALUES (2)"),
+                    "Reporting connections must not write");
+        } finally {
+            readOnly.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.obj;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the store server and the remote lane backend.
+ */
+class KassenServerTest {
+    private KassenServer server;
+    private RemoteKassenBackend remote;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new KassenServer(new LocalKassenBackend(), 0);
+        server.start();
+        remote = new RemoteKassenBackend("127.0.0.1:" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void testSaleRoundTrip() {
+        assertFalse(remote.getAllUsers().isEmpty(), "Users should be listed for the login");
+        assertNull(remote.authenticate(1, "0000"), "A wrong PIN must not log in");
+        User user = remote.authenticate(1, "1234");
+        assertNotNull(user);
+        assertNull(user.getPin(), "PIN hashes must not leave the server");
+
+        List<Produkt> products = remote.getAllProducts();
+        assertFalse(products.isEmpty());
+        Produkt product = products.get(0);
+        for (Produkt p : products) {
+            if (p.getBarcode() != null && !p.getBarcode().isEmpty()) {
+                product = p;
+                Produkt cached = remote.findCachedByBarcode(p.getBarcode());
+                assertNotNull(cached, "Scans should be answered from the lane's catalog copy");
+                assertEquals(p.getPid(), cached.getPid());
+                break;
+            }
+        }
+
+        Bon bon = new Bon(user);
+        bon.addArtikel(new Artikel(product, 2.0));
+        int bonId = remote.saveSale(bon);
+        assertTrue(bonId > 0, "Sale should be saved by the server");
+        assertEquals(bonId, bon.getBonId());
+
+        Bon loaded = remote.getReceiptById(bonId);
+        assertNotNull(loaded);
+        assertEquals(bon.getBruttoGesamtbetragCents(), loaded.getBruttoGesamtbetragCents());
+        assertEquals(1, loaded.getVerkaufer().getVid());
+        String today = LocalDate.now().toString();
+        assertEquals(new VerkaufService().getRevenueByCategory(today, today), remote.getRevenueByCategory(today, today));
+
+        assertTrue(remote.cancelSale(bonId, user, "Test"));
+        assertTrue(remote.getReceiptById(bonId).isCancelled());
+        assertTrue(server.getStats().requests >= 8);
+    }
+
+    @Test
+    void testWritesNeedALogin() {
+        User claimed = new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER);
+        Bon bon = new Bon(claimed);
+        bon.addArtikel(new Artikel(remote.getAllProducts().get(0), 1.0));
+        assertEquals(-1, remote.saveSale(bon), "Sales without a session must be refused");
+        assertFalse(remote.cancelSale(1, claimed, "Test"));
+        assertTrue(server.getStats().errors >= 2);
+    }
+
+    @Test
+    void testCancellationIsBookedOnTheManager() throws SQLException {
+        User manager = remote.authenticate(1, "1234");
+        User seller = remote.authenticate(3, "9999");
+        assertNotNull(manager);
+        assertNotNull(seller);
+        Bon bon = new Bon(seller);
+        bon.addArtikel(new Artikel(remote.getAllProducts().get(0), 1.0));
+        int bonId = remote.saveSale(bon);
+        assertTrue(bonId > 0);
+
+        // The seller logged in last; the cancellation must still run as the manager
+        assertTrue(remote.cancelSale(bonId, manager, "Test"));
+        try (Connection conn = DatabaseManager.getInstance().getReportingConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT StorniertVon FROM Stornierungen WHERE BonID = ?")) {
+            stmt.setInt(1, bonId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testReadsNeedALogin() {
+        String today = LocalDate.now().toString();
+        assertNull(remote.getReceiptById(1));
+        assertEquals(0, remote.getSalesStatistics(today, today).totalSales);
+        assertTrue(remote.getSalesStatisticsByHour(today, today).isEmpty());
+        assertTrue(remote.getRevenueByCategory(today, today).isEmpty());
+        assertEquals(4, server.getStats().errors, "Receipts and statistics must be refused without a session");
+    }
+
+    @Test
+    void testLogoutEndsTheSession() {
+        User user = remote.authenticate(1, "1234");
+        assertNotNull(user);
+        assertEquals(1, server.getStats().sessions);
+        remote.logout(user);
+        assertEquals(0, server.getStats().sessions);
+        assertFalse(remote.cancelSale(1, user, "Test"), "A logged out session must not write");
+    }
+
+    @Test
+    void testIdleSessionsExpire() throws InterruptedException {
+        server.setSessionIdleMillis(50);
+        User user = remote.authenticate(1, "1234");
+        assertNotNull(user);
+        Thread.sleep(100);
+        Bon bon = new Bon(user);
+        bon.addArtikel(new Artikel(remote.getAllProducts().get(0), 1.0));
+        assertEquals(-1, remote.saveSale(bon), "An expired session must not write");
+        assertEquals(0, server.getStats().sessions);
+    }
+
+    @Test
+    void testWrongPinsLockTheUser() {
+        for (int i = 0; i < 5; i++) {
+            assertNull(remote.authenticate(2, "0000"));
+        }
+        assertNull(remote.authenticate(2, "5678"), "A locked VID must not log in, even with the right PIN");
+        assertNotNull(remote.authenticate(3, "9999"), "Other users are not locked");
+    }
+}
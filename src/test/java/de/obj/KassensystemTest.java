@@ -1,5 +1,10 @@
 package de.obj;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,21 +30,34 @@ class KassensystemTest {
     @Test
     void testUserAuthentication() {
         // Test authentication with valid PIN
-        User user = userService.authenticate("1234");
+        User user = userService.authenticate(1, "1234");
         assertNotNull(user, "User should be authenticated with valid PIN");
         assertEquals("Maria", user.getVorname(), "First name should be Maria");
         assertEquals("Schmidt", user.getNachname(), "Last name should be Schmidt");
         assertTrue(user.isFilialleiter(), "User should be Filialleiter");
         
         // Test authentication with invalid PIN
-        User invalidUser = userService.authenticate("0000");
+        User invalidUser = userService.authenticate(1, "0000");
         assertNull(invalidUser, "User should not be authenticated with invalid PIN");
     }
     
+    @Test
+    void testAuthenticateSelectedUser() {
+        User user = userService.authenticate(1, "1234");
+        assertNotNull(user, "Selected user should be authenticated with the right PIN");
+        assertNull(user.getPin(), "Returned users should not carry the PIN hash");
+        assertNull(userService.authenticate(1, "5678"), "Another user's PIN must not work");
+        
+        assertTrue(userService.getAllUsers().size() >= 3, "Demo users should be selectable");
+        User cached = userService.getUserById(1);
+        cached.setVorname("Geändert");
+        assertEquals("Maria", userService.getUserById(1).getVorname(), "Cached users must not be shared");
+    }
+    
     @Test
     void testProductRetrieval() {
         // Test getting all products
-        var products = produktService.getAllProducts();
+        List<Produkt> products = produktService.getAllProducts();
         assertFalse(products.isEmpty(), "Products should be available");
         
         // Test finding product by ID
@@ -74,6 +92,32 @@ class KassensystemTest {
         assertEquals(23.8, bon.getBruttoGesamtbetrag(), 0.01, "Brutto total should be 23.80");
     }
     
+    @Test
+    void testBonRunningTotalsPerVatRate() {
+        Bon bon = new Bon();
+        Produkt brot = new Produkt(1, "Brot", 2.00, 0.07, 1, null, false);   // 2.14 brutto
+        Produkt wein = new Produkt(2, "Wein", 5.00, 0.19, 1, null, false);   // 5.95 brutto
+        bon.addArtikel(new Artikel(wein, 1.0));
+        bon.addArtikel(new Artikel(brot, 3.0));
+        bon.addArtikel(new Artikel(wein, 2.0));
+        
+        assertEquals(642 + 1785, bon.getBruttoGesamtbetragCents());
+        List<Bon.MwstZeile> aufstellung = bon.getMwstAufstellung();
+        assertEquals(2, aufstellung.size(), "One line per VAT rate");
+        assertEquals(700, aufstellung.get(0).rateBasisPoints, "7% is listed first");
+        assertEquals(42, aufstellung.get(0).mwstCents);
+        assertEquals(285, aufstellung.get(1).mwstCents);
+        assertEquals(42 + 285, bon.getGesamtMwstCents());
+        
+        bon.removeArtikel(1);
+        assertEquals(1785, bon.getBruttoGesamtbetragCents());
+        assertEquals(285, bon.getGesamtMwstCents());
+        assertEquals(1, bon.getMwstAufstellung().size(), "Empty rates drop out of the breakdown");
+        assertEquals(wein, bon.getPositionen().get(1).getProdukt(), "Later positions keep their amounts");
+        bon.removeArtikel(1);
+        assertEquals(595, bon.getBruttoGesamtbetragCents());
+    }
+    
     @Test
     void testBonGeneration() {
         // Create test user
@@ -102,6 +146,51 @@ class KassensystemTest {
         assertTrue(receiptText.contains("5.95"), "Receipt should contain brutto total");
     }
     
+    @Test
+    void testReceiptRoundTripKeepsHistoricalPrice() throws SQLException {
+        User seller = userService.authenticate(1, "1234");
+        Produkt product = produktService.findById(1);
+        Bon bon = new Bon(seller);
+        bon.addArtikel(new Artikel(product, 3.0));
+        bon.addArtikel(new Artikel(produktService.findById(2), 1.0));
+        
+        int bonId = verkaufService.saveSale(bon);
+        assertTrue(bonId > 0, "Sale should be saved");
+        
+        // The price changes after the sale; the receipt must keep the price it was sold for
+        long oldPreisCents = product.getPreisCents();
+        Bon loaded;
+        try {
+            setPreisCents(product.getPid(), oldPreisCents + 100);
+            loaded = verkaufService.getReceiptById(bonId);
+        } finally {
+            setPreisCents(product.getPid(), oldPreisCents);
+        }
+        assertNotNull(loaded, "Receipt should be loadable");
+        assertEquals("Schmidt", loaded.getVerkaufer().getNachname(), "Seller should be joined");
+        assertEquals(2, loaded.getPositionen().size(), "Both positions should be loaded");
+        for (int i = 0; i < 2; i++) {
+            assertEquals(bon.getPositionen().get(i).getProdukt().getBruttoPreisCents(),
+                    loaded.getPositionen().get(i).getProdukt().getBruttoPreisCents(),
+                    "Position " + i + " should keep its stored EinzelpreisCent");
+        }
+        assertEquals(bon.getBruttoGesamtbetragCents(), loaded.getBruttoGesamtbetragCents(),
+                "Total should be rebuilt from stored prices");
+        assertEquals(bon.getNettoGesamtbetragCents(), loaded.getNettoGesamtbetragCents());
+        assertEquals(product.getBezeichnung(), loaded.getPositionen().get(0).getProdukt().getBezeichnung());
+    }
+    
+    private static void setPreisCents(int pid, long preisCents) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE Produkt SET PreisCent = ?, Preis = ? WHERE PID = ?")) {
+            stmt.setLong(1, preisCents);
+            stmt.setDouble(2, preisCents / 100.0);
+            stmt.setInt(3, pid);
+            assertEquals(1, stmt.executeUpdate());
+        }
+    }
+    
     @Test
     void testRoleBasedAccess() {
         // Test regular employee
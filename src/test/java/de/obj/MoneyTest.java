@@ -0,0 +1,55 @@
+package de.obj;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for the fixed-point money rules.
+ */
+class MoneyTest {
+
+    @Test
+    void testRoundingHalfAwayFromZero() {
+        assertEquals(3, Money.divideRounded(5, 2));
+        assertEquals(-3, Money.divideRounded(-5, 2));
+        assertEquals(2, Money.divideRounded(7, 4));
+    }
+
+    @Test
+    void testVatPerRateOnGrossSum() {
+        // 0.97 EUR netto at 7%: unit gross round(103.79) = 104 cents
+        assertEquals(104, Money.bruttoFromNetto(97, 700));
+        // Three positions of 1.04 at 7%: VAT is taken once from 3.12 (20.41), not summed per position (3 x 7)
+        assertEquals(20, Money.mwstFromBrutto(312, 700));
+        assertEquals(7, Money.mwstFromBrutto(104, 700));
+        assertEquals(380, Money.mwstFromBrutto(2380, 1900));
+    }
+
+    @Test
+    void testWeightBasedPosition() {
+        // 2.49 EUR/kg for 0.347 kg = 86.403 cents
+        assertEquals(86, Money.times(249, Money.toMilli(0.347)));
+        assertEquals(125, Money.times(249, 500));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("5.95", Money.format(595));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-12.30", Money.format(-1230));
+    }
+
+    @Test
+    void testBonTotalsAreExactCents() {
+        Produkt produkt = new Produkt(1, "Apfel", 0.10, 0.07, 1, null, false);
+        Bon bon = new Bon();
+        for (int i = 0; i < 10; i++) {
+            bon.addArtikel(new Artikel(produkt, 1.0));
+        }
+        // Unit gross round(10.7) = 11 cents; ten positions are exactly 1.10 EUR
+        assertEquals(110, bon.getBruttoGesamtbetragCents());
+        assertEquals(7, bon.getGesamtMwstCents());
+        assertEquals(103, bon.getNettoGesamtbetragCents());
+    }
+}
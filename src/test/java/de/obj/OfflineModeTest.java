@@ -0,0 +1,229 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the lane snapshot and the offline mode of the lane backend.
+ */
+class OfflineModeTest {
+    private File journalFile;
+    private File snapshotFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journalFile = File.createTempFile("offline", ".journal");
+        journalFile.delete();
+        snapshotFile = File.createTempFile("offline", ".snapshot");
+        snapshotFile.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journalFile.delete();
+        snapshotFile.delete();
+    }
+
+    /**
+     * Local backend whose database can be switched off for the test.
+     */
+    private static class SwitchableBackend extends LocalKassenBackend {
+        volatile boolean available = true;
+        volatile boolean reserveNumbers = true;
+
+        @Override
+        public boolean isAvailable() {
+            return available && super.isAvailable();
+        }
+
+        @Override
+        public int saveSale(Bon bon) {
+            return available ? super.saveSale(bon) : -1;
+        }
+
+        @Override
+        public BonNummernKreis.Block reserveBonNummern(String kasse, int anzahl) {
+            return available && reserveNumbers ? super.reserveBonNummern(kasse, anzahl) : null;
+        }
+    }
+
+    @Test
+    void testSnapshotSurvivesRestart() {
+        KassenSnapshot snapshot = KassenSnapshot.load(snapshotFile);
+        User user = new User(3, "Maria", "Schmidt", null, User.Role.FILIALLEITER);
+        Produkt produkt = new Produkt(7, "Testartikel", 1.99, 0.07, 1, "4000000000007", false);
+        assertTrue(snapshot.setUsers(Collections.singletonList(user)));
+        assertFalse(snapshot.setUsers(Collections.singletonList(user)), "Unchanged users need no save");
+        snapshot.rememberPin(3, "4711");
+        snapshot.setProducts(Collections.singletonList(produkt));
+        snapshot.save();
+
+        KassenSnapshot loaded = KassenSnapshot.load(snapshotFile);
+        assertTrue(loaded.getSavedAt() > 0);
+        assertEquals(1, loaded.getUsers().size());
+        assertNotNull(loaded.authenticate(3, "4711"));
+        assertNull(loaded.authenticate(3, "0000"), "A wrong PIN must not log in offline");
+        Produkt found = loaded.getKatalog().findByBarcode("4000000000007");
+        assertNotNull(found);
+        assertEquals(produkt.getBruttoPreisCents(), found.getBruttoPreisCents());
+    }
+
+    @Test
+    void testDamagedSnapshotIsIgnored() throws IOException {
+        KassenSnapshot snapshot = KassenSnapshot.load(snapshotFile);
+        snapshot.setUsers(Collections.singletonList(new User(3, "Maria", "Schmidt", null, User.Role.VERKAUFER)));
+        snapshot.save();
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw")) {
+            raf.seek(30);
+            int b = raf.read();
+            raf.seek(30);
+            raf.write(b ^ 0xff);
+        }
+        assertTrue(KassenSnapshot.load(snapshotFile).getUsers().isEmpty());
+    }
+
+    @Test
+    void testSalesContinueOfflineAndAreBookedLater() throws Exception {
+        SwitchableBackend database = new SwitchableBackend();
+        // No number block: offline sales get provisional numbers
+        database.reserveNumbers = false;
+        JournaledKassenBackend lane = new JournaledKassenBackend(database, journalFile, snapshotFile);
+        try {
+            assertFalse(lane.getAllUsers().isEmpty());
+            User user = lane.authenticate(1, "1234");
+            assertNotNull(user);
+            List<Produkt> products = lane.getAllProducts();
+            assertFalse(products.isEmpty());
+            Produkt product = products.get(0);
+
+            database.available = false;
+            waitFor(() -> !lane.isAvailable());
+            assertFalse(lane.getLaneStatus().online);
+            assertNotNull(lane.authenticate(1, "1234"), "Users who logged in here can log in offline");
+            assertEquals(products.size(), lane.getSuchindex().size(), "The search runs on the snapshot");
+            assertEquals(product.getPid(), lane.getSnapshot().getKatalog().findById(product.getPid()).getPid());
+            String today = LocalDate.now().toString();
+            VerkaufService.SalesStatistics offlineStats = lane.getSalesStatistics(today, today);
+            assertNotNull(offlineStats, "Statistics are empty offline, not missing");
+            assertEquals(0, offlineStats.totalSales);
+            assertTrue(lane.getRevenueByCategory(today, today).isEmpty());
+
+            List<Bon> sales = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                Bon bon = new Bon(user);
+                bon.addArtikel(new Artikel(product, 1.0));
+                assertEquals(KassenBackend.SALE_PENDING, lane.saveSale(bon));
+                sales.add(bon);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(millis < 1000, "Offline sales must not wait for the database, took " + millis + " ms");
+            assertTrue(sales.get(0).generateReceiptText().contains(sales.get(0).getVorlaeufigeNummer() + " (vorläufig)"));
+            assertEquals(20, lane.getLaneStatus().pendingSales);
+
+            database.available = true;
+            for (Bon bon : sales) {
+                assertTrue(lane.whenSaved(bon).get(20, TimeUnit.SECONDS) > 0, "Queued sales are booked once the database is back");
+            }
+            waitFor(lane::isAvailable);
+            assertEquals(0, lane.getLaneStatus().pendingSales);
+        } finally {
+            lane.getJournal().close();
+        }
+    }
+
+    @Test
+    void testStatusThreadReservesNumbersForOfflineSales() throws Exception {
+        SwitchableBackend database = new SwitchableBackend();
+        JournaledKassenBackend lane = new JournaledKassenBackend(database, journalFile, snapshotFile);
+        try {
+            assertFalse(lane.getAllUsers().isEmpty());
+            User user = lane.authenticate(1, "1234");
+            Produkt product = lane.getAllProducts().get(0);
+            waitFor(() -> lane.getNummernKreis().getStats().frei > 0);
+            assertEquals(1, lane.getNummernKreis().getStats().bloecke, "The block is reserved without a sale");
+
+            database.available = false;
+            waitFor(() -> !lane.isAvailable());
+            Bon bon = new Bon(user);
+            bon.addArtikel(new Artikel(product, 1.0));
+            int bonId = lane.saveSale(bon);
+            assertTrue(bonId > 0, "Offline sales take their number from the reserved block");
+            assertEquals(bonId, bon.getBonId());
+            assertTrue(bon.generateReceiptText().contains(Integer.toString(bonId)));
+
+            database.available = true;
+            assertEquals(bonId, lane.whenSaved(bon).get(20, TimeUnit.SECONDS).intValue());
+        } finally {
+            lane.getJournal().close();
+        }
+    }
+
+    @Test
+    void testOfflineSalesKeepTheirSeller() throws Exception {
+        SwitchableBackend database = new SwitchableBackend();
+        KassenServer server = new KassenServer(database, 0);
+        server.start();
+        JournaledKassenBackend lane = new JournaledKassenBackend(
+                new RemoteKassenBackend("127.0.0.1:" + server.getPort()), journalFile, snapshotFile);
+        try {
+            assertFalse(lane.getAllUsers().isEmpty());
+            assertNotNull(lane.authenticate(1, "1234"));
+            assertNotNull(lane.authenticate(2, "5678"));
+            Produkt product = lane.getAllProducts().get(0);
+
+            database.available = false;
+            waitFor(() -> !lane.isAvailable());
+            // Two sellers take turns at the lane while it is offline
+            List<Bon> sales = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                User seller = i % 2 == 0 ? lane.authenticate(1, "1234") : lane.authenticate(2, "5678");
+                assertNotNull(seller);
+                Bon bon = new Bon(seller);
+                bon.addArtikel(new Artikel(product, 1.0));
+                lane.saveSale(bon);
+                sales.add(bon);
+            }
+
+            database.available = true;
+            VerkaufService verkaufService = new VerkaufService();
+            for (Bon bon : sales) {
+                int bonId = lane.whenSaved(bon).get(20, TimeUnit.SECONDS);
+                assertTrue(bonId > 0);
+                assertEquals(bon.getVerkaufer().getVid(), verkaufService.getReceiptById(bonId).getVerkaufer().getVid(),
+                        "Each sale is booked on the seller who made it, not on the last login");
+            }
+        } finally {
+            lane.getJournal().close();
+            server.stop();
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.holds() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.holds());
+    }
+}
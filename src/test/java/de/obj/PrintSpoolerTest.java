@@ -0,0 +1,76 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the background print spooler.
+ */
+class PrintSpoolerTest {
+
+    private Bon bon(int bonId) {
+        Bon bon = new Bon(new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER));
+        bon.setBonId(bonId);
+        bon.addArtikel(new Artikel(new Produkt(1, "Brot", 2.00, 0.07, 1, null, false), 1.0));
+        return bon;
+    }
+
+    @Test
+    void testReceiptsArePrintedToFile() throws IOException {
+        File file = File.createTempFile("printer", ".prn");
+        file.deleteOnExit();
+        ReceiptRenderer renderer = new ReceiptRenderer();
+        renderer.renderEscPos(bon(1));
+        int receiptLength = renderer.getEscPosLength();
+
+        PrintSpooler spooler = new PrintSpooler(new FilePrinterDevice(file));
+        assertTrue(spooler.submit(bon(1)));
+        assertTrue(spooler.submit(bon(2)));
+        spooler.close();
+
+        assertEquals(2 * receiptLength, Files.size(file.toPath()), "Both receipts should be on the printer");
+        PrintSpooler.SpoolerStats stats = spooler.getStats();
+        assertEquals(2, stats.printed);
+        assertEquals(0, stats.queueDepth);
+        assertFalse(spooler.submit(bon(3)), "A closed spooler accepts no receipts");
+    }
+
+    @Test
+    void testDeviceErrorsAreRetried() throws InterruptedException {
+        PrinterDevice flaky = new PrinterDevice() {
+            private int calls;
+
+            @Override
+            public void print(byte[] data, int length) throws IOException {
+                if (++calls < 3) {
+                    throw new IOException("Papier leer");
+                }
+            }
+
+            @Override
+            public String getName() {
+                return "flaky";
+            }
+        };
+        PrintSpooler spooler = new PrintSpooler(flaky);
+        assertTrue(spooler.submit(bon(1)));
+        // Wait for the worker instead of closing, so the retry pauses are not cut short
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spooler.getStats().printed == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        spooler.close();
+
+        PrintSpooler.SpoolerStats stats = spooler.getStats();
+        assertEquals(1, stats.printed, "Third attempt should succeed");
+        assertEquals(2, stats.retries);
+        assertEquals(0, stats.failed);
+    }
+}
@@ -0,0 +1,101 @@
+package de.obj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for the in-memory product catalog.
+ */
+class ProduktKatalogTest {
+    private List<Produkt> rows;
+    private int loads;
+    private ProduktKatalog katalog;
+
+    @BeforeEach
+    void setUp() {
+        rows = new ArrayList<>(Arrays.asList(
+                new Produkt(1, "Butter", 2.49, 0.07, 1, "4001", false),
+                new Produkt(2, "Äpfel", 3.99, 0.07, 2, "", true)));
+        loads = 0;
+        katalog = new ProduktKatalog(() -> {
+            loads++;
+            return rows;
+        });
+    }
+
+    @Test
+    void testLoadsOnceAndIndexes() {
+        assertEquals("Butter", katalog.findByBarcode("4001").getBezeichnung());
+        assertEquals("Äpfel", katalog.findById(2).getBezeichnung());
+        assertNull(katalog.findByBarcode(""), "Empty barcodes should not be indexed");
+        assertEquals(1, loads, "Catalog should be loaded exactly once");
+
+        ProduktKatalog.KatalogStats stats = katalog.getStats();
+        assertEquals(2, stats.hits);
+        assertEquals(1, stats.misses);
+    }
+
+    @Test
+    void testPeekCountsHitsAndMisses() {
+        assertNull(katalog.peekByBarcode("4001"), "Peeking must not load the catalog");
+        assertEquals(0, loads);
+        assertEquals(0, katalog.getStats().misses, "Nothing was looked up yet");
+
+        katalog.getAll();
+        assertNotNull(katalog.peekByBarcode("4001"));
+        assertNull(katalog.peekByBarcode("9999"));
+        ProduktKatalog.KatalogStats stats = katalog.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(0.5, stats.hitRate, 0.001);
+    }
+
+    @Test
+    void testPutRefreshesEntry() {
+        katalog.getAll();
+        katalog.put(new Produkt(1, "Butter", 2.79, 0.07, 1, "4002", false));
+
+        assertNull(katalog.findByBarcode("4001"), "Old barcode should be gone after update");
+        Produkt updated = katalog.findByBarcode("4002");
+        assertNotNull(updated);
+        assertEquals(2.79, updated.getPreis(), 0.001);
+        assertEquals(2, katalog.getAll().size());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void testPutUpdatesSearchIndex() {
+        ProduktSuchindex before = katalog.getSuchindex();
+        String butter = before.getDisplayText(before.search("butter")[0]);
+        katalog.put(new Produkt(3, "Brot", 1.99, 0.07, 3, "4003", false));
+
+        ProduktSuchindex after = katalog.getSuchindex();
+        assertNotSame(before, after);
+        assertEquals(3, after.size());
+        assertEquals("Brot", after.get(after.search("brot")[0]).getBezeichnung());
+        assertSame(butter, after.getDisplayText(after.search("butter")[0]),
+                "The index should be carried over, not rebuilt");
+        assertEquals(2, before.size(), "The previous index should stay unchanged");
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void testInvalidateReloads() {
+        katalog.getAll();
+        rows.add(new Produkt(3, "Brot", 1.99, 0.07, 3, "4003", false));
+        katalog.invalidate();
+
+        assertNotNull(katalog.findByBarcode("4003"));
+        assertEquals(2, loads);
+    }
+}
@@ -0,0 +1,92 @@
+package de.obj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for the product type-ahead search index.
+ */
+class ProduktSuchindexTest {
+    private ProduktSuchindex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProduktSuchindex(Arrays.asList(
+                new Produkt(1, "Vollmilch 3,5%", 1.19, 0.07, 1, "4001000000011", false),
+                new Produkt(2, "Äpfel Elstar", 2.49, 0.07, 2, "4002000000028", true),
+                new Produkt(3, "Milchbrötchen", 0.49, 0.07, 3, "4001000000035", false),
+                new Produkt(4, "Rotwein trocken", 5.00, 0.19, 4, null, false)));
+    }
+
+    @Test
+    void testShortTermsMatchWordPrefixes() {
+        assertEquals(Arrays.asList("Milchbrötchen"), names("mi"));
+        assertEquals(Arrays.asList("Rotwein trocken"), names("tr"));
+        assertEquals(Arrays.asList("Äpfel Elstar"), names("Ä"), "Umlauts should match case-insensitively");
+    }
+
+    @Test
+    void testLongTermsMatchSubstrings() {
+        assertEquals(Arrays.asList("Milchbrötchen", "Vollmilch 3,5%"), names("milch"), "Results come in name order");
+        assertEquals(Arrays.asList("Vollmilch 3,5%"), names("milch voll"), "All words must match");
+        assertEquals(Arrays.asList(), names("lchm"), "Trigram hits must be confirmed as substrings");
+    }
+
+    @Test
+    void testBarcodePrefix() {
+        assertEquals(Arrays.asList("Milchbrötchen", "Vollmilch 3,5%"), names("4001"));
+        assertEquals(Arrays.asList("Äpfel Elstar"), names("4002000000028"));
+    }
+
+    @Test
+    void testWithProductAddsAndReplaces() {
+        ProduktSuchindex old = index;
+        index = index.withProduct(new Produkt(5, "Buttermilch", 0.89, 0.07, 1, "4001000000042", false));
+        assertEquals(Arrays.asList("Buttermilch", "Milchbrötchen", "Vollmilch 3,5%"), names("milch"));
+        assertEquals(Arrays.asList("Buttermilch", "Milchbrötchen", "Vollmilch 3,5%"), names("4001"),
+                "Barcode hits should come in name order");
+
+        index = index.withProduct(new Produkt(3, "Zwieback", 1.29, 0.07, 3, "4009000000010", false));
+        assertEquals(5, index.size());
+        assertEquals(Arrays.asList("Buttermilch", "Vollmilch 3,5%"), names("milch"), "Old name should be gone");
+        assertEquals(Arrays.asList("Zwieback"), names("zw"));
+        assertEquals(Arrays.asList("Zwieback"), names("4009"));
+        assertEquals(Arrays.asList("Buttermilch", "Vollmilch 3,5%"), names("4001"), "Old barcode should be gone");
+        assertEquals(Arrays.asList("Buttermilch", "Rotwein trocken", "Vollmilch 3,5%", "Zwieback", "Äpfel Elstar"),
+                names(""), "An empty query should list all products in name order");
+
+        assertEquals(Arrays.asList("Milchbrötchen", "Vollmilch 3,5%"), namesIn(old, "milch"),
+                "The original index must not change");
+    }
+
+    @Test
+    void testListModelFiltersWithCachedText() {
+        ProduktListModel model = new ProduktListModel();
+        model.filter("wein");
+        model.setIndex(index);
+        assertEquals(1, model.getSize(), "A filter typed before the index was ready should apply");
+        String text = model.getDisplayText(0);
+        assertSame(text, model.getDisplayText(0), "Row text should be formatted only once");
+        model.filter("");
+        assertEquals(4, model.getSize());
+    }
+
+    private List<String> names(String query) {
+        return namesIn(index, query);
+    }
+
+    private static List<String> namesIn(ProduktSuchindex index, String query) {
+        List<String> result = new ArrayList<>();
+        for (int position : index.search(query)) {
+            result.add(index.get(position).getBezeichnung());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Regression tests for the query plans of the service queries.
+ * Every lookup must be served by an index; a full table scan fails the test.
+ */
+class QueryPlanTest {
+    private static File dbFile;
+    private static Connection conn;
+
+    @BeforeAll
+    static void setUp() throws IOException, SQLException {
+        dbFile = File.createTempFile("query-plan-test", ".db");
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+        new SchemaMigrations().migrate(conn);
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        conn.close();
+        dbFile.delete();
+    }
+
+    @Test
+    void testFindByBarcodeUsesIndex() throws SQLException {
+        assertNoTableScan(ProduktService.FIND_BY_BARCODE_SQL);
+    }
+
+    @Test
+    void testFindByIdUsesIndex() throws SQLException {
+        assertNoTableScan(ProduktService.FIND_BY_ID_SQL);
+    }
+
+    @Test
+    void testAuthenticateUsesIndex() throws SQLException {
+        assertNoTableScan(UserService.AUTHENTICATE_SQL);
+    }
+
+    @Test
+    void testUserByIdUsesIndex() throws SQLException {
+        assertNoTableScan(UserService.USER_BY_ID_SQL);
+    }
+
+    @Test
+    void testReceiptLoadUsesIndexes() throws SQLException {
+        assertNoTableScan(ReceiptLoader.RECEIPT_SQL);
+    }
+
+    @Test
+    void testCancelSaleUsesIndex() throws SQLException {
+        assertNoTableScan(VerkaufService.CANCEL_BON_SQL);
+    }
+
+    @Test
+    void testJournalReplayCheckUsesIndex() throws SQLException {
+        assertNoTableScan(VerkaufService.BON_BY_JOURNAL_SQL);
+    }
+
+    @Test
+    void testReceiptNumberReservationUsesIndexes() throws SQLException {
+        // sqlite_sequence has one row per AUTOINCREMENT table and no index; the outer SELECT has no table
+        List<String> plan = new ArrayList<>();
+        for (String detail : explain(VerkaufService.NEXT_FREE_BON_ID_SQL)) {
+            if (!detail.startsWith("SCAN sqlite_sequence") && !detail.equals("SCAN CONSTANT ROW")) {
+                plan.add(detail);
+            }
+        }
+        assertNoScan(VerkaufService.NEXT_FREE_BON_ID_SQL, plan);
+    }
+
+    @Test
+    void testStatisticsUseRollupKey() throws SQLException {
+        assertNoTableScan(SalesRollup.STATISTICS_SQL);
+        assertNoTableScan(SalesRollup.STATISTICS_BY_SELLER_SQL);
+        assertNoTableScan(SalesRollup.REVENUE_BY_CATEGORY_SQL);
+    }
+
+    @Test
+    void testHourlyStatisticsUseEpochIndex() throws SQLException {
+        assertNoTableScan(VerkaufService.SALES_BY_HOUR_SQL);
+    }
+
+    @Test
+    void testRollupMaintenanceUsesIndexes() throws SQLException {
+        assertNoTableScan(SalesRollup.BON_SQL);
+        assertNoTableScan(SalesRollup.BON_CATEGORIES_SQL);
+        assertNoTableScan(SalesRollup.REMOVE_DAY_SQL);
+        assertNoTableScan(SalesRollup.REMOVE_CATEGORY_SQL);
+    }
+
+    private void assertNoTableScan(String sql) throws SQLException {
+        assertNoScan(sql, explain(sql));
+    }
+
+    private void assertNoScan(String sql, List<String> plan) {
+        for (String detail : plan) {
+            if (detail.startsWith("SCAN")) {
+                fail("Full scan in query plan: " + detail + "\nSQL: " + sql + "\nPlan: " + plan);
+            }
+        }
+    }
+
+    private List<String> explain(String sql) throws SQLException {
+        List<String> details = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql.replace("?", "NULL"))) {
+            while (rs.next()) {
+                details.add(rs.getString("detail"));
+            }
+        }
+        return details;
+    }
+}
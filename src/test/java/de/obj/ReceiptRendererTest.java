@@ -0,0 +1,75 @@
+package de.obj;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the text and ESC/POS receipt targets.
+ */
+class ReceiptRendererTest {
+
+    private Bon sampleBon() {
+        Bon bon = new Bon(new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER));
+        bon.setBonId(42);
+        bon.setDatum(LocalDateTime.of(2024, 3, 5, 9, 7, 3));
+        bon.addArtikel(new Artikel(new Produkt(1, "Äpfel", 2.49, 0.07, 1, null, true), 0.35));
+        bon.addArtikel(new Artikel(new Produkt(2, "Wein", 5.00, 0.19, 1, null, false), 2.0));
+        return bon;
+    }
+
+    @Test
+    void testTextLayout() {
+        String expected = "=====================================\n"
+                + "           GoodFood GmbH            \n"
+                + "=====================================\n"
+                + "Datum: 05.03.2024 09:07:03\n"
+                + "Verkäufer: Maria Schmidt\n"
+                + "Bon-Nr: 42\n"
+                + "-------------------------------------\n"
+                + "1. 0.35 kg Äpfel = 0.87 EUR (netto) 0.93 EUR (brutto)\n"
+                + "2. 2 Stück Wein = 10.00 EUR (netto) 11.90 EUR (brutto)\n"
+                + "-------------------------------------\n"
+                + "Netto: 10.87 EUR\n"
+                + "MwSt:  1.96 EUR\n"
+                + "  7% MwSt: 0.06 (netto 0.87, brutto 0.93)\n"
+                + "  19% MwSt: 1.90 (netto 10.00, brutto 11.90)\n"
+                + "TOTAL: 12.83 EUR\n"
+                + "=====================================\n";
+        assertEquals(expected, new ReceiptRenderer().renderText(sampleBon()).toString());
+    }
+
+    @Test
+    void testEscPosFraming() {
+        ReceiptRenderer renderer = new ReceiptRenderer();
+        Bon bon = sampleBon();
+        bon.setCancelled(true);
+        renderer.renderEscPos(bon);
+        byte[] bytes = renderer.copyEscPos();
+
+        assertEquals(0x1B, bytes[0], "Starts with ESC @ (printer reset)");
+        assertEquals('@', bytes[1]);
+        assertEquals(0x1D, bytes[bytes.length - 4], "Ends with GS V (cut)");
+        assertEquals('V', bytes[bytes.length - 3]);
+        String latin = new String(bytes, StandardCharsets.ISO_8859_1);
+        assertTrue(latin.contains("Verk\u0084ufer"), "Umlauts are mapped to code page 858");
+        assertTrue(latin.contains("*** STORNIERT ***"));
+        assertTrue(latin.contains("TOTAL: 12.83 EUR"));
+    }
+
+    @Test
+    void testBuffersAreReused() {
+        ReceiptRenderer renderer = new ReceiptRenderer();
+        Bon bon = sampleBon();
+        CharSequence first = renderer.renderText(bon);
+        int length = first.length();
+        CharSequence second = renderer.renderText(bon);
+        assertSame(first, second, "The text buffer is reused");
+        assertEquals(length, second.length(), "A second render replaces the first");
+    }
+}
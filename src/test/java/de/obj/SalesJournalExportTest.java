@@ -0,0 +1,250 @@
+package de.obj;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the streaming sales journal export.
+ */
+class SalesJournalExportTest {
+    private static final String REASON = "Kunde sagt \"falsch\", zurück";
+
+    private final String today = LocalDate.now().toString();
+    private final List<File> dirs = new ArrayList<>();
+    private SalesJournalExport export;
+    private Bon bon;
+
+    @BeforeEach
+    void setUp() {
+        export = new SalesJournalExport();
+        User filialleiter = new UserService().authenticate(1, "1234");
+        List<Produkt> products = new ProduktService().getAllProducts();
+        bon = new Bon(filialleiter);
+        for (int i = 0; i < 3; i++) {
+            bon.addArtikel(new Artikel(products.get(i % products.size()), 1 + i));
+        }
+        VerkaufService verkaufService = new VerkaufService();
+        assertTrue(verkaufService.saveSale(bon) > 0);
+        assertTrue(verkaufService.cancelSale(bon.getBonId(), filialleiter, REASON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private File newDir() throws IOException {
+        File dir = Files.createTempDirectory("export").toFile();
+        dirs.add(dir);
+        return dir;
+    }
+
+    @Test
+    void testCsvExport() throws Exception {
+        File dir = newDir();
+        long rows = export.export(today, today, SalesJournalExport.Format.CSV, dir);
+
+        List<String> bons = lines(new File(dir, "kassenbons.csv"));
+        assertEquals("BonID,VerkauferID,Datum,DatumEpoch,GesamtbetragCent,IsCancelled", bons.get(0));
+        assertEquals(countToday("SELECT COUNT(*) FROM Kassenbons WHERE DatumEpoch >= ? AND DatumEpoch < ?"),
+                bons.size() - 1, "Every receipt of the range is exported once");
+        String line = startingWith(bons, bon.getBonId() + ",");
+        assertNotNull(line);
+        assertTrue(line.endsWith("," + bon.getBruttoGesamtbetragCents() + ",1"), line);
+
+        List<String> positions = lines(new File(dir, "bonpositionen.csv"));
+        int ownPositions = 0;
+        for (String position : positions) {
+            if (position.split(",")[1].equals(Integer.toString(bon.getBonId()))) {
+                ownPositions++;
+            }
+        }
+        assertEquals(3, ownPositions);
+
+        List<String> cancellations = lines(new File(dir, "stornierungen.csv"));
+        assertTrue(String.join("\n", cancellations).contains("\"Kunde sagt \"\"falsch\"\", zurück\""),
+                "Text with quotes and commas is quoted");
+        assertEquals(bons.size() + positions.size() + cancellations.size() - 3, rows);
+        assertFalse(new File(dir, "export.checkpoint").exists(), "A finished export leaves no checkpoint");
+    }
+
+    @Test
+    void testBinaryExport() throws Exception {
+        File csvDir = newDir();
+        export.export(today, today, SalesJournalExport.Format.CSV, csvDir);
+        File binDir = newDir();
+        export.export(today, today, SalesJournalExport.Format.BINARY, binDir);
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(new File(binDir, "kassenbons.bin")))) {
+            byte[] magic = new byte[4];
+            in.readFully(magic);
+            assertArrayEquals(new byte[] {'K', 'S', 'J', '1'}, magic);
+            assertEquals("kassenbons", readText(in));
+            int columns = (int) readVarint(in);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < columns; i++) {
+                names.add(readText(in));
+            }
+            assertEquals(Arrays.asList("BonID", "VerkauferID", "Datum", "DatumEpoch", "GesamtbetragCent",
+                    "IsCancelled"), names);
+
+            int rows = 0;
+            boolean found = false;
+            while (in.readByte() == 1) {
+                Object[] row = new Object[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = readValue(in);
+                }
+                rows++;
+                if (((Long) row[0]).intValue() == bon.getBonId()) {
+                    found = true;
+                    assertEquals(bon.getBruttoGesamtbetragCents(), ((Long) row[4]).longValue());
+                    assertEquals(1L, row[5]);
+                }
+            }
+            assertTrue(found);
+            assertEquals(lines(new File(csvDir, "kassenbons.csv")).size() - 1, rows, "Same rows as the CSV export");
+            assertEquals(-1, in.read(), "Nothing after the end marker");
+        }
+    }
+
+    @Test
+    void testInterruptedExportResumes() throws Exception {
+        File reference = newDir();
+        export.export(today, today, SalesJournalExport.Format.CSV, reference);
+        List<String> positions = lines(new File(reference, "bonpositionen.csv"));
+        assertTrue(positions.size() >= 3);
+
+        // State of a run cut off while writing bonpositionen: receipts done, one position row
+        // left, and a torn line behind the last checkpoint
+        File dir = newDir();
+        Files.copy(new File(reference, "kassenbons.csv").toPath(), new File(dir, "kassenbons.csv").toPath());
+        int written = positions.size() - 2;
+        long offset = 0;
+        for (int i = 0; i <= written; i++) {
+            offset += (positions.get(i) + "\r\n").getBytes(StandardCharsets.UTF_8).length;
+        }
+        byte[] complete = Files.readAllBytes(new File(reference, "bonpositionen.csv").toPath());
+        try (OutputStream out = new FileOutputStream(new File(dir, "bonpositionen.csv"))) {
+            out.write(complete, 0, (int) offset);
+            out.write("999999,1,2".getBytes(StandardCharsets.UTF_8));
+        }
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("job", today + "|" + today + "|CSV");
+        checkpoint.setProperty("kassenbons.lastKey", "0");
+        checkpoint.setProperty("kassenbons.offset", Long.toString(new File(dir, "kassenbons.csv").length()));
+        checkpoint.setProperty("kassenbons.done", "true");
+        checkpoint.setProperty("bonpositionen.lastKey", positions.get(written).split(",")[0]);
+        checkpoint.setProperty("bonpositionen.offset", Long.toString(offset));
+        checkpoint.setProperty("bonpositionen.done", "false");
+        try (OutputStream out = new FileOutputStream(new File(dir, "export.checkpoint"))) {
+            checkpoint.store(out, null);
+        }
+
+        long rows = export.export(today, today, SalesJournalExport.Format.CSV, dir);
+        int cancellations = lines(new File(reference, "stornierungen.csv")).size() - 1;
+        assertEquals(1 + cancellations, rows, "Only the rows after the checkpoint are exported again");
+        for (String name : new String[] {"kassenbons.csv", "bonpositionen.csv", "stornierungen.csv"}) {
+            assertArrayEquals(Files.readAllBytes(new File(reference, name).toPath()),
+                    Files.readAllBytes(new File(dir, name).toPath()), name + " must match an uninterrupted export");
+        }
+        assertFalse(new File(dir, "export.checkpoint").exists());
+    }
+
+    private static List<String> lines(File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.endsWith("\r\n"), "CSV lines end with CRLF");
+        return Arrays.asList(content.substring(0, content.length() - 2).split("\r\n", -1));
+    }
+
+    private static String startingWith(List<String> lines, String prefix) {
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private int countToday(String sql) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReportingConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, Zeitstempel.startOfDay(today));
+            stmt.setLong(2, Zeitstempel.endOfDay(today));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case 0:
+                return null;
+            case 1:
+                long v = readVarint(in);
+                return (v >>> 1) ^ -(v & 1);
+            case 2:
+                return in.readDouble();
+            case 3:
+                return readText(in);
+            default:
+                throw new IOException("Unknown tag " + tag);
+        }
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package de.obj;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the versioned schema migrations.
+ */
+class SchemaMigrationsTest {
+    private File dbFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFile = File.createTempFile("migration-test", ".db");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbFile.delete();
+    }
+
+    @Test
+    void testFreshDatabaseGetsFullSchema() throws SQLException {
+        SchemaMigrations migrations = new SchemaMigrations();
+        try (Connection conn = open()) {
+            assertEquals(migrations.getLatestVersion(), migrations.migrate(conn));
+            assertEquals(migrations.getLatestVersion(), SchemaMigrations.readUserVersion(conn));
+            for (String table : new String[] {"Verkäufer", "Produkt", "Kassenbons", "BonPositionen", "Stornierungen"}) {
+                assertTrue(tableExists(conn, table), table + " should exist");
+            }
+        }
+    }
+
+    @Test
+    void testMigrationsRunOnlyOnce() throws SQLException {
+        SchemaMigrations migrations = new SchemaMigrations();
+        try (Connection conn = open()) {
+            migrations.migrate(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO Verkäufer (VID, Vorname, Nachname) VALUES (1, 'Maria', 'Schmidt')");
+            }
+            // Version 1 would set the default PINs if it ran again
+            migrations.migrate(conn);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Verkäufer WHERE PIN IS NOT NULL")) {
+                assertEquals(0, rs.getInt(1), "Already applied migrations must not run again");
+            }
+        }
+    }
+
+    @Test
+    void testLegacyDatabaseIsUpgraded() throws SQLException {
+        SchemaMigrations migrations = new SchemaMigrations();
+        try (Connection conn = open()) {
+            createLegacyDatabase(conn);
+            assertEquals(0, SchemaMigrations.readUserVersion(conn));
+
+            assertEquals(migrations.getLatestVersion(), migrations.migrate(conn));
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MIN(PreisCent) FROM Produkt")) {
+                assertEquals(1, rs.getInt(1), "Existing data should survive the upgrade");
+                assertEquals(249, rs.getLong(2));
+            }
+            String[] pins = {"1234", "5678", "9999"};
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT VID, PIN FROM Verkäufer ORDER BY VID")) {
+                for (String pin : pins) {
+                    assertTrue(rs.next());
+                    String hash = rs.getString("PIN");
+                    assertTrue(hash.startsWith("$2"), "Legacy PIN hashes should be rehashed with BCrypt");
+                    assertTrue(DatabaseManager.getInstance().verifyPin(pin, hash));
+                    assertFalse(DatabaseManager.getInstance().verifyPin("0000", hash));
+                }
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT DatumEpoch, GesamtbetragCent FROM Kassenbons WHERE BonID = 1")) {
+                assertEquals(Zeitstempel.toEpochMillis(LocalDateTime.of(2025, 8, 29, 7, 1, 55)), rs.getLong(1));
+                assertEquals(593, rs.getLong(2));
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT AnzahlBons, UmsatzCent FROM UmsatzTag WHERE Tag = '2025-08-29' AND VerkauferID = 1")) {
+                assertEquals(1, rs.getInt(1), "The rollup is backfilled without the cancelled receipt");
+                assertEquals(593, rs.getLong(2));
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM BonPositionen WHERE KID = 1")) {
+                assertEquals(2, rs.getInt(1), "Positions get the category of their product");
+            }
+        }
+    }
+
+    /**
+     * The schema and data as the application left them before versioned migrations:
+     * user_version 0 and deterministic "hash_<pin>_salt" PINs.
+     */
+    private static void createLegacyDatabase(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Verkäufer (VID INT PRIMARY KEY, Vorname VARCHAR(255), Nachname VARCHAR(255), "
+                    + "PIN VARCHAR(255), Rolle VARCHAR(20) DEFAULT 'VERKAUFER')");
+            stmt.execute("CREATE TABLE Kategorie (KID INT PRIMARY KEY, Bezeichnung VARCHAR(255))");
+            stmt.execute("CREATE TABLE Produkt (PID INT PRIMARY KEY, Bezeichnung VARCHAR(255), Preis DECIMAL(10,2), "
+                    + "KID INT, Barcode VARCHAR(50), IsWeightBased BOOLEAN DEFAULT 0, MwSt DECIMAL(5,4) DEFAULT 0.19, "
+                    + "FOREIGN KEY (KID) REFERENCES Kategorie(KID))");
+            stmt.execute("CREATE TABLE Kassenbons (BonID INTEGER PRIMARY KEY AUTOINCREMENT, VerkauferID INTEGER, "
+                    + "Datum TEXT, Gesamtbetrag DECIMAL(10,2), IsCancelled BOOLEAN DEFAULT 0, "
+                    + "FOREIGN KEY (VerkauferID) REFERENCES Verkäufer(VID))");
+            stmt.execute("CREATE TABLE BonPositionen (PositionID INTEGER PRIMARY KEY AUTOINCREMENT, BonID INTEGER, "
+                    + "ProduktID INTEGER, Menge DECIMAL(10,3), Einzelpreis DECIMAL(10,2), Gesamtpreis DECIMAL(10,2), "
+                    + "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), FOREIGN KEY (ProduktID) REFERENCES Produkt(PID))");
+            stmt.execute("CREATE TABLE Stornierungen (StornierungID INTEGER PRIMARY KEY AUTOINCREMENT, BonID INTEGER, "
+                    + "StorniertVon INTEGER, StorniertAm TEXT, Grund TEXT, "
+                    + "FOREIGN KEY (BonID) REFERENCES Kassenbons(BonID), "
+                    + "FOREIGN KEY (StorniertVon) REFERENCES Verkäufer(VID))");
+
+            stmt.execute("INSERT INTO Verkäufer VALUES (1, 'Maria', 'Schmidt', 'hash_1234_salt', 'FILIALLEITER'), "
+                    + "(2, 'Johannes', 'Müller', 'hash_5678_salt', 'VERKAUFER'), "
+                    + "(3, 'Emma', 'Fischer', 'hash_9999_salt', 'VERKAUFER')");
+            stmt.execute("INSERT INTO Kategorie VALUES (1, 'Milchprodukte')");
+            stmt.execute("INSERT INTO Produkt (PID, Bezeichnung, Preis, KID) VALUES (1, 'Bio-Alpenbutter', 2.49, 1)");
+            stmt.execute("INSERT INTO Kassenbons VALUES (1, 1, '2025-08-29 07:01:55', 5.9262, 0), "
+                    + "(2, 1, '2025-08-29 08:19:41', 5.9262, 1)");
+            stmt.execute("INSERT INTO BonPositionen VALUES (1, 1, 1, 2, 2.9631, 5.9262), (2, 2, 1, 2, 2.9631, 5.9262)");
+            stmt.execute("INSERT INTO Stornierungen VALUES (1, 2, 1, '2025-08-29 08:20:00', 'Fehlbuchung')");
+        }
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.getInt(1) == 1;
+        }
+    }
+}
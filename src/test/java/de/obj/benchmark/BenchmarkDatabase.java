@@ -0,0 +1,189 @@
+package de.obj.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import de.obj.Money;
+import de.obj.SchemaMigrations;
+import de.obj.Zeitstempel;
+
+/**
+ * Generated throwaway database for benchmarks, so measurements never touch the real database and
+ * table sizes are known. Contents are deterministic for a given size: three users (VID 1 is
+ * Filialleiter with PIN {@link #PIN}), products with barcodes from {@link #barcode(int)}, and
+ * receipts with 1-8 positions spread over the last year, with a matching sales rollup.
+ */
+public final class BenchmarkDatabase {
+    public static final String PIN = "1234";
+    public static final int DEFAULT_PRODUCTS = 2_000;
+    public static final int DEFAULT_RECEIPTS = 10_000;
+
+    private static final String[] WORDS = {"Milch", "Käse", "Brot", "Apfel", "Bio", "Joghurt", "Saft",
+            "Wasser", "Nudeln", "Reis", "Tomaten", "Kaffee"};
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * Generate a database of the default size and point DatabaseManager at it.
+     * Must run before the first DatabaseManager.getInstance() in the benchmark JVM.
+     */
+    public static File setUp() throws IOException {
+        return setUp(DEFAULT_PRODUCTS, DEFAULT_RECEIPTS);
+    }
+
+    /**
+     * Generate a database with the given number of products and receipts and point DatabaseManager at it.
+     */
+    public static File setUp(int products, int receipts) throws IOException {
+        File file = File.createTempFile("shop-bench", ".db");
+        file.deleteOnExit();
+        new File(file.getPath() + "-wal").deleteOnExit();
+        new File(file.getPath() + "-shm").deleteOnExit();
+        // Set before migrating: the migrations load DatabaseManager, which reads the URL once
+        System.setProperty("shop.db.url", "jdbc:sqlite:" + file.getAbsolutePath());
+        long start = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath())) {
+            new SchemaMigrations().migrate(conn);
+            conn.setAutoCommit(false);
+            insertUsers(conn);
+            insertProducts(conn, products);
+            insertReceipts(conn, products, receipts);
+            rebuildRollup(conn);
+            conn.commit();
+        } catch (SQLException e) {
+            throw new IOException("Generating benchmark database failed: " + e.getMessage(), e);
+        }
+        System.out.printf("Benchmark database: %d products, %d receipts, generated in %d ms%n", products, receipts,
+                (System.nanoTime() - start) / 1_000_000);
+        return file;
+    }
+
+    /**
+     * Barcode of a generated product (EAN-13 length).
+     */
+    public static String barcode(int pid) {
+        return String.format("40%011d", pid);
+    }
+
+    private static void insertUsers(Connection conn) throws SQLException {
+        int rounds = Integer.getInteger("shop.pin.bcryptRounds", 10);
+        String[][] users = {
+                {"1", "Maria", "Schmidt", PIN, "FILIALLEITER"},
+                {"2", "Johannes", "Müller", "5678", "VERKAUFER"},
+                {"3", "Emma", "Fischer", "9999", "VERKAUFER"}};
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO Verkäufer (VID, Vorname, Nachname, PIN, Rolle) VALUES (?, ?, ?, ?, ?)")) {
+            for (String[] user : users) {
+                stmt.setInt(1, Integer.parseInt(user[0]));
+                stmt.setString(2, user[1]);
+                stmt.setString(3, user[2]);
+                stmt.setString(4, BCrypt.hashpw(user[3], BCrypt.gensalt(rounds)));
+                stmt.setString(5, user[4]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void insertProducts(Connection conn, int products) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO Kategorie (KID, Bezeichnung) VALUES (?, ?)")) {
+            for (int kid = 1; kid <= 10; kid++) {
+                stmt.setInt(1, kid);
+                stmt.setString(2, "Kategorie " + kid);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO Produkt (PID, Bezeichnung, Preis, PreisCent, "
+                + "KID, Barcode, IsWeightBased, MwSt) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int pid = 1; pid <= products; pid++) {
+                long cents = priceCents(pid);
+                stmt.setInt(1, pid);
+                stmt.setString(2, WORDS[pid % WORDS.length] + " " + WORDS[(pid / WORDS.length) % WORDS.length]
+                        + " " + pid);
+                stmt.setDouble(3, Money.toEuros(cents));
+                stmt.setLong(4, cents);
+                stmt.setInt(5, 1 + pid % 10);
+                stmt.setString(6, barcode(pid));
+                stmt.setBoolean(7, pid % 20 == 0);
+                stmt.setDouble(8, pid % 3 == 0 ? 0.19 : 0.07);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static long priceCents(int pid) {
+        return 49 + (pid * 37L) % 1950;
+    }
+
+    private static void insertReceipts(Connection conn, int products, int receipts) throws SQLException {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        try (PreparedStatement bonStmt = conn.prepareStatement("INSERT INTO Kassenbons (BonID, VerkauferID, Datum, "
+                + "DatumEpoch, Gesamtbetrag, GesamtbetragCent, IsCancelled) VALUES (?, ?, ?, ?, ?, ?, 0)");
+             PreparedStatement posStmt = conn.prepareStatement("INSERT INTO BonPositionen (BonID, ProduktID, Menge, "
+                     + "Einzelpreis, Gesamtpreis, EinzelpreisCent, GesamtpreisCent, KID) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int bonId = 1; bonId <= receipts; bonId++) {
+                // Oldest first, so BonIDs rise with the date as they do at the lanes
+                LocalDateTime datum = now.minusSeconds((long) (receipts - bonId) * 365 * 86_400 / receipts);
+                long total = 0;
+                int positions = 1 + random.nextInt(8);
+                for (int i = 0; i < positions; i++) {
+                    int pid = 1 + random.nextInt(products);
+                    int menge = 1 + random.nextInt(3);
+                    long einzelpreis = priceCents(pid);
+                    long gesamtpreis = einzelpreis * menge;
+                    total += gesamtpreis;
+                    posStmt.setInt(1, bonId);
+                    posStmt.setInt(2, pid);
+                    posStmt.setDouble(3, menge);
+                    posStmt.setDouble(4, Money.toEuros(einzelpreis));
+                    posStmt.setDouble(5, Money.toEuros(gesamtpreis));
+                    posStmt.setLong(6, einzelpreis);
+                    posStmt.setLong(7, gesamtpreis);
+                    posStmt.setInt(8, 1 + pid % 10);
+                    posStmt.addBatch();
+                }
+                bonStmt.setInt(1, bonId);
+                bonStmt.setInt(2, 1 + bonId % 3);
+                bonStmt.setString(3, Zeitstempel.format(datum));
+                bonStmt.setLong(4, Zeitstempel.toEpochMillis(datum));
+                bonStmt.setDouble(5, Money.toEuros(total));
+                bonStmt.setLong(6, total);
+                bonStmt.addBatch();
+                if (bonId % 1000 == 0) {
+                    bonStmt.executeBatch();
+                    posStmt.executeBatch();
+                }
+            }
+            bonStmt.executeBatch();
+            posStmt.executeBatch();
+        }
+    }
+
+    /**
+     * Fill the daily rollup from the generated receipts, the same way the schema migration backfills it.
+     */
+    private static void rebuildRollup(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO UmsatzTag (Tag, VerkauferID, AnzahlBons, UmsatzCent) "
+                    + "SELECT substr(Datum, 1, 10), COALESCE(VerkauferID, 0), COUNT(*), SUM(GesamtbetragCent) "
+                    + "FROM Kassenbons WHERE IsCancelled = 0 GROUP BY 1, 2");
+            stmt.execute("INSERT INTO UmsatzTagKategorie (Tag, KID, UmsatzCent) "
+                    + "SELECT substr(k.Datum, 1, 10), bp.KID, SUM(bp.GesamtpreisCent) "
+                    + "FROM BonPositionen bp JOIN Kassenbons k ON k.BonID = bp.BonID "
+                    + "WHERE k.IsCancelled = 0 GROUP BY 1, 2");
+        }
+    }
+}
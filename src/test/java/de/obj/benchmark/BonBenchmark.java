@@ -0,0 +1,62 @@
+package de.obj.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.Produkt;
+import de.obj.User;
+
+/**
+ * Receipt totals and receipt text by number of positions; no database involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BonBenchmark {
+    @Param({"1", "10", "100", "500"})
+    private int positions;
+
+    private Bon bon;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bon = new Bon(new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER));
+        bon.setBonId(4711);
+        Produkt apfel = new Produkt(1, "Äpfel Elstar", 2.49, 0.07, 1, BenchmarkDatabase.barcode(1), true);
+        Produkt wein = new Produkt(2, "Rotwein trocken", 5.00, 0.19, 2, BenchmarkDatabase.barcode(2), false);
+        for (int i = 0; i < positions; i++) {
+            bon.addArtikel(i % 2 == 0 ? new Artikel(apfel, 0.345 + i % 7) : new Artikel(wein, 1 + i % 3));
+        }
+    }
+
+    @Benchmark
+    public void totals(Blackhole bh) {
+        bh.consume(bon.getBruttoGesamtbetragCents());
+        bh.consume(bon.getNettoGesamtbetragCents());
+        bh.consume(bon.getGesamtMwstCents());
+        bh.consume(bon.getMwstAufstellung());
+    }
+
+    @Benchmark
+    public String generateReceiptText() {
+        return bon.generateReceiptText();
+    }
+}
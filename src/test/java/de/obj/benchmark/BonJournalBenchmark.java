@@ -0,0 +1,69 @@
+package de.obj.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.BonJournal;
+import de.obj.Produkt;
+import de.obj.User;
+
+/**
+ * Time until a sale is safe in the lane journal, with and without flushing each entry.
+ * Booking is stubbed out, so this is the confirm latency the cashier sees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BonJournalBenchmark {
+    @Param({"true", "false"})
+    private boolean force;
+
+    private File file;
+    private BonJournal journal;
+    private Bon template;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("bench", ".journal");
+        file.delete();
+        journal = new BonJournal(file, 64 * 1024 * 1024, force, bon -> 1);
+        template = new Bon(new User(1, "Bench", "Mark", null, User.Role.VERKAUFER));
+        for (int i = 0; i < 10; i++) {
+            template.addArtikel(new Artikel(new Produkt(i + 1, "Artikel " + i, 1.99, 0.07, 1,
+                    String.valueOf(4_000_000_000_000L + i), false), 1 + i % 3));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        journal.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public Object append() {
+        // A fresh journal ID per sale, as at the lane
+        template.setJournalId(null);
+        return journal.append(template);
+    }
+}
@@ -0,0 +1,69 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.Produkt;
+import de.obj.ProduktService;
+import de.obj.User;
+import de.obj.VerkaufService;
+
+/**
+ * Sustained sale throughput with many lanes saving at once (one JMH thread per lane).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ConcurrentSaveSaleBenchmark {
+    private static final int POSITIONS = 10;
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        VerkaufService verkaufService;
+        List<Produkt> products;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            BenchmarkDatabase.setUp();
+            verkaufService = new VerkaufService();
+            products = new ProduktService().getAllProducts();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lane {
+        Bon bon;
+
+        @Setup(Level.Trial)
+        public void setUp(Store store) {
+            bon = new Bon(new User(1, "Bench", "Mark", null, User.Role.VERKAUFER));
+            for (int i = 0; i < POSITIONS; i++) {
+                bon.addArtikel(new Artikel(store.products.get(i % store.products.size()), 1 + i % 3));
+            }
+        }
+    }
+
+    @Benchmark
+    public int saveSale(Store store, Lane lane) {
+        return store.verkaufService.saveSale(lane.bon);
+    }
+}
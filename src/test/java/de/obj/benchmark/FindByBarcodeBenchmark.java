@@ -0,0 +1,56 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Produkt;
+import de.obj.ProduktService;
+
+/**
+ * Barcode scan lookup by catalog size. A known barcode is answered from the loaded catalog;
+ * an unknown one also goes to the database, as it may have been added by another lane.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindByBarcodeBenchmark {
+    @Param({"1000", "50000"})
+    private int products;
+
+    private ProduktService produktService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.setUp(products, 100);
+        produktService = new ProduktService();
+        produktService.getAllProducts();
+    }
+
+    @Benchmark
+    public Produkt knownBarcode() {
+        next = next % products + 1;
+        return produktService.findByBarcode(BenchmarkDatabase.barcode(next));
+    }
+
+    @Benchmark
+    public Produkt unknownBarcode() {
+        return produktService.findByBarcode(BenchmarkDatabase.barcode(products + 1));
+    }
+}
@@ -0,0 +1,63 @@
+package de.obj.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Produkt;
+import de.obj.ProduktSuchindex;
+
+/**
+ * Type-ahead search over a synthetic catalog; no database involved.
+ * Each query is one keystroke in the product picker, so it should stay well below a millisecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProduktSucheBenchmark {
+    private static final String[] WORDS = {"Milch", "Käse", "Brot", "Apfel", "Saft", "Wein", "Butter",
+        "Joghurt", "Schinken", "Nudeln", "Reis", "Tomaten", "Bio", "Vollkorn", "Frisch", "Gouda"};
+
+    @Param({"50000"})
+    private int products;
+
+    @Param({"m", "mil", "milch", "bio käse", "40012"})
+    private String query;
+
+    private ProduktSuchindex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<Produkt> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + (100 + random.nextInt(900)) + "g";
+            catalog.add(new Produkt(i + 1, name, 0.5 + random.nextInt(1000) / 100.0, 0.07, 1,
+                    String.valueOf(4_000_000_000_000L + i * 7L), false));
+        }
+        index = new ProduktSuchindex(catalog);
+    }
+
+    @Benchmark
+    public int search() {
+        return index.search(query).length;
+    }
+}
@@ -0,0 +1,49 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Bon;
+import de.obj.VerkaufService;
+
+/**
+ * Reprint lookup of a random receipt with its positions, by number of receipts in the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptByIdBenchmark {
+    @Param({"1000", "100000"})
+    private int receipts;
+
+    private VerkaufService verkaufService;
+    private final Random random = new Random(7);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.setUp(BenchmarkDatabase.DEFAULT_PRODUCTS, receipts);
+        verkaufService = new VerkaufService();
+    }
+
+    @Benchmark
+    public Bon getReceiptById() {
+        return verkaufService.getReceiptById(1 + random.nextInt(receipts));
+    }
+}
@@ -0,0 +1,62 @@
+package de.obj.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.Produkt;
+import de.obj.ReceiptRenderer;
+import de.obj.User;
+
+/**
+ * Receipt rendering time by number of positions; no database involved.
+ * Run with "-prof gc" to see the allocation rate per render.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptRenderBenchmark {
+    @Param({"10", "100", "500"})
+    private int positions;
+
+    private final ReceiptRenderer renderer = new ReceiptRenderer();
+    private Bon bon;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bon = new Bon(new User(1, "Maria", "Schmidt", null, User.Role.FILIALLEITER));
+        bon.setBonId(4711);
+        Produkt apfel = new Produkt(1, "Äpfel Elstar", 2.49, 0.07, 1, "4000000000011", true);
+        Produkt wein = new Produkt(2, "Rotwein trocken", 5.00, 0.19, 2, "4000000000028", false);
+        for (int i = 0; i < positions; i++) {
+            bon.addArtikel(i % 2 == 0 ? new Artikel(apfel, 0.345 + i % 7) : new Artikel(wein, 1 + i % 3));
+        }
+    }
+
+    @Benchmark
+    public CharSequence renderText() {
+        return renderer.renderText(bon);
+    }
+
+    @Benchmark
+    public int renderEscPos() {
+        renderer.renderEscPos(bon);
+        return renderer.getEscPosLength();
+    }
+}
@@ -0,0 +1,70 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.Produkt;
+import de.obj.ProduktService;
+import de.obj.User;
+import de.obj.VerkaufService;
+
+/**
+ * Checkout commit latency while another thread keeps running month-long reports.
+ * Compare the "checkout" score with SaveSaleBenchmark at 10 positions.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportingIsolationBenchmark {
+    private VerkaufService verkaufService;
+    private Bon bon;
+    private String fromDate;
+    private String toDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.setUp();
+        verkaufService = new VerkaufService();
+        List<Produkt> products = new ProduktService().getAllProducts();
+        bon = new Bon(new User(1, "Bench", "Mark", null, User.Role.VERKAUFER));
+        for (int i = 0; i < 10; i++) {
+            bon.addArtikel(new Artikel(products.get(i % products.size()), 1 + i % 3));
+        }
+        LocalDate today = LocalDate.now();
+        fromDate = today.minusMonths(1).toString();
+        toDate = today.toString();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public int checkout() {
+        return verkaufService.saveSale(bon);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public Map<Integer, VerkaufService.SalesStatistics> report() {
+        return verkaufService.getSalesStatisticsBySeller(fromDate, toDate);
+    }
+}
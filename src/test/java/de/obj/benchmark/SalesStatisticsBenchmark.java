@@ -0,0 +1,66 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.VerkaufService;
+
+/**
+ * Report queries as the receipt table grows. The totals come from the daily rollup and should
+ * stay flat; the hourly breakdown reads the receipts of the range.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SalesStatisticsBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int receipts;
+
+    private VerkaufService verkaufService;
+    private String today;
+    private String monthAgo;
+    private String yearAgo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.setUp(BenchmarkDatabase.DEFAULT_PRODUCTS, receipts);
+        verkaufService = new VerkaufService();
+        LocalDate now = LocalDate.now();
+        today = now.toString();
+        monthAgo = now.minusDays(30).toString();
+        yearAgo = now.minusDays(365).toString();
+    }
+
+    @Benchmark
+    public VerkaufService.SalesStatistics lastMonth() {
+        return verkaufService.getSalesStatistics(monthAgo, today);
+    }
+
+    @Benchmark
+    public VerkaufService.SalesStatistics lastYear() {
+        return verkaufService.getSalesStatistics(yearAgo, today);
+    }
+
+    @Benchmark
+    public Map<Integer, VerkaufService.SalesStatistics> lastMonthByHour() {
+        return verkaufService.getSalesStatisticsByHour(monthAgo, today);
+    }
+}
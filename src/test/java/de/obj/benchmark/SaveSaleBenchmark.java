@@ -0,0 +1,59 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Artikel;
+import de.obj.Bon;
+import de.obj.Produkt;
+import de.obj.ProduktService;
+import de.obj.User;
+import de.obj.VerkaufService;
+
+/**
+ * Commit latency of VerkaufService.saveSale as the number of receipt positions grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveSaleBenchmark {
+    @Param({"1", "10", "100", "500"})
+    private int positions;
+
+    private VerkaufService verkaufService;
+    private Bon bon;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.setUp();
+        verkaufService = new VerkaufService();
+        List<Produkt> products = new ProduktService().getAllProducts();
+        User verkaufer = new User(1, "Bench", "Mark", null, User.Role.VERKAUFER);
+        bon = new Bon(verkaufer);
+        for (int i = 0; i < positions; i++) {
+            bon.addArtikel(new Artikel(products.get(i % products.size()), 1 + i % 3));
+        }
+    }
+
+    @Benchmark
+    public int saveSale() {
+        return verkaufService.saveSale(bon);
+    }
+}
@@ -0,0 +1,50 @@
+package de.obj.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.obj.Produkt;
+import de.obj.ProduktService;
+
+/**
+ * Barcode lookup that misses the catalog and goes to SQLite every time,
+ * with and without the per-connection statement cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+    @Param({"0", "64"})
+    private int cacheSize;
+
+    private ProduktService produktService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Each parameter runs in its own fork, so the property is read by a fresh DatabaseManager
+        System.setProperty("shop.db.statementCache", String.valueOf(cacheSize));
+        BenchmarkDatabase.setUp();
+        produktService = new ProduktService();
+    }
+
+    @Benchmark
+    public Produkt findUnknownBarcode() {
+        return produktService.findByBarcode("0000000000000");
+    }
+}